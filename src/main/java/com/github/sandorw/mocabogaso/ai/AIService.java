@@ -18,4 +18,13 @@ public interface AIService<GM extends GameMove> {
 	
 	<GR extends GameResult, GS extends GameState<GM,GR>> void applyMove(GM move, GS resultingGameState);
 	
+	/**
+	 * Keeps searching from the given game state on a background thread, such as during the
+	 * opponent's turn, until stopPondering is called. searchMoves and applyMove stop pondering 
+	 * before they run.
+	 */
+	<GR extends GameResult, GS extends GameState<GM,GR>> void startPondering(GS currentGameState);
+	
+	void stopPondering();
+	
 }
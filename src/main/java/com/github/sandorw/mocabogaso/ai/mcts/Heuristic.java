@@ -1,5 +1,7 @@
 package com.github.sandorw.mocabogaso.ai.mcts;
 
+import java.util.List;
+
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
@@ -11,11 +13,38 @@ import com.github.sandorw.mocabogaso.games.GameState;
  * @author sandorw
  */
 public interface Heuristic<GM extends GameMove, GR extends GameResult> {
+    /**
+     * Outcome of a move the heuristic has nothing to say about.
+     */
+    int NO_RESULT = -2;
+    /**
+     * Outcome of a move the heuristic rates as a tie. Other outcomes are the index of the player
+     * the heuristic favors.
+     */
+    int TIE = -1;
 
     int getWeight();
 
     <GS extends GameState<GM,GR>> GR evaluateMove(GM move, GS initialGameState);
     
+    /**
+     * Evaluates a batch of moves from the same game state, storing the outcome of each move at its
+     * index. Heuristics can override this to share work between the moves of a position.
+     */
+    default <GS extends GameState<GM,GR>> void evaluateMoves(List<GM> moves, GS initialGameState, 
+            int[] outcomes) {
+        for (int i=0; i < moves.size(); ++i) {
+            outcomes[i] = getOutcome(evaluateMove(moves.get(i), initialGameState));
+        }
+    }
+    
+    static int getOutcome(GameResult gameResult) {
+        if (gameResult == null) {
+            return NO_RESULT;
+        }
+        return (gameResult.isTie() ? TIE : gameResult.getWinningPlayerIndex());
+    }
+    
     <GS extends GameState<GM,GR>> GM suggestPlayoutMove(GS gameState);
     
 }
@@ -0,0 +1,94 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.github.sandorw.mocabogaso.games.GameMove;
+import com.github.sandorw.mocabogaso.games.GameResult;
+import com.github.sandorw.mocabogaso.games.GameState;
+import com.google.common.collect.Maps;
+
+/**
+ * Heuristic outcomes and priors of a batch of moves from one game state. Each heuristic evaluates
+ * the whole batch in one call to Heuristic.evaluateMoves, and the results are kept in primitive
+ * arrays indexed by move.
+ *
+ * @author sandorw
+ */
+public final class HeuristicEvaluation<GM extends GameMove> {
+    private final Map<GM,Integer> moveIndices;
+    private final int[] weights;
+    private final int[][] outcomes;
+    private final float[] priors;
+
+    private HeuristicEvaluation(Map<GM,Integer> moveIndices, int[] weights, int[][] outcomes, float[] priors) {
+        this.moveIndices = moveIndices;
+        this.weights = weights;
+        this.outcomes = outcomes;
+        this.priors = priors;
+    }
+
+    public static <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>>
+            HeuristicEvaluation<GM> of(List<GM> moves, GS initialGameState) {
+        int numMoves = moves.size();
+        Map<GM,Integer> moveIndices = Maps.newHashMapWithExpectedSize(numMoves);
+        for (int i=0; i < numMoves; ++i) {
+            moveIndices.put(moves.get(i), i);
+        }
+        List<Heuristic<GM,GR>> heuristics = initialGameState.getHeuristics();
+        int[] weights = new int[heuristics.size()];
+        int[][] outcomes = new int[heuristics.size()][];
+        for (int h=0; h < heuristics.size(); ++h) {
+            Heuristic<GM,GR> heuristic = heuristics.get(h);
+            weights[h] = heuristic.getWeight();
+            outcomes[h] = new int[numMoves];
+            Arrays.fill(outcomes[h], Heuristic.NO_RESULT);
+            heuristic.evaluateMoves(moves, initialGameState, outcomes[h]);
+        }
+        int movingPlayerIndex = initialGameState.getNextPlayerIndex();
+        float[] priors = new float[numMoves];
+        for (int i=0; i < numMoves; ++i) {
+            int totalWeight = 0;
+            int points = 0;
+            for (int h=0; h < weights.length; ++h) {
+                int outcome = outcomes[h][i];
+                if ((outcome != Heuristic.NO_RESULT) && (weights[h] > 0)) {
+                    totalWeight += weights[h];
+                    if (outcome == Heuristic.TIE) {
+                        points += PackedResultCounts.TIE_POINTS*weights[h];
+                    } else if (outcome == movingPlayerIndex) {
+                        points += PackedResultCounts.WIN_POINTS*weights[h];
+                    }
+                }
+            }
+            priors[i] = (totalWeight == 0 ? 0.0f : (float)points/(PackedResultCounts.WIN_POINTS*totalWeight));
+        }
+        return new HeuristicEvaluation<>(moveIndices, weights, outcomes, priors);
+    }
+
+    /**
+     * Index of the move in the evaluated batch, or -1 if it was not evaluated.
+     */
+    public int getMoveIndex(GM move) {
+        Integer moveIndex = moveIndices.get(move);
+        return (moveIndex == null ? -1 : moveIndex);
+    }
+
+    public float getPrior(int moveIndex) {
+        return priors[moveIndex];
+    }
+
+    /**
+     * Priors of the batch in move order. The array is shared and must not be modified.
+     */
+    public float[] getPriors() {
+        return priors;
+    }
+
+    public void applyVirtualResults(int moveIndex, HeuristicNodeResults nodeResults) {
+        for (int h=0; h < weights.length; ++h) {
+            nodeResults.applyVirtualOutcome(outcomes[h][moveIndex], weights[h]);
+        }
+    }
+}
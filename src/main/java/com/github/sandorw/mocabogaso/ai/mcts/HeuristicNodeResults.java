@@ -11,4 +11,9 @@ public interface HeuristicNodeResults extends NodeResults {
     
     <GR extends GameResult> void applyVirtualGameResult(GR gameResult, int weight);
     
+    /**
+     * Applies a virtual result given as a Heuristic outcome.
+     */
+    void applyVirtualOutcome(int outcome, int weight);
+    
 }
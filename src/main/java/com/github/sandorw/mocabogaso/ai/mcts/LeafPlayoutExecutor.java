@@ -0,0 +1,70 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs batches of playouts from the same selected leaf for leaf-parallel search. The calling thread
+ * runs one playout of every batch itself and the rest run on a pool of daemon worker threads.
+ * 
+ * @author sandorw
+ */
+public final class LeafPlayoutExecutor {
+    private final int numPlayouts;
+    private final ExecutorService executor;
+    
+    public LeafPlayoutExecutor(int numPlayouts) {
+        if (numPlayouts < 2)
+            throw new IllegalArgumentException("Leaf parallelism requires at least two playouts per leaf");
+        this.numPlayouts = numPlayouts;
+        executor = Executors.newFixedThreadPool(numPlayouts-1, new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("leaf-playout-%d")
+                .build());
+    }
+    
+    public int getNumPlayouts() {
+        return numPlayouts;
+    }
+    
+    /**
+     * Runs the playout numPlayouts times and returns all of the results. The playout must work on
+     * its own copy of the leaf GameState.
+     */
+    public <T> List<T> runPlayouts(Callable<T> playout) {
+        List<Future<T>> futures = Lists.newArrayListWithCapacity(numPlayouts-1);
+        for (int i=1; i < numPlayouts; ++i) {
+            futures.add(executor.submit(playout));
+        }
+        List<T> results = Lists.newArrayListWithCapacity(numPlayouts);
+        try {
+            results.add(playout.call());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for leaf playouts", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Leaf playout failed", e.getCause());
+        } catch (Exception e) {
+            throw new IllegalStateException("Leaf playout failed", e);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import java.util.Map;
+
+import com.github.sandorw.mocabogaso.ai.AIService;
+import com.github.sandorw.mocabogaso.games.GameMove;
+
+/**
+ * AIService backed by a MonteCarloSearchTree. Exposes the tuning parameters of the underlying tree.
+ * 
+ * @author sandorw
+ */
+public interface MonteCarloAIService<GM extends GameMove> extends AIService<GM> {
+
+    void setNodeExpandThreshold(int threshold);
+    
+    void setExplorationConstant(float explorationConstant);
+    
+    void setVirtualLoss(int virtualLoss);
+    
+    void setLeafParallelism(int numPlayouts);
+    
+    void setTranspositionTableMemory(long memoryBytes);
+    
+    void setNodeBudget(int maxNodes);
+    
+    void setLazyExpansion(boolean lazyExpansion);
+    
+    void setProgressiveWidening(float coefficient, float exponent);
+    
+    void setSymmetryHashing(boolean symmetryHashing);
+    
+    void setSmartTimeManagement(boolean smartTimeManagement);
+    
+    /**
+     * Limits each move's search by playouts and new nodes in addition to the allotted time. Pass
+     * the same SearchBudget to services that should share one budget, or null to remove it.
+     */
+    void setSearchBudget(SearchBudget searchBudget);
+    
+    Map<GM,Integer> getRootChildSimulations();
+    
+}
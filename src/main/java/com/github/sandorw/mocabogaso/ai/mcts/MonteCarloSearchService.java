@@ -1,71 +1,186 @@
 package com.github.sandorw.mocabogaso.ai.mcts;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.sandorw.mocabogaso.ai.AIService;
 import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloSearchTree.SearchTreeIterator;
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
+import com.github.sandorw.mocabogaso.games.IntMoveGameState;
+import com.github.sandorw.mocabogaso.games.RandomFillGameState;
+import com.github.sandorw.mocabogaso.games.ReversibleGameState;
 
 /**
  * AI service for managing a Monte Carlo search tree based AI. At the edges of the search tree,
  * simulated games are played to build signal on good moves. The PlayoutPolicy determines how new
- * moves are chosen in the simulated games.
+ * moves are chosen in the simulated games. Reversible game states are copied once per search and
+ * rewound after every simulation rather than copied for each one.
  *
  * @author sandorw
  */
-public final class MonteCarloSearchService<GM extends GameMove, NR extends NodeResults> implements AIService<GM> {
+public final class MonteCarloSearchService<GM extends GameMove, NR extends NodeResults> implements MonteCarloAIService<GM> {
     private static Logger LOGGER = LoggerFactory.getLogger(MonteCarloSearchService.class);
 
 	private final MonteCarloSearchTree<GM,NR> searchTree;
 	private final PlayoutPolicy playoutPolicy;
 	private final NodeResultsService<NR> nodeResultsService;
+	private final SearchRunner<GM> searchRunner;
 
 	public <GR extends GameResult, GS extends GameState<GM,GR>>
 	        MonteCarloSearchService(NodeResultsService<NR> nodeResultsService, PlayoutPolicy policy, GS initialGameState) {
 	    this.nodeResultsService = nodeResultsService;
 	    playoutPolicy = policy;
 	    searchTree = new MonteCarloSearchTree<>(nodeResultsService, initialGameState);
+	    searchRunner = new SearchRunner<>(searchTree, this::performPlayoutSimulation);
 	}
 
+    @Override
     public void setNodeExpandThreshold(int threshold) {
         searchTree.setNodeExpandThreshold(threshold);
     }
 
+    @Override
     public void setExplorationConstant(float explorationConstant) {
         searchTree.setExplorationConstant(explorationConstant);
     }
 
+    @Override
+    public void setVirtualLoss(int virtualLoss) {
+        searchTree.setVirtualLoss(virtualLoss);
+    }
+
+    @Override
+    public void setTranspositionTableMemory(long memoryBytes) {
+        searchTree.setTranspositionTableMemory(memoryBytes);
+    }
+
+    @Override
+    public void setNodeBudget(int maxNodes) {
+        searchTree.setNodeBudget(maxNodes);
+    }
+
+    @Override
+    public void setLazyExpansion(boolean lazyExpansion) {
+        searchTree.setLazyExpansion(lazyExpansion);
+    }
+
+    @Override
+    public void setProgressiveWidening(float coefficient, float exponent) {
+        searchTree.setProgressiveWidening(coefficient, exponent);
+    }
+
+    @Override
+    public void setSearchBudget(SearchBudget searchBudget) {
+        searchRunner.setSearchBudget(searchBudget);
+    }
+
+    @Override
+    public void setSmartTimeManagement(boolean smartTimeManagement) {
+        searchRunner.setSmartTimeManagement(smartTimeManagement);
+    }
+
+    @Override
+    public void setSymmetryHashing(boolean symmetryHashing) {
+        searchTree.setSymmetryHashing(symmetryHashing);
+    }
+
+    @Override
+    public void setLeafParallelism(int numPlayouts) {
+        searchRunner.setLeafParallelism(numPlayouts);
+    }
+
+    @Override
+    public Map<GM,Integer> getRootChildSimulations() {
+        return searchTree.getRootChildSimulations();
+    }
+
 	@Override
 	public <GR extends GameResult, GS extends GameState<GM,GR>>
 	        void searchMoves(GS currentGameState, int allottedTimeMs) {
-	    int numSimulations = 0;
-	    long timeout = System.currentTimeMillis() + (long)allottedTimeMs;
-	    searchTree.iterator().expandNode(currentGameState);
-	    while (System.currentTimeMillis() < timeout) {
-	        performPlayoutSimulation(currentGameState.getCopy());
-	        ++numSimulations;
-	    }
-	    LOGGER.info("Performed {} simulations in {} ms", numSimulations, allottedTimeMs);
+	    searchRunner.searchMoves(currentGameState, allottedTimeMs);
 	    logMoveChoices(currentGameState);
 	}
 
-	private <GR extends GameResult, GS extends GameState<GM,GR>> void performPlayoutSimulation(GS playoutGameState) {
+	/**
+	 * Runs one simulation from the given state. A reversible state is rewound to where it started,
+	 * any other state is left at the end of the simulated game.
+	 */
+	private <GR extends GameResult> int performPlayoutSimulation(GameState<GM,GR> playoutGameState) {
+	    boolean reversible = (playoutGameState instanceof ReversibleGameState);
 	    SearchTreeIterator<GM,NR> iterator = searchTree.iterator();
+	    int numSelectedMoves = 0;
 	    while (iterator.hasNext()) {
-	        String currentPlayerName = playoutGameState.getNextPlayerName();
-	        GM move = iterator.advanceToNextExplorationNode(currentPlayerName);
+	        GM move = iterator.advanceToNextExplorationNode(playoutGameState);
 	        playoutGameState.applyMove(move);
+	        ++numSelectedMoves;
 	    }
-	    GameState<GM, ? extends GameResult> expansionGameState = playoutGameState.getCopy();
+	    GameState<GM,GR> expansionGameState = (reversible ? playoutGameState : playoutGameState.getCopy());
+	    LeafPlayoutExecutor executor = searchRunner.getLeafPlayoutExecutor();
+	    int numPlayouts = 1;
+	    if (executor == null) {
+	        nodeResultsService.propagateGameResult(playOut(playoutGameState, reversible), iterator);
+	    } else {
+	        List<GR> gameResults = executor.runPlayouts(() -> playOut(expansionGameState.getCopy(), false));
+	        nodeResultsService.propagateGameResults(gameResults, iterator);
+	        numPlayouts = gameResults.size();
+	    }
+	    iterator.revertVirtualLoss();
+	    iterator.expandNode(expansionGameState);
+	    if (reversible) {
+	        undoMoves(playoutGameState, numSelectedMoves);
+	    }
+	    return numPlayouts;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <GR extends GameResult> GR playOut(GameState<GM,GR> playoutGameState, boolean rewind) {
+	    if (playoutPolicy.isUniformlyRandom() && (playoutGameState instanceof RandomFillGameState)) {
+	        RandomFillGameState<GM,GR> randomFillGameState = (RandomFillGameState<GM,GR>) playoutGameState;
+	        int[] moveBuffer = MoveBuffers.get(randomFillGameState.getNumEmptyLocations());
+	        return randomFillGameState.getRandomFillResult(ThreadLocalRandom.current(), moveBuffer);
+	    }
+	    if (playoutGameState instanceof IntMoveGameState)
+	        return playOutEncoded((IntMoveGameState<GM,GR>) playoutGameState, rewind);
+	    int numMoves = 0;
 	    while (!playoutGameState.isGameOver()) {
 	        GM nextMove = playoutPolicy.getPlayoutMove(playoutGameState);
 	        playoutGameState.applyMove(nextMove);
+	        ++numMoves;
+	    }
+	    GR gameResult = playoutGameState.getGameResult();
+	    if (rewind) {
+	        undoMoves(playoutGameState, numMoves);
+	    }
+	    return gameResult;
+	}
+
+	/**
+	 * Playout on encoded moves, which allocates nothing once the thread's move buffer exists.
+	 */
+	private <GR extends GameResult> GR playOutEncoded(IntMoveGameState<GM,GR> playoutGameState, boolean rewind) {
+	    int[] moveBuffer = MoveBuffers.get(playoutGameState.getMaxNumMoves());
+	    int numMoves = 0;
+	    while (!playoutGameState.isGameOver()) {
+	        playoutGameState.applyEncodedMove(playoutPolicy.getEncodedPlayoutMove(playoutGameState, moveBuffer));
+	        ++numMoves;
+	    }
+	    GR gameResult = playoutGameState.getGameResult();
+	    if (rewind) {
+	        undoMoves(playoutGameState, numMoves);
+	    }
+	    return gameResult;
+	}
+
+	private static void undoMoves(GameState<?,?> gameState, int numMoves) {
+	    ReversibleGameState<?,?> reversibleGameState = (ReversibleGameState<?,?>) gameState;
+	    for (int i=0; i < numMoves; ++i) {
+	        reversibleGameState.undoMove();
 	    }
-	    nodeResultsService.propagateGameResult(playoutGameState.getGameResult(), iterator);
-	    iterator.expandNode(expansionGameState);
 	}
 
 	@Override
@@ -75,7 +190,17 @@ public final class MonteCarloSearchService<GM extends GameMove, NR extends NodeR
 
 	@Override
 	public <GR extends GameResult, GS extends GameState<GM,GR>> void applyMove(GM move, GS resultingGameState) {
-	    searchTree.advanceTree(move, resultingGameState);
+	    searchRunner.applyMove(move, resultingGameState);
+	}
+
+	@Override
+	public <GR extends GameResult, GS extends GameState<GM,GR>> void startPondering(GS currentGameState) {
+	    searchRunner.startPondering(currentGameState);
+	}
+
+	@Override
+	public void stopPondering() {
+	    searchRunner.stopPondering();
 	}
 	
 	public <GR extends GameResult, GS extends GameState<GM,GR>> void logMoveChoices(GS rootGameState) {
@@ -84,7 +209,10 @@ public final class MonteCarloSearchService<GM extends GameMove, NR extends NodeR
         SearchTreeIterator<GM,NR> iterator = searchTree.iterator();
         while (iterator.hasNextChild()) {
             iterator.advanceChildNode();
-            String moveString = rootGameState.getHumanReadableMoveString(iterator.getCurrentChildMove());
+            if (!iterator.hasCurrentChildNode())
+                continue;
+            String moveString = rootGameState.getHumanReadableMoveString(
+                    searchTree.getRootMove(iterator.getCurrentChildMove()));
             NR nodeResults = iterator.getCurrentChildIterator().getCurrentNodeResults();
             LOGGER.debug("Move {} was visited in {} simulations and has score {}", 
                     moveString, 
@@ -1,55 +1,146 @@
 package com.github.sandorw.mocabogaso.ai.mcts;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-
-import org.apache.commons.lang3.tuple.Pair;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
-import com.google.common.collect.Lists;
-import com.google.common.collect.MapMaker;
+import com.github.sandorw.mocabogaso.games.SymmetricGameState;
+import com.google.common.collect.Maps;
 
 /**
  * Search tree of moves under consideration. Tracks the success of simulated games resulting from each
  * move via NodeResults created by the NodeResultsService that is passed in. Use the iterator method
- * to retrieve a SearchTreeIterator used to explore and operate on the tree.
+ * to retrieve a SearchTreeIterator used to explore and operate on the tree. Nodes and edges live in
+ * a NodeArena and are referenced by index, with the root always at index 0.
+ * 
+ * The arena is replaced by a compacted copy whenever the root advances or the tree is reconfigured,
+ * which callers do between searches so that no search writes to the old arena while it is copied. 
+ * Iterators keep working on the arena they were created from, and since the copy shares its 
+ * NodeResults, results propagated through an old iterator are not lost.
+ * 
+ * With lazy expansion, expanding a node only records each move with a prior from the 
+ * NodeResultsService, ordered best first, and a child node is created when selection first picks
+ * it. Progressive widening additionally limits selection to the first coefficient*n^exponent 
+ * children of a node with n simulations.
+ * 
+ * With symmetry hashing, nodes are keyed by the canonical hash of a SymmetricGameState, so that 
+ * all symmetric variants of a position share one node. The moves of a node's edges are then stored 
+ * in the canonical orientation of its position and are mapped to and from the orientation of the 
+ * game state being searched. Iterators only do this when selecting with a game state, and moves 
+ * read from an iterator stay canonical.
  *
  * @author sandorw
  */
 public final class MonteCarloSearchTree<GM extends GameMove, NR extends NodeResults> {
-	private volatile SearchTreeNode rootNode;
+    private static final int ROOT_NODE = 0;
+    private static final float PRUNED_BUDGET_FRACTION = 0.75f;
     private volatile int NODE_EXPAND_THRESHOLD = 5;
     private volatile float EXPLORATION_CONSTANT = 1.0f;
+    private volatile int VIRTUAL_LOSS = 0;
+    private volatile int NODE_BUDGET = Integer.MAX_VALUE;
+    private volatile boolean LAZY_EXPANSION = false;
+    private volatile float WIDENING_COEFFICIENT = 0.0f;
+    private volatile float WIDENING_EXPONENT = 0.5f;
+    private volatile boolean SYMMETRY_HASHING = false;
+    private volatile boolean EDGE_AMAF = false;
 	private final NodeResultsService<NR> nodeResultsService;
-	private final Map<Long, SearchTreeNode> transpositionTable;
+	private final List<String> playerNames;
+	private volatile long transpositionTableMemory;
+	private volatile NodeArena<GM,NR> nodeArena;
+	private volatile GameState<GM,?> rootGameState;
+	private final AtomicLong numCreatedNodes;
 	
 	public <GR extends GameResult, GS extends GameState<GM,GR>> 
 	        MonteCarloSearchTree(NodeResultsService<NR> nrService, GS initialGameState) {
-		rootNode = null;
 		nodeResultsService = nrService;
-		rootNode = new SearchTreeNode(null, initialGameState);
-		transpositionTable = new MapMaker()
-		        .weakValues()
-		        .makeMap();
+		playerNames = initialGameState.getAllPlayerNames();
+		transpositionTableMemory = TranspositionTable.DEFAULT_MEMORY_BYTES;
+		rootGameState = initialGameState.getCopy();
+		numCreatedNodes = new AtomicLong(0L);
+		nodeArena = newArena(null, initialGameState, 0);
 	}
 	
 	public GM getMostSimulatedMove() {
-	    return rootNode.getMostSimulatedChildMove();
+	    NodeArena<GM,NR> arena = nodeArena;
+	    if (!arena.isExpanded(ROOT_NODE))
+	        return null;
+	    GM mostSimulatedMove = null;
+	    int mostSimulations = -1;
+	    int numChildren = arena.getChildCount(ROOT_NODE);
+	    for (int i=0; i < numChildren; ++i) {
+	        int edge = arena.getChildEdge(ROOT_NODE, i);
+	        int numChildSimulations = getEdgeSimulations(arena, edge);
+	        if (numChildSimulations > mostSimulations) {
+	            mostSimulations = numChildSimulations;
+	            mostSimulatedMove = arena.getEdgeMove(edge);
+	        }
+	    }
+	    return (mostSimulatedMove == null ? null : getRootMove(mostSimulatedMove));
+	}
+	
+	public Map<GM,Integer> getRootChildSimulations() {
+	    NodeArena<GM,NR> arena = nodeArena;
+	    Map<GM,Integer> childSimulations = Maps.newLinkedHashMap();
+	    int numChildren = arena.getChildCount(ROOT_NODE);
+	    for (int i=0; i < numChildren; ++i) {
+	        int edge = arena.getChildEdge(ROOT_NODE, i);
+	        childSimulations.put(getRootMove(arena.getEdgeMove(edge)), getEdgeSimulations(arena, edge));
+	    }
+	    return childSimulations;
+	}
+	
+	/**
+	 * Simulation counts of the two most simulated children of the root, the most simulated first.
+	 */
+	public int[] getTopRootChildSimulations() {
+	    NodeArena<GM,NR> arena = nodeArena;
+	    int[] topSimulations = new int[2];
+	    int numChildren = arena.getChildCount(ROOT_NODE);
+	    for (int i=0; i < numChildren; ++i) {
+	        int numChildSimulations = getEdgeSimulations(arena, arena.getChildEdge(ROOT_NODE, i));
+	        if (numChildSimulations > topSimulations[0]) {
+	            topSimulations[1] = topSimulations[0];
+	            topSimulations[0] = numChildSimulations;
+	        } else if (numChildSimulations > topSimulations[1]) {
+	            topSimulations[1] = numChildSimulations;
+	        }
+	    }
+	    return topSimulations;
 	}
 	
+	/**
+	 * Maps a move of an edge from the root, as read from an iterator, to the orientation of the 
+	 * root game state.
+	 */
+	public GM getRootMove(GM move) {
+	    return fromTreeMove(rootGameState, move);
+	}
+	
+	/**
+	 * Moves the root to the node reached by the move and discards everything no longer reachable 
+	 * from it, including siblings only reachable through transpositions.
+	 */
 	public synchronized <GR extends GameResult, GS extends GameState<GM,GR>> 
 	        void advanceTree(GM move, GS resultingGameState) {
-	    SearchTreeNode newRoot = rootNode.findNodeWithMove(move);
-	    if (newRoot == null) {
-	        long zobristHash = resultingGameState.getZobristHash();
-            newRoot = new SearchTreeNode(move, resultingGameState);
-            transpositionTable.put(zobristHash, newRoot);
+	    NodeArena<GM,NR> arena = nodeArena;
+	    int newRoot = findChildWithMove(arena, ROOT_NODE, toTreeMove(rootGameState, move));
+	    if (newRoot == NodeArena.NONE) {
+	        newRoot = arena.getTranspositionTable().get(getNodeHash(resultingGameState));
+	    }
+	    rootGameState = resultingGameState.getCopy();
+	    if (newRoot == NodeArena.NONE) {
+	        nodeArena = newArena(move, resultingGameState, arena.getDepth(ROOT_NODE) + 1);
 	    } else {
-	        newRoot.removeParentNodes();
+	        nodeArena = compact(arena, newRoot, getPrunedBudget());
 	    }
-	    rootNode = newRoot;
 	}
 	
 	public void setNodeExpandThreshold(int threshold) {
@@ -60,118 +151,361 @@ public final class MonteCarloSearchTree<GM extends GameMove, NR extends NodeResu
 		EXPLORATION_CONSTANT = explorationConstant;
 	}
 	
+	/**
+	 * Sets the number of losing simulations temporarily added to each node on a selection path 
+	 * until its result is propagated. This steers concurrent searches on a shared tree apart.
+	 */
+	public void setVirtualLoss(int virtualLoss) {
+	    VIRTUAL_LOSS = virtualLoss;
+	}
+	
+	/**
+	 * Replaces the transposition table with one sized to fit in the given number of bytes, 
+	 * refilled with the nodes currently in the tree.
+	 */
+	public synchronized void setTranspositionTableMemory(long memoryBytes) {
+	    transpositionTableMemory = memoryBytes;
+	    nodeArena = compact(nodeArena, ROOT_NODE, NODE_BUDGET);
+	}
+	
+	/**
+	 * Caps the number of nodes kept in the tree. Nodes other than the root are not expanded once 
+	 * their children would take the tree over budget, and when the tree advances, the least 
+	 * simulated leaves are pruned until it is back at three quarters of the budget, leaving room for
+	 * the next search. Concurrent expansions may overshoot the budget slightly. The children of the 
+	 * root are always kept, so the budget should comfortably exceed the number of moves available in
+	 * a position.
+	 */
+	public synchronized void setNodeBudget(int maxNodes) {
+	    if (maxNodes < 1)
+	        throw new IllegalArgumentException("Node budget must be positive");
+	    NODE_BUDGET = maxNodes;
+	    if (nodeArena.getNodeCount() > maxNodes)
+	        nodeArena = compact(nodeArena, ROOT_NODE, getPrunedBudget());
+	}
+	
+	/**
+	 * Creates children only when selection first picks them. Applies to nodes expanded from now on.
+	 */
+	public void setLazyExpansion(boolean lazyExpansion) {
+	    LAZY_EXPANSION = lazyExpansion;
+	}
+	
+	/**
+	 * Limits selection to the first max(1, coefficient*(n+1)^exponent) children of a node with n 
+	 * simulations. A coefficient of 0 disables widening. Children are ordered by prior only with lazy
+	 * expansion, so widening is meant to be used along with it.
+	 */
+	public void setProgressiveWidening(float coefficient, float exponent) {
+	    WIDENING_EXPONENT = exponent;
+	    WIDENING_COEFFICIENT = coefficient;
+	}
+	
+	/**
+	 * Shares one node between all symmetric variants of a position, if the game implements 
+	 * SymmetricGameState. Changing this discards the tree, since moves are stored differently.
+	 */
+	public synchronized void setSymmetryHashing(boolean symmetryHashing) {
+	    SYMMETRY_HASHING = symmetryHashing && (rootGameState instanceof SymmetricGameState);
+	    nodeArena = newArena(null, rootGameState, nodeArena.getDepth(ROOT_NODE));
+	}
+	
+	/**
+	 * Keeps AMAF counts on the edges from a parent rather than in the NodeResults of the children,
+	 * so that the value of a child combines its NodeResults with the AMAF counts of the edge it is
+	 * selected through. AMAF updates are then made with SearchTreeIterator.applyAMAFGameResultToChildren.
+	 * Meant to be set before searching.
+	 */
+	public void setEdgeAMAF(boolean edgeAMAF) {
+	    EDGE_AMAF = edgeAMAF;
+	}
+	
+	public boolean isEdgeAMAF() {
+	    return EDGE_AMAF;
+	}
+	
+	public int getNumNodes() {
+	    return nodeArena.getNodeCount();
+	}
+	
+	/**
+	 * Number of nodes created since the tree was constructed. Unlike getNumNodes, this is not 
+	 * reduced by pruning or by advancing the tree.
+	 */
+	public long getNumCreatedNodes() {
+	    return numCreatedNodes.get();
+	}
+	
 	public SearchTreeIterator<GM,NR> iterator() {
-	    return new SearchTreeIterator<>(rootNode);
+	    return new SearchTreeIterator<>(this, nodeArena, ROOT_NODE);
+	}
+	
+	private <GR extends GameResult, GS extends GameState<GM,GR>> NodeArena<GM,NR> newArena(GM move, 
+	        GS rootGameState, int depth) {
+	    NodeArena<GM,NR> arena = new NodeArena<>(transpositionTableMemory);
+	    long zobristHash = getNodeHash(rootGameState);
+	    arena.getTranspositionTable().getOrInsert(zobristHash, 
+	            () -> newNode(arena, move, rootGameState, depth, zobristHash));
+	    return arena;
+	}
+	
+	private long getNodeHash(GameState<GM,?> gameState) {
+	    if (SYMMETRY_HASHING)
+	        return ((SymmetricGameState<GM,?>) gameState).getCanonicalZobristHash();
+	    return gameState.getZobristHash();
 	}
 	
 	/**
-	 * Individual node within the search tree. Contains NodeResults containing information about
-	 * the success rate of this state. Edges leading to other nodes include the move used to 
-	 * get there.
-	 *
-	 * @author sandorw
+	 * Maps a move in the orientation of the game state to the move stored for it in the tree.
 	 */
-	private final class SearchTreeNode {
-		private final List<Pair<GM,SearchTreeNode>> parentNodes;
-		private volatile boolean expanded;
-		private final List<Pair<GM,SearchTreeNode>> childNodes;
-		private final NR nodeResults;
-		
-        private <GR extends GameResult, GS extends GameState<GM,GR>>
-        		SearchTreeNode(GM move, GS initialGameState) {
-            parentNodes = Lists.newArrayList();
-        	expanded = false;
-        	childNodes = Lists.newArrayList();
-        	nodeResults = nodeResultsService.getNewNodeResults(move, initialGameState);
-        }
-        
-        private void addParentNode(GM moveMade, SearchTreeNode parent) {
-            parentNodes.add(Pair.of(moveMade, parent));
-        }
-        
-        private void removeParentNodes() {
-            parentNodes.clear();
-        }
-        
-        private float getValue(String evaluatingPlayerName, int numParentSimulations) {
-            return nodeResults.getValue(evaluatingPlayerName) +
-                    getExplorationValue(numParentSimulations);
-        }
-
-        private float getExplorationValue(int numParentSimulations) {
-            return EXPLORATION_CONSTANT*(float)Math.sqrt(Math.log(numParentSimulations+1)/(getNumSimulations()+1));
-        }
-        
-        private int getNumSimulations() {
-            return nodeResults.getNumSimulations();
-        }
-
-        private synchronized <GR extends GameResult, GS extends GameState<GM,GR>> void expandNode(GS gameState) {
-            if (!expanded && !gameState.isGameOver() &&
-                    ((getNumSimulations() >= NODE_EXPAND_THRESHOLD) || (this == rootNode))) {
-                for (GM move : gameState.getAllValidMoves()) {
-                    @SuppressWarnings("unchecked")
-                    GS resultingGameState = (GS) gameState.getCopy();
-                    resultingGameState.applyMove(move);
-                    long zobristHash = resultingGameState.getZobristHash();
-                    SearchTreeNode childNode = null;
-                    if (transpositionTable.containsKey(zobristHash)) {
-                        childNode = transpositionTable.get(zobristHash);
-                    }
-                    if (childNode == null) {
-                        childNode = new SearchTreeNode(move, gameState);
-                        transpositionTable.put(zobristHash, childNode);
-                    }
-                    childNode.addParentNode(move, this);
-                    childNodes.add(Pair.of(move, childNode));
-                }
-                expanded = true;
-            }
-        }
-
-        private GM getMostSimulatedChildMove() {
-            if (!expanded)
-                return null;
-            GM mostSimulatedMove = null;
-            int mostSimulations = -1;
-            for (Pair<GM,SearchTreeNode> pair : childNodes) {
-                int numChildSimulations = pair.getRight().getNumSimulations();
-                if (numChildSimulations > mostSimulations) {
-                    mostSimulations = numChildSimulations;
-                    mostSimulatedMove = pair.getLeft();
-                }
-            }
-            return mostSimulatedMove;
-        }
-        
-        private Pair<GM,SearchTreeNode> getHighestValueChildPair(String evaluatingPlayerName) {
-            if (!expanded)
-                return null;
-            int numParentSimulations = getNumSimulations();
-            Pair<GM,SearchTreeNode> bestPair = null;
-            float highestValue = Float.NEGATIVE_INFINITY;
-            for (Pair<GM,SearchTreeNode> pair : childNodes) {
-                float value = pair.getRight().getValue(evaluatingPlayerName, numParentSimulations);
-                if (value > highestValue) {
-                    highestValue = value;
-                    bestPair = pair;
-                }
-            }
-            return bestPair;
-        }
-        
-        private SearchTreeNode findNodeWithMove(GM move) {
-            if (!expanded)
-                return null;
-            SearchTreeNode node = null;
-            for (Pair<GM,SearchTreeNode> pair : childNodes) {
-                if (move.equals(pair.getLeft())) {
-                    node = pair.getRight();
-                    break;
-                }
-            }
-            return node;
-        }
+	private GM toTreeMove(GameState<GM,?> gameState, GM move) {
+	    if (SYMMETRY_HASHING)
+	        return ((SymmetricGameState<GM,?>) gameState).toCanonicalMove(move);
+	    return move;
+	}
+	
+	private GM fromTreeMove(GameState<GM,?> gameState, GM move) {
+	    if (SYMMETRY_HASHING)
+	        return ((SymmetricGameState<GM,?>) gameState).fromCanonicalMove(move);
+	    return move;
+	}
+	
+	private <GR extends GameResult, GS extends GameState<GM,GR>> int newNode(NodeArena<GM,NR> arena, GM move, 
+	        GS gameState, int depth, long zobristHash) {
+	    numCreatedNodes.incrementAndGet();
+	    return arena.addNode(nodeResultsService.getNewNodeResults(move, gameState), depth, zobristHash);
+	}
+	
+	private int getPrunedBudget() {
+	    return Math.max((int)(NODE_BUDGET*PRUNED_BUDGET_FRACTION), 1);
+	}
+	
+	/**
+	 * Copies the subtree below the given node into a new arena, in which it becomes the root. Child
+	 * blocks are copied from the most simulated node down for as long as they fit within maxNodes,
+	 * except for those of the root which are always copied. Nodes whose children do not fit are 
+	 * copied unexpanded, which prunes the least simulated leaves first.
+	 */
+	private NodeArena<GM,NR> compact(NodeArena<GM,NR> source, int sourceRoot, int maxNodes) {
+	    NodeArena<GM,NR> target = new NodeArena<>(transpositionTableMemory);
+	    int[] copies = new int[source.getNodeCount()];
+	    Arrays.fill(copies, NodeArena.NONE);
+	    copies[sourceRoot] = copyNode(source, sourceRoot, target);
+	    int numNodes = 1;
+	    PriorityQueue<Long> expandedNodes = new PriorityQueue<>(Collections.reverseOrder());
+	    if (source.getChildCount(sourceRoot) > 0)
+	        expandedNodes.add(getCompactionKey(source, sourceRoot));
+	    while (!expandedNodes.isEmpty()) {
+	        int node = (int)expandedNodes.poll().longValue();
+	        int numChildren = source.getChildCount(node);
+	        if (node != sourceRoot) {
+	            int numNewChildren = 0;
+	            for (int i=0; i < numChildren; ++i) {
+	                int child = source.getEdgeChild(source.getChildEdge(node, i));
+	                if ((child != NodeArena.NONE) && ((child >= copies.length) || (copies[child] == NodeArena.NONE)))
+	                    ++numNewChildren;
+	            }
+	            if (numNodes + numNewChildren > maxNodes)
+	                continue;
+	        }
+	        int firstEdge = target.allocateEdges(numChildren);
+	        for (int i=0; i < numChildren; ++i) {
+	            int sourceEdge = source.getChildEdge(node, i);
+	            int child = source.getEdgeChild(sourceEdge);
+	            int edge = firstEdge + i;
+	            target.setEdgePrior(edge, source.getEdgePrior(sourceEdge));
+	            long amafWins = source.getEdgeAMAFWins(sourceEdge);
+	            target.setEdgeAMAFCounts(edge, source.getEdgeAMAFSimulations(sourceEdge), amafWins);
+	            if (child == NodeArena.NONE) {
+	                target.setEdge(edge, source.getEdgeMove(sourceEdge), copies[node], NodeArena.NONE);
+	                continue;
+	            }
+	            if (child >= copies.length) {
+	                int oldLength = copies.length;
+	                copies = Arrays.copyOf(copies, source.getNodeCount());
+	                Arrays.fill(copies, oldLength, copies.length, NodeArena.NONE);
+	            }
+	            if (copies[child] == NodeArena.NONE) {
+	                copies[child] = copyNode(source, child, target);
+	                ++numNodes;
+	                if (source.getChildCount(child) > 0)
+	                    expandedNodes.add(getCompactionKey(source, child));
+	            }
+	            target.setEdge(edge, source.getEdgeMove(sourceEdge), copies[node], copies[child]);
+	            target.addParentEdge(copies[child], edge);
+	        }
+	        target.publishChildren(copies[node], firstEdge, numChildren);
+	    }
+	    return target;
+	}
+	
+	private static <GM extends GameMove, NR extends NodeResults> int copyNode(NodeArena<GM,NR> source, int node, 
+	        NodeArena<GM,NR> target) {
+	    long zobristHash = source.getZobristHash(node);
+	    int copy = target.addNode(source.getNodeResults(node), source.getDepth(node), zobristHash);
+	    target.getTranspositionTable().getOrInsert(zobristHash, () -> copy);
+	    return copy;
+	}
+	
+	/**
+	 * Orders expanded nodes by simulation count, sampled once so the queue stays consistent while
+	 * other threads keep searching.
+	 */
+	private static long getCompactionKey(NodeArena<?,?> arena, int node) {
+	    return ((long)getNumSimulations(arena, node) << 32) | node;
+	}
+	
+	private static int getNumSimulations(NodeArena<?,?> arena, int node) {
+	    return arena.getNodeResults(node).getNumSimulations();
+	}
+	
+	private static int getEdgeSimulations(NodeArena<?,?> arena, int edge) {
+	    int child = arena.getEdgeChild(edge);
+	    return (child == NodeArena.NONE ? 0 : getNumSimulations(arena, child));
+	}
+	
+	private float getEdgeValue(NodeArena<GM,NR> arena, int edge, int evaluatingPlayerIndex, int numParentSimulations) {
+	    int child = arena.getEdgeChild(edge);
+	    if (child == NodeArena.NONE) {
+	        return arena.getEdgePrior(edge) + EXPLORATION_CONSTANT*(float)Math.sqrt(Math.log(numParentSimulations+1));
+	    }
+	    int numVirtualLosses = arena.getVirtualLosses(child);
+	    int numSimulations = getNumSimulations(arena, child);
+	    NR nodeResults = arena.getNodeResults(child);
+	    float value;
+	    if (EDGE_AMAF) {
+	        long amafWins = arena.getEdgeAMAFWins(edge);
+	        value = nodeResults.getValue(evaluatingPlayerIndex, arena.getEdgeAMAFSimulations(edge), amafWins);
+	    } else {
+	        value = nodeResults.getValue(evaluatingPlayerIndex);
+	    }
+	    if (numVirtualLosses > 0) {
+	        value = value*numSimulations/(numSimulations + numVirtualLosses);
+	    }
+	    return value + EXPLORATION_CONSTANT*(float)Math.sqrt(Math.log(numParentSimulations+1)/
+	            (numSimulations+numVirtualLosses+1));
+	}
+	
+	private <GR extends GameResult, GS extends GameState<GM,GR>> void expandNode(NodeArena<GM,NR> arena, int node, 
+	        GS gameState) {
+	    if (arena.isExpanded(node) || gameState.isGameOver())
+	        return;
+	    if ((getNumSimulations(arena, node) < NODE_EXPAND_THRESHOLD) && (node != ROOT_NODE))
+	        return;
+	    if ((arena.getNodeCount() >= NODE_BUDGET) && (node != ROOT_NODE))
+	        return;
+	    List<GM> moves = gameState.getAllValidMoves();
+	    int numNewNodes = (LAZY_EXPANSION ? 1 : moves.size());
+	    if ((arena.getNodeCount() + numNewNodes > NODE_BUDGET) && (node != ROOT_NODE))
+	        return;
+	    if (!arena.tryClaimExpansion(node))
+	        return;
+	    int firstEdge = arena.allocateEdges(moves.size());
+	    if (LAZY_EXPANSION) {
+	        addUnexpandedChildren(arena, node, gameState, moves, firstEdge);
+	    } else {
+	        addChildren(arena, node, gameState, moves, firstEdge);
+	    }
+	    arena.publishChildren(node, firstEdge, moves.size());
+	}
+	
+	private <GR extends GameResult, GS extends GameState<GM,GR>> void addChildren(NodeArena<GM,NR> arena, int node, 
+	        GS gameState, List<GM> moves, int firstEdge) {
+	    int childDepth = arena.getDepth(node) + 1;
+	    TranspositionTable table = arena.getTranspositionTable();
+	    for (int i=0; i < moves.size(); ++i) {
+	        GM move = moves.get(i);
+	        @SuppressWarnings("unchecked")
+	        GS resultingGameState = (GS) gameState.getCopy();
+	        resultingGameState.applyMove(move);
+	        long zobristHash = getNodeHash(resultingGameState);
+	        int childNode = table.getOrInsert(zobristHash, 
+	                () -> newNode(arena, move, gameState, childDepth, zobristHash));
+	        int edge = firstEdge + i;
+	        arena.setEdge(edge, toTreeMove(gameState, move), node, childNode);
+	        arena.addParentEdge(childNode, edge);
+	    }
+	}
+	
+	private <GR extends GameResult, GS extends GameState<GM,GR>> void addUnexpandedChildren(NodeArena<GM,NR> arena, 
+	        int node, GS gameState, List<GM> moves, int firstEdge) {
+	    float[] priors = nodeResultsService.getMovePriors(moves, gameState);
+	    Integer[] order = new Integer[moves.size()];
+	    for (int i=0; i < moves.size(); ++i) {
+	        order[i] = i;
+	    }
+	    Arrays.sort(order, Comparator.comparingDouble(i -> -priors[i]));
+	    for (int i=0; i < moves.size(); ++i) {
+	        int edge = firstEdge + i;
+	        arena.setEdge(edge, toTreeMove(gameState, moves.get(order[i])), node, NodeArena.NONE);
+	        arena.setEdgePrior(edge, priors[order[i]]);
+	    }
+	}
+	
+	/**
+	 * Returns the child node of the edge, creating it from the game state at the parent if this is
+	 * its first visit. Threads materializing the same edge hold the insert lock of the child's hash,
+	 * so they all get the node of the first one.
+	 */
+	private <GR extends GameResult, GS extends GameState<GM,GR>> int materializeChild(NodeArena<GM,NR> arena, 
+	        int edge, GS gameState) {
+	    int child = arena.getEdgeChild(edge);
+	    if (child != NodeArena.NONE)
+	        return child;
+	    if (gameState == null)
+	        throw new IllegalStateException("The game state is required to select a child that has not been created");
+	    GM move = fromTreeMove(gameState, arena.getEdgeMove(edge));
+	    @SuppressWarnings("unchecked")
+	    GS resultingGameState = (GS) gameState.getCopy();
+	    resultingGameState.applyMove(move);
+	    long zobristHash = getNodeHash(resultingGameState);
+	    int childDepth = arena.getDepth(arena.getEdgeParent(edge)) + 1;
+	    TranspositionTable table = arena.getTranspositionTable();
+	    synchronized (table.getInsertLock(zobristHash)) {
+	        child = arena.getEdgeChild(edge);
+	        if (child != NodeArena.NONE)
+	            return child;
+	        child = table.getOrInsert(zobristHash, () -> newNode(arena, move, gameState, childDepth, zobristHash));
+	        arena.setEdgeChild(edge, child);
+	        arena.addParentEdge(child, edge);
+	    }
+	    return child;
+	}
+	
+	private int getHighestValueChildEdge(NodeArena<GM,NR> arena, int node, int evaluatingPlayerIndex) {
+	    int numSimulations = getNumSimulations(arena, node);
+	    int numParentSimulations = numSimulations + arena.getVirtualLosses(node);
+	    int bestEdge = NodeArena.NONE;
+	    float highestValue = Float.NEGATIVE_INFINITY;
+	    int numChildren = getNumSelectableChildren(arena.getChildCount(node), numSimulations);
+	    for (int i=0; i < numChildren; ++i) {
+	        int edge = arena.getChildEdge(node, i);
+	        float value = getEdgeValue(arena, edge, evaluatingPlayerIndex, numParentSimulations);
+	        if (value > highestValue) {
+	            highestValue = value;
+	            bestEdge = edge;
+	        }
+	    }
+	    return bestEdge;
+	}
+	
+	private int getNumSelectableChildren(int numChildren, int numSimulations) {
+	    float coefficient = WIDENING_COEFFICIENT;
+	    if (coefficient <= 0.0f)
+	        return numChildren;
+	    int numWidenedChildren = (int)(coefficient*Math.pow(numSimulations+1, WIDENING_EXPONENT));
+	    return Math.min(numChildren, Math.max(numWidenedChildren, 1));
+	}
+	
+	private static int findChildWithMove(NodeArena<?,?> arena, int node, GameMove move) {
+	    int numChildren = arena.getChildCount(node);
+	    for (int i=0; i < numChildren; ++i) {
+	        int edge = arena.getChildEdge(node, i);
+	        if (move.equals(arena.getEdgeMove(edge))) {
+	            return arena.getEdgeChild(edge);
+	        }
+	    }
+	    return NodeArena.NONE;
 	}
 	
 	/**
@@ -182,45 +516,162 @@ public final class MonteCarloSearchTree<GM extends GameMove, NR extends NodeResu
 	 * @author sandorw
 	 */
 	public static final class SearchTreeIterator<GM extends GameMove, NR extends NodeResults> {
-	    private MonteCarloSearchTree<GM,NR>.SearchTreeNode currentNode;
+	    private static final int BEFORE_FIRST_PARENT = -2;
+	    
+	    private final MonteCarloSearchTree<GM,NR> searchTree;
+	    private final NodeArena<GM,NR> nodeArena;
+	    private int currentNode;
 	    private int currentChildIndex;
-	    private int currentParentIndex;
+	    private int currentParentEdge;
+	    private int[] virtualLossPath;
+	    private int virtualLossPathLength;
+	    private int appliedVirtualLoss;
+	    private final int startingNode;
+	    private int[] selectionPath;
+	    private int selectionPathLength;
 	    
-	    private SearchTreeIterator(MonteCarloSearchTree<GM,NR>.SearchTreeNode startingNode) {
+	    private SearchTreeIterator(MonteCarloSearchTree<GM,NR> searchTree, NodeArena<GM,NR> nodeArena, 
+	            int startingNode) {
+	        this.searchTree = searchTree;
+	        this.nodeArena = nodeArena;
+	        this.startingNode = startingNode;
 	        currentNode = startingNode;
+	        selectionPath = null;
+	        selectionPathLength = 0;
+	        virtualLossPath = null;
+	        virtualLossPathLength = 0;
+	        appliedVirtualLoss = searchTree.VIRTUAL_LOSS;
 	        resetIndices();
 	    }
 	    
 	    private void resetIndices() {
 	        currentChildIndex = -1;
-	        currentParentIndex = -1;
+	        currentParentEdge = BEFORE_FIRST_PARENT;
 	    }
 	    
 	    public boolean hasNext() {
-	        return ((currentNode.expanded) && (!currentNode.childNodes.isEmpty()));
+	        return (nodeArena.getChildCount(currentNode) > 0);
 	    }
 	    
 	    public boolean hasNextChild() {
-	        return (currentChildIndex < currentNode.childNodes.size()-1);
+	        return (currentChildIndex < nodeArena.getChildCount(currentNode)-1);
 	    }
 	    
 	    public boolean hasNextParent() {
-	        return (currentParentIndex < currentNode.parentNodes.size()-1);
+	        return (peekNextParentEdge() != NodeArena.NONE);
+	    }
+	    
+	    private int peekNextParentEdge() {
+	        if (currentParentEdge == BEFORE_FIRST_PARENT)
+	            return nodeArena.getFirstParentEdge(currentNode);
+	        return nodeArena.getNextParentEdge(currentParentEdge);
 	    }
 	    
 	    public GM advanceToNextExplorationNode(String evaluatingPlayerName) {
-	        Pair<GM,MonteCarloSearchTree<GM,NR>.SearchTreeNode> pair = currentNode.getHighestValueChildPair(evaluatingPlayerName);
-	        currentNode = pair.getRight();
+	        return advanceToNextExplorationNode(searchTree.playerNames.indexOf(evaluatingPlayerName));
+	    }
+	    
+	    public GM advanceToNextExplorationNode(int evaluatingPlayerIndex) {
+	        return advanceToNextExplorationNode(evaluatingPlayerIndex, null);
+	    }
+	    
+	    /**
+	     * Selects the next node to explore for the player to move in the game state, which must be the
+	     * state at the current node. Unlike the other variants, this can create lazily expanded children.
+	     */
+	    public <GR extends GameResult, GS extends GameState<GM,GR>> GM advanceToNextExplorationNode(GS gameState) {
+	        return advanceToNextExplorationNode(gameState.getNextPlayerIndex(), gameState);
+	    }
+	    
+	    private <GR extends GameResult, GS extends GameState<GM,GR>> GM advanceToNextExplorationNode(
+	            int evaluatingPlayerIndex, GS gameState) {
+	        if ((appliedVirtualLoss > 0) && (virtualLossPath == null)) {
+	            virtualLossPath = new int[8];
+	            addVirtualLoss(currentNode);
+	        }
+	        int edge = searchTree.getHighestValueChildEdge(nodeArena, currentNode, evaluatingPlayerIndex);
+	        currentNode = searchTree.materializeChild(nodeArena, edge, gameState);
+	        addSelectedEdge(edge);
+	        if (appliedVirtualLoss > 0) {
+	            addVirtualLoss(currentNode);
+	        }
+	        resetIndices();
+	        GM move = nodeArena.getEdgeMove(edge);
+	        return (gameState == null ? move : searchTree.fromTreeMove(gameState, move));
+	    }
+	    
+	    private void addVirtualLoss(int node) {
+	        nodeArena.addVirtualLoss(node, appliedVirtualLoss);
+	        if (virtualLossPathLength == virtualLossPath.length) {
+	            virtualLossPath = Arrays.copyOf(virtualLossPath, 2*virtualLossPathLength);
+	        }
+	        virtualLossPath[virtualLossPathLength++] = node;
+	    }
+	    
+	    private void addSelectedEdge(int edge) {
+	        if (selectionPath == null) {
+	            selectionPath = new int[8];
+	        } else if (selectionPathLength == selectionPath.length) {
+	            selectionPath = Arrays.copyOf(selectionPath, 2*selectionPathLength);
+	        }
+	        selectionPath[selectionPathLength++] = edge;
+	    }
+	    
+	    /**
+	     * Number of moves selected through this iterator with advanceToNextExplorationNode.
+	     */
+	    public int getSelectionPathLength() {
+	        return selectionPathLength;
+	    }
+	    
+	    /**
+	     * Iterator at the node reached after the given number of selected moves, from 0 for the node
+	     * this iterator started at up to getSelectionPathLength for the current node.
+	     */
+	    public SearchTreeIterator<GM,NR> getSelectionPathIterator(int numMoves) {
+	        return new SearchTreeIterator<>(searchTree, nodeArena, getSelectionPathNode(numMoves));
+	    }
+	    
+	    /**
+	     * Moves this iterator to the node reached after the given number of moves selected through 
+	     * the path iterator, so that a path can be walked without creating an iterator per node.
+	     */
+	    public void moveToSelectionPathNode(SearchTreeIterator<GM,NR> pathIterator, int numMoves) {
+	        currentNode = pathIterator.getSelectionPathNode(numMoves);
 	        resetIndices();
-	        return pair.getLeft();
+	    }
+	    
+	    private int getSelectionPathNode(int numMoves) {
+	        return (numMoves == 0 ? startingNode : nodeArena.getEdgeChild(selectionPath[numMoves-1]));
+	    }
+	    
+	    /**
+	     * The move selected after the given number of previously selected moves, as stored in the tree.
+	     */
+	    public GM getSelectionPathMove(int numMoves) {
+	        return nodeArena.getEdgeMove(selectionPath[numMoves]);
+	    }
+	    
+	    /**
+	     * Removes the virtual loss applied to every node selected through this iterator. Call once
+	     * the simulation result has been propagated.
+	     */
+	    public void revertVirtualLoss() {
+	        if (virtualLossPath != null) {
+	            for (int i=0; i < virtualLossPathLength; ++i) {
+	                nodeArena.addVirtualLoss(virtualLossPath[i], -appliedVirtualLoss);
+	            }
+	            virtualLossPath = null;
+	            virtualLossPathLength = 0;
+	        }
 	    }
 	    
 	    public <GR extends GameResult, GS extends GameState<GM,GR>> void expandNode(GS gameState) {
-	        currentNode.expandNode(gameState);
+	        searchTree.expandNode(nodeArena, currentNode, gameState);
 	    }
 	    
 	    public NR getCurrentNodeResults() {
-	        return currentNode.nodeResults;
+	        return nodeArena.getNodeResults(currentNode);
 	    }
 	    
 	    public void advanceChildNode() {
@@ -228,23 +679,70 @@ public final class MonteCarloSearchTree<GM extends GameMove, NR extends NodeResu
 	    }
 	    
 	    public void advanceParentNode() {
-	        ++currentParentIndex;
+	        currentParentEdge = peekNextParentEdge();
+	    }
+	    
+	    /**
+	     * Whether the node for the current child exists. Lazily expanded children only have a move 
+	     * and a prior until they are first selected.
+	     */
+	    public boolean hasCurrentChildNode() {
+	        return (nodeArena.getEdgeChild(getCurrentChildEdge()) != NodeArena.NONE);
+	    }
+	    
+	    /**
+	     * NodeResults of the current child, which must exist. Same as those of the child iterator, 
+	     * without creating one.
+	     */
+	    public NR getCurrentChildNodeResults() {
+	        return nodeArena.getNodeResults(nodeArena.getEdgeChild(getCurrentChildEdge()));
+	    }
+	    
+	    public boolean isEdgeAMAF() {
+	        return searchTree.isEdgeAMAF();
+	    }
+	    
+	    /**
+	     * Adds the game result to the AMAF counts of the edges to every child whose move was played, 
+	     * for trees with edge AMAF.
+	     */
+	    public void applyAMAFGameResultToChildren(GameResult gameResult, Predicate<GM> isPlayed) {
+	        int numChildren = nodeArena.getChildCount(currentNode);
+	        boolean isTie = gameResult.isTie();
+	        int winningPlayerIndex = gameResult.getWinningPlayerIndex();
+	        for (int i=0; i < numChildren; ++i) {
+	            int edge = nodeArena.getChildEdge(currentNode, i);
+	            if (isPlayed.test(nodeArena.getEdgeMove(edge))) {
+	                nodeArena.addEdgeAMAFResult(edge, isTie, winningPlayerIndex);
+	            }
+	        }
+	    }
+	    
+	    /**
+	     * AMAF simulations counted on the edge to the current child, for trees with edge AMAF.
+	     */
+	    public int getCurrentChildAMAFSimulations() {
+	        return nodeArena.getEdgeAMAFSimulations(getCurrentChildEdge());
 	    }
 	    
 	    public SearchTreeIterator<GM,NR> getCurrentChildIterator() {
-	        return new SearchTreeIterator<>(currentNode.childNodes.get(currentChildIndex).getRight());
+	        return new SearchTreeIterator<>(searchTree, nodeArena, nodeArena.getEdgeChild(getCurrentChildEdge()));
 	    }
 	    
 	    public GM getCurrentChildMove() {
-	        return currentNode.childNodes.get(currentChildIndex).getLeft();
+	        return nodeArena.getEdgeMove(getCurrentChildEdge());
+	    }
+	    
+	    private int getCurrentChildEdge() {
+	        return nodeArena.getChildEdge(currentNode, currentChildIndex);
 	    }
 	    
 	    public SearchTreeIterator<GM,NR> getCurrentParentIterator() {
-	        return new SearchTreeIterator<>(currentNode.parentNodes.get(currentParentIndex).getRight());
+	        return new SearchTreeIterator<>(searchTree, nodeArena, nodeArena.getEdgeParent(currentParentEdge));
 	    }
 	    
 	    public GM getCurrentParentMove() {
-	        return currentNode.parentNodes.get(currentParentIndex).getLeft();
+	        return nodeArena.getEdgeMove(currentParentEdge);
 	    }
 	}
 }
@@ -0,0 +1,26 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+/**
+ * Per-thread int buffers for the encoded moves of playouts, so that a playout does not allocate 
+ * its move buffer. A buffer is only valid until the next call on the same thread.
+ *
+ * @author sandorw
+ */
+public final class MoveBuffers {
+    private static final ThreadLocal<int[]> MOVE_BUFFER = ThreadLocal.withInitial(() -> new int[0]);
+
+    private MoveBuffers() {
+    }
+
+    /**
+     * The buffer of the calling thread, grown to at least the given length.
+     */
+    public static int[] get(int minLength) {
+        int[] moveBuffer = MOVE_BUFFER.get();
+        if (moveBuffer.length < minLength) {
+            moveBuffer = new int[minLength];
+            MOVE_BUFFER.set(moveBuffer);
+        }
+        return moveBuffer;
+    }
+}
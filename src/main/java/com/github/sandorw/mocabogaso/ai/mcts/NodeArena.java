@@ -0,0 +1,319 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.github.sandorw.mocabogaso.games.GameMove;
+
+/**
+ * Array backed storage for the nodes and edges of a MonteCarloSearchTree. Nodes and edges are
+ * identified by int indices into chunked primitive arrays, and the children of a node occupy one
+ * contiguous block of edges. Parent edges of a node form a linked list through the edge arrays so
+ * that transpositions can add parents without reallocating. An edge may point to a NONE child until
+ * the child node is first needed, in which case the edge prior stands in for the child's value.
+ *
+ * Indices are handed out by bump allocation and chunks are only ever appended, so readers never need
+ * to lock. The children of a node are published by the volatile write of its child count. Each
+ * arena owns the TranspositionTable indexing its nodes, so that the two are always replaced together.
+ * Edges can also hold AMAF counts for their child, so that AMAF updates are a loop over the edge
+ * block of the parent.
+ * 
+ * Node statistics stay in the NodeResults objects made by the NodeResultsService, since their 
+ * contents are up to each implementation, and edge moves are references to GameMoves, which games 
+ * with a move table share between all of their states.
+ *
+ * @author sandorw
+ */
+final class NodeArena<GM extends GameMove, NR extends NodeResults> {
+    static final int NONE = -1;
+    private static final int NOT_EXPANDED = -1;
+    private static final int EXPANDING = -2;
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final AtomicInteger nodeCount;
+    private final AtomicInteger edgeCount;
+    private volatile Object[][] nodeResults;
+    private volatile int[][] depths;
+    private volatile long[][] zobristHashes;
+    private volatile AtomicIntegerArray[] childCounts;
+    private volatile int[][] firstChildEdges;
+    private volatile AtomicIntegerArray[] parentEdgeHeads;
+    private volatile AtomicIntegerArray[] virtualLosses;
+    private volatile Object[][] edgeMoves;
+    private volatile int[][] edgeParents;
+    private volatile float[][] edgePriors;
+    private volatile AtomicIntegerArray[] edgeChildren;
+    private volatile int[][] nextParentEdges;
+    private volatile AtomicIntegerArray[] edgeAMAFSimulations;
+    private volatile AtomicLongArray[] edgeAMAFWins;
+    private final TranspositionTable transpositionTable;
+
+    NodeArena() {
+        this(TranspositionTable.DEFAULT_MEMORY_BYTES);
+    }
+
+    NodeArena(long transpositionTableMemory) {
+        nodeCount = new AtomicInteger(0);
+        edgeCount = new AtomicInteger(0);
+        nodeResults = new Object[0][];
+        depths = new int[0][];
+        zobristHashes = new long[0][];
+        childCounts = new AtomicIntegerArray[0];
+        firstChildEdges = new int[0][];
+        parentEdgeHeads = new AtomicIntegerArray[0];
+        virtualLosses = new AtomicIntegerArray[0];
+        edgeMoves = new Object[0][];
+        edgeParents = new int[0][];
+        edgePriors = new float[0][];
+        edgeChildren = new AtomicIntegerArray[0];
+        nextParentEdges = new int[0][];
+        edgeAMAFSimulations = new AtomicIntegerArray[0];
+        edgeAMAFWins = new AtomicLongArray[0];
+        transpositionTable = new TranspositionTable(transpositionTableMemory, this);
+    }
+
+    TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    int getNodeCount() {
+        return nodeCount.get();
+    }
+
+    int getEdgeCount() {
+        return edgeCount.get();
+    }
+
+    int addNode(NR results, int depth, long zobristHash) {
+        int node = nodeCount.getAndIncrement();
+        ensureNodeCapacity(node);
+        nodeResults[chunk(node)][offset(node)] = results;
+        depths[chunk(node)][offset(node)] = depth;
+        zobristHashes[chunk(node)][offset(node)] = zobristHash;
+        return node;
+    }
+    
+    int getDepth(int node) {
+        return depths[chunk(node)][offset(node)];
+    }
+
+    long getZobristHash(int node) {
+        return zobristHashes[chunk(node)][offset(node)];
+    }
+
+    @SuppressWarnings("unchecked")
+    NR getNodeResults(int node) {
+        return (NR) nodeResults[chunk(node)][offset(node)];
+    }
+
+    boolean isExpanded(int node) {
+        return childCounts[chunk(node)].get(offset(node)) >= 0;
+    }
+
+    /**
+     * Claims the right to expand the node. Only one caller can succeed, and it must follow up with
+     * publishChildren.
+     */
+    boolean tryClaimExpansion(int node) {
+        return childCounts[chunk(node)].compareAndSet(offset(node), NOT_EXPANDED, EXPANDING);
+    }
+
+    void publishChildren(int node, int firstEdge, int numChildren) {
+        firstChildEdges[chunk(node)][offset(node)] = firstEdge;
+        childCounts[chunk(node)].set(offset(node), numChildren);
+    }
+
+    int getChildCount(int node) {
+        return Math.max(childCounts[chunk(node)].get(offset(node)), 0);
+    }
+
+    int getChildEdge(int node, int childIndex) {
+        return firstChildEdges[chunk(node)][offset(node)] + childIndex;
+    }
+
+    int getVirtualLosses(int node) {
+        return virtualLosses[chunk(node)].get(offset(node));
+    }
+
+    void addVirtualLoss(int node, int virtualLoss) {
+        virtualLosses[chunk(node)].addAndGet(offset(node), virtualLoss);
+    }
+
+    /**
+     * Reserves a contiguous block of edges and returns the index of the first one.
+     */
+    int allocateEdges(int numEdges) {
+        int firstEdge = edgeCount.getAndAdd(numEdges);
+        if (numEdges > 0)
+            ensureEdgeCapacity(firstEdge + numEdges - 1);
+        return firstEdge;
+    }
+
+    void setEdge(int edge, GM move, int parent, int child) {
+        edgeMoves[chunk(edge)][offset(edge)] = move;
+        edgeParents[chunk(edge)][offset(edge)] = parent;
+        edgeChildren[chunk(edge)].set(offset(edge), child);
+    }
+
+    /**
+     * Sets the child of an edge created with a NONE child.
+     */
+    void setEdgeChild(int edge, int child) {
+        edgeChildren[chunk(edge)].set(offset(edge), child);
+    }
+
+    void setEdgePrior(int edge, float prior) {
+        edgePriors[chunk(edge)][offset(edge)] = prior;
+    }
+
+    float getEdgePrior(int edge) {
+        return edgePriors[chunk(edge)][offset(edge)];
+    }
+
+    @SuppressWarnings("unchecked")
+    GM getEdgeMove(int edge) {
+        return (GM) edgeMoves[chunk(edge)][offset(edge)];
+    }
+
+    int getEdgeParent(int edge) {
+        return edgeParents[chunk(edge)][offset(edge)];
+    }
+
+    int getEdgeChild(int edge) {
+        return edgeChildren[chunk(edge)].get(offset(edge));
+    }
+
+    /**
+     * AMAF wins of the edge, packed as by PackedResultCounts. Read before the AMAF simulations.
+     */
+    long getEdgeAMAFWins(int edge) {
+        return edgeAMAFWins[chunk(edge)].get(offset(edge));
+    }
+
+    int getEdgeAMAFSimulations(int edge) {
+        return edgeAMAFSimulations[chunk(edge)].get(offset(edge));
+    }
+
+    void setEdgeAMAFCounts(int edge, int numSimulations, long wins) {
+        edgeAMAFSimulations[chunk(edge)].set(offset(edge), numSimulations);
+        edgeAMAFWins[chunk(edge)].set(offset(edge), wins);
+    }
+
+    void addEdgeAMAFResult(int edge, boolean isTie, int winningPlayerIndex) {
+        edgeAMAFSimulations[chunk(edge)].incrementAndGet(offset(edge));
+        if (!isTie) {
+            edgeAMAFWins[chunk(edge)].addAndGet(offset(edge), PackedResultCounts.getWinsIncrement(winningPlayerIndex, 1));
+        }
+    }
+
+    void addParentEdge(int node, int edge) {
+        AtomicIntegerArray heads = parentEdgeHeads[chunk(node)];
+        int head;
+        do {
+            head = heads.get(offset(node));
+            nextParentEdges[chunk(edge)][offset(edge)] = head;
+        } while (!heads.compareAndSet(offset(node), head, edge));
+    }
+
+    int getFirstParentEdge(int node) {
+        return parentEdgeHeads[chunk(node)].get(offset(node));
+    }
+
+    int getNextParentEdge(int edge) {
+        return nextParentEdges[chunk(edge)][offset(edge)];
+    }
+
+    void clearParentEdges(int node) {
+        parentEdgeHeads[chunk(node)].set(offset(node), NONE);
+    }
+
+    private static int chunk(int index) {
+        return index >>> CHUNK_BITS;
+    }
+
+    private static int offset(int index) {
+        return index & CHUNK_MASK;
+    }
+
+    private void ensureNodeCapacity(int node) {
+        if (chunk(node) >= nodeResults.length) {
+            growNodeChunks(chunk(node));
+        }
+    }
+
+    private synchronized void growNodeChunks(int lastChunk) {
+        int numChunks = nodeResults.length;
+        if (lastChunk < numChunks)
+            return;
+        int newNumChunks = lastChunk + 1;
+        Object[][] newNodeResults = Arrays.copyOf(nodeResults, newNumChunks);
+        int[][] newDepths = Arrays.copyOf(depths, newNumChunks);
+        long[][] newZobristHashes = Arrays.copyOf(zobristHashes, newNumChunks);
+        AtomicIntegerArray[] newChildCounts = Arrays.copyOf(childCounts, newNumChunks);
+        int[][] newFirstChildEdges = Arrays.copyOf(firstChildEdges, newNumChunks);
+        AtomicIntegerArray[] newParentEdgeHeads = Arrays.copyOf(parentEdgeHeads, newNumChunks);
+        AtomicIntegerArray[] newVirtualLosses = Arrays.copyOf(virtualLosses, newNumChunks);
+        for (int i=numChunks; i < newNumChunks; ++i) {
+            newNodeResults[i] = new Object[CHUNK_SIZE];
+            newDepths[i] = new int[CHUNK_SIZE];
+            newZobristHashes[i] = new long[CHUNK_SIZE];
+            newChildCounts[i] = filledArray(NOT_EXPANDED);
+            newFirstChildEdges[i] = new int[CHUNK_SIZE];
+            newParentEdgeHeads[i] = filledArray(NONE);
+            newVirtualLosses[i] = new AtomicIntegerArray(CHUNK_SIZE);
+        }
+        childCounts = newChildCounts;
+        firstChildEdges = newFirstChildEdges;
+        parentEdgeHeads = newParentEdgeHeads;
+        virtualLosses = newVirtualLosses;
+        depths = newDepths;
+        zobristHashes = newZobristHashes;
+        nodeResults = newNodeResults;
+    }
+
+    private void ensureEdgeCapacity(int edge) {
+        if (chunk(edge) >= edgeChildren.length) {
+            growEdgeChunks(chunk(edge));
+        }
+    }
+
+    private synchronized void growEdgeChunks(int lastChunk) {
+        int numChunks = edgeChildren.length;
+        if (lastChunk < numChunks)
+            return;
+        int newNumChunks = lastChunk + 1;
+        Object[][] newEdgeMoves = Arrays.copyOf(edgeMoves, newNumChunks);
+        int[][] newEdgeParents = Arrays.copyOf(edgeParents, newNumChunks);
+        float[][] newEdgePriors = Arrays.copyOf(edgePriors, newNumChunks);
+        AtomicIntegerArray[] newEdgeChildren = Arrays.copyOf(edgeChildren, newNumChunks);
+        int[][] newNextParentEdges = Arrays.copyOf(nextParentEdges, newNumChunks);
+        AtomicIntegerArray[] newEdgeAMAFSimulations = Arrays.copyOf(edgeAMAFSimulations, newNumChunks);
+        AtomicLongArray[] newEdgeAMAFWins = Arrays.copyOf(edgeAMAFWins, newNumChunks);
+        for (int i=numChunks; i < newNumChunks; ++i) {
+            newEdgeMoves[i] = new Object[CHUNK_SIZE];
+            newEdgeParents[i] = new int[CHUNK_SIZE];
+            newEdgePriors[i] = new float[CHUNK_SIZE];
+            newEdgeChildren[i] = new AtomicIntegerArray(CHUNK_SIZE);
+            newNextParentEdges[i] = new int[CHUNK_SIZE];
+            newEdgeAMAFSimulations[i] = new AtomicIntegerArray(CHUNK_SIZE);
+            newEdgeAMAFWins[i] = new AtomicLongArray(CHUNK_SIZE);
+        }
+        edgeAMAFSimulations = newEdgeAMAFSimulations;
+        edgeAMAFWins = newEdgeAMAFWins;
+        edgeMoves = newEdgeMoves;
+        edgeParents = newEdgeParents;
+        nextParentEdges = newNextParentEdges;
+        edgePriors = newEdgePriors;
+        edgeChildren = newEdgeChildren;
+    }
+
+    private static AtomicIntegerArray filledArray(int value) {
+        int[] values = new int[CHUNK_SIZE];
+        Arrays.fill(values, value);
+        return new AtomicIntegerArray(values);
+    }
+}
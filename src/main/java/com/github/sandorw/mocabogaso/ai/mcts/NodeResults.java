@@ -10,6 +10,20 @@ import com.github.sandorw.mocabogaso.games.GameResult;
 public interface NodeResults {
 
 	float getValue(String evaluatingPlayerName);
+	
+	/**
+	 * Index based equivalent of getValue(String), where the index refers to the player's position
+	 * in GameState.getAllPlayerNames.
+	 */
+	float getValue(int evaluatingPlayerIndex);
+	
+	/**
+	 * Value combined with AMAF counts kept outside the NodeResults, as a simulation count and 
+	 * PackedResultCounts wins. NodeResults without AMAF statistics ignore them.
+	 */
+	default float getValue(int evaluatingPlayerIndex, int numAMAFSimulations, long amafWins) {
+	    return getValue(evaluatingPlayerIndex);
+	}
 
     int getNumSimulations();
 
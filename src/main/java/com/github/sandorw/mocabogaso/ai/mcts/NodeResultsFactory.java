@@ -1,5 +1,7 @@
 package com.github.sandorw.mocabogaso.ai.mcts;
 
+import java.util.List;
+
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
@@ -13,4 +15,23 @@ public interface NodeResultsFactory<NR extends NodeResults> {
 
     <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> NR getNewNodeResults(GM move, GS initialGameState);
     
+    /**
+     * Estimated value of the move for the player making it, used in place of the NodeResults of
+     * children that have not been created yet. Should match the value a new NodeResults for the
+     * move would report.
+     */
+    <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> float getMovePrior(GM move, GS initialGameState);
+    
+    /**
+     * Priors of all the moves from the game state, in the order of the moves.
+     */
+    default <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> 
+            float[] getMovePriors(List<GM> moves, GS initialGameState) {
+        float[] priors = new float[moves.size()];
+        for (int i=0; i < moves.size(); ++i) {
+            priors[i] = getMovePrior(moves.get(i), initialGameState);
+        }
+        return priors;
+    }
+    
 }
@@ -1,5 +1,7 @@
 package com.github.sandorw.mocabogaso.ai.mcts;
 
+import java.util.List;
+
 import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloSearchTree.SearchTreeIterator;
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
@@ -15,6 +17,12 @@ public interface NodeResultsService<NR extends NodeResults> {
 		
 	<GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> NR getNewNodeResults(GM move, GS initialGameState);
 	
+	<GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> float getMovePrior(GM move, GS initialGameState);
+	
+	<GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> float[] getMovePriors(List<GM> moves, GS initialGameState);
+	
 	<GM extends GameMove, GR extends GameResult> void propagateGameResult(GR gameResult, SearchTreeIterator<GM,NR> treeIterator);
 	
+	<GM extends GameMove, GR extends GameResult> void propagateGameResults(List<GR> gameResults, SearchTreeIterator<GM,NR> treeIterator);
+	
 }
@@ -0,0 +1,78 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import com.github.sandorw.mocabogaso.games.GameResult;
+
+/**
+ * Lock-free counts of the results of simulated two player games. The number of simulations has its
+ * own field, and the wins of both players are packed into a single long as 32 bit fields, so that 
+ * no count ever has to be rescaled. Both are volatile fields updated through field updaters, so the
+ * counts of a node take no objects besides this one. Ties are the simulations that neither player won.
+ * Scores are exact integer points: a win is worth WIN_POINTS and a tie TIE_POINTS, so a score divided
+ * by WIN_POINTS*numSimulations is the familiar value where a tie is worth a quarter of a win. A
+ * result is added to the simulation count before the wins, and readers take the wins first, so a 
+ * result still being added reads as a tie rather than an impossible count.
+ *
+ * @author sandorw
+ */
+public final class PackedResultCounts {
+    public static final int WIN_POINTS = 4;
+    public static final int TIE_POINTS = 1;
+
+    private static final int PLAYER2_WINS_SHIFT = 32;
+    private static final long FIELD_MASK = 0xFFFFFFFFL;
+
+    private static final AtomicIntegerFieldUpdater<PackedResultCounts> NUM_SIMULATIONS 
+            = AtomicIntegerFieldUpdater.newUpdater(PackedResultCounts.class, "numSimulations");
+    private static final AtomicLongFieldUpdater<PackedResultCounts> WINS 
+            = AtomicLongFieldUpdater.newUpdater(PackedResultCounts.class, "wins");
+
+    private volatile int numSimulations;
+    private volatile long wins;
+
+    public PackedResultCounts() {
+        numSimulations = 0;
+        wins = 0L;
+    }
+
+    public void addGameResult(GameResult gameResult, int weight) {
+        addResult(gameResult.isTie(), gameResult.getWinningPlayerIndex(), weight);
+    }
+
+    public void addResult(boolean isTie, int winningPlayerIndex, int weight) {
+        NUM_SIMULATIONS.addAndGet(this, weight);
+        if (!isTie) {
+            WINS.addAndGet(this, getWinsIncrement(winningPlayerIndex, weight));
+        }
+    }
+
+    /**
+     * Increment of the packed wins for a win by the given player, for counts kept outside a
+     * PackedResultCounts.
+     */
+    public static long getWinsIncrement(int winningPlayerIndex, int weight) {
+        return (winningPlayerIndex == 0 ? (long)weight : (long)weight << PLAYER2_WINS_SHIFT);
+    }
+
+    /**
+     * Packed wins of both players, to be read with the static accessors before getNumSimulations.
+     */
+    public long getWins() {
+        return wins;
+    }
+
+    public int getNumSimulations() {
+        return numSimulations;
+    }
+
+    public static int getPoints(int numSimulations, long wins, int playerIndex) {
+        int ties = numSimulations - getPlayerWins(wins, 0) - getPlayerWins(wins, 1);
+        return WIN_POINTS*getPlayerWins(wins, playerIndex) + TIE_POINTS*ties;
+    }
+
+    public static int getPlayerWins(long wins, int playerIndex) {
+        return (int)((playerIndex == 0 ? wins : wins >>> PLAYER2_WINS_SHIFT) & FIELD_MASK);
+    }
+}
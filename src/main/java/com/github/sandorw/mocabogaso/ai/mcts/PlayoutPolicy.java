@@ -3,6 +3,7 @@ package com.github.sandorw.mocabogaso.ai.mcts;
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
+import com.github.sandorw.mocabogaso.games.IntMoveGameState;
 
 /**
  * Given a GameState, the PlayoutPolicy chooses the next move played by the AI in a simulated game.
@@ -13,4 +14,22 @@ public interface PlayoutPolicy {
 
     <GM extends GameMove, GS extends GameState<GM, ? extends GameResult>> GM getPlayoutMove(GS gameState);
 
+    /**
+     * Chooses the next move of a playout as an encoded move. The move buffer holds at least 
+     * getMaxNumMoves entries and may be overwritten. Policies that can work on encoded moves 
+     * should override this to avoid allocating during playouts.
+     */
+    default <GM extends GameMove, GR extends GameResult> int getEncodedPlayoutMove(IntMoveGameState<GM,GR> gameState, 
+            int[] moveBuffer) {
+        return gameState.getEncodedMove(getPlayoutMove(gameState));
+    }
+
+    /**
+     * Whether every valid move is always equally likely to be chosen. Search services may then 
+     * replace a playout with a cheaper one that has the same distribution of results.
+     */
+    default boolean isUniformlyRandom() {
+        return false;
+    }
+
 }
@@ -0,0 +1,70 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Runs simulations continuously on a daemon background thread until stopped, so that a search tree
+ * keeps growing between searches. Stopping waits for the simulation in progress to finish, after
+ * which the tree can safely be advanced.
+ *
+ * @author sandorw
+ */
+public final class Ponderer {
+    private static Logger LOGGER = LoggerFactory.getLogger(Ponderer.class);
+
+    private final ExecutorService executor;
+    private volatile boolean pondering;
+    private Future<?> ponderTask;
+
+    public Ponderer() {
+        executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("ponder-%d")
+                .build());
+        pondering = false;
+    }
+
+    /**
+     * Stops any pondering in progress, then runs the simulation repeatedly until stop is called.
+     * The simulation returns the number of playouts it performed.
+     */
+    public synchronized void start(IntSupplier simulation) {
+        stop();
+        pondering = true;
+        ponderTask = executor.submit(() -> {
+            long startTime = System.currentTimeMillis();
+            int numSimulations = 0;
+            while (pondering) {
+                numSimulations += simulation.getAsInt();
+            }
+            LOGGER.debug("Pondered {} simulations in {} ms", numSimulations, System.currentTimeMillis() - startTime);
+        });
+    }
+
+    public synchronized void stop() {
+        if (ponderTask == null)
+            return;
+        pondering = false;
+        try {
+            Uninterruptibles.getUninterruptibly(ponderTask);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Pondering failed", e.getCause());
+        } finally {
+            ponderTask = null;
+        }
+    }
+
+    public synchronized boolean isPondering() {
+        return (ponderTask != null);
+    }
+}
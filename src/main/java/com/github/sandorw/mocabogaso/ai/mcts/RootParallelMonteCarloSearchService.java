@@ -0,0 +1,164 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.sandorw.mocabogaso.games.GameMove;
+import com.github.sandorw.mocabogaso.games.GameResult;
+import com.github.sandorw.mocabogaso.games.GameState;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+/**
+ * AI service for root-parallel Monte Carlo search. Each worker service owns a private search tree
+ * and NodeResults, so concurrent searches share no state. Every concurrent call to searchMoves
+ * claims the next worker in turn, which gives each thread of a MultiThreadedAIPlayer its own tree
+ * when the number of threads matches the number of workers. Moves are selected by summing the
+ * root child simulation counts of all workers.
+ *
+ * @author sandorw
+ */
+public final class RootParallelMonteCarloSearchService<GM extends GameMove> implements MonteCarloAIService<GM> {
+    private final List<MonteCarloAIService<GM>> workerServices;
+    private final AtomicInteger nextWorkerIndex;
+
+    public RootParallelMonteCarloSearchService(List<? extends MonteCarloAIService<GM>> workerServices) {
+        if (workerServices.isEmpty())
+            throw new IllegalArgumentException("At least one worker service is required");
+        this.workerServices = ImmutableList.copyOf(workerServices);
+        nextWorkerIndex = new AtomicInteger(0);
+    }
+
+    @Override
+    public void setNodeExpandThreshold(int threshold) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.setNodeExpandThreshold(threshold);
+        }
+    }
+
+    @Override
+    public void setExplorationConstant(float explorationConstant) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.setExplorationConstant(explorationConstant);
+        }
+    }
+
+    @Override
+    public void setVirtualLoss(int virtualLoss) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.setVirtualLoss(virtualLoss);
+        }
+    }
+
+    @Override
+    public void setLeafParallelism(int numPlayouts) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.setLeafParallelism(numPlayouts);
+        }
+    }
+
+    @Override
+    public void setTranspositionTableMemory(long memoryBytes) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.setTranspositionTableMemory(memoryBytes);
+        }
+    }
+
+    @Override
+    public void setNodeBudget(int maxNodes) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.setNodeBudget(maxNodes);
+        }
+    }
+
+    @Override
+    public void setLazyExpansion(boolean lazyExpansion) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.setLazyExpansion(lazyExpansion);
+        }
+    }
+
+    @Override
+    public void setProgressiveWidening(float coefficient, float exponent) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.setProgressiveWidening(coefficient, exponent);
+        }
+    }
+
+    /**
+     * All workers draw from the same budget.
+     */
+    @Override
+    public void setSearchBudget(SearchBudget searchBudget) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.setSearchBudget(searchBudget);
+        }
+    }
+
+    @Override
+    public void setSmartTimeManagement(boolean smartTimeManagement) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.setSmartTimeManagement(smartTimeManagement);
+        }
+    }
+
+    @Override
+    public void setSymmetryHashing(boolean symmetryHashing) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.setSymmetryHashing(symmetryHashing);
+        }
+    }
+
+    @Override
+    public <GR extends GameResult, GS extends GameState<GM,GR>>
+            void searchMoves(GS currentGameState, int allottedTimeMs) {
+        int workerIndex = Math.floorMod(nextWorkerIndex.getAndIncrement(), workerServices.size());
+        workerServices.get(workerIndex).searchMoves(currentGameState, allottedTimeMs);
+    }
+
+    @Override
+    public GM selectMove() {
+        GM mostSimulatedMove = null;
+        int mostSimulations = -1;
+        for (Map.Entry<GM,Integer> entry : getRootChildSimulations().entrySet()) {
+            if (entry.getValue() > mostSimulations) {
+                mostSimulations = entry.getValue();
+                mostSimulatedMove = entry.getKey();
+            }
+        }
+        return mostSimulatedMove;
+    }
+
+    @Override
+    public Map<GM,Integer> getRootChildSimulations() {
+        Map<GM,Integer> mergedSimulations = Maps.newLinkedHashMap();
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            for (Map.Entry<GM,Integer> entry : workerService.getRootChildSimulations().entrySet()) {
+                mergedSimulations.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+        }
+        return mergedSimulations;
+    }
+
+    @Override
+    public <GR extends GameResult, GS extends GameState<GM,GR>> void applyMove(GM move, GS resultingGameState) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.applyMove(move, resultingGameState);
+        }
+    }
+
+    @Override
+    public <GR extends GameResult, GS extends GameState<GM,GR>> void startPondering(GS currentGameState) {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.startPondering(currentGameState);
+        }
+    }
+
+    @Override
+    public void stopPondering() {
+        for (MonteCarloAIService<GM> workerService : workerServices) {
+            workerService.stopPondering();
+        }
+    }
+}
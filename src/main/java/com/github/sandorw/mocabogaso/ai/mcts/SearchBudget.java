@@ -0,0 +1,73 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-move limits on the number of playouts and the number of new tree nodes of a search, which
+ * unlike a time limit do not depend on the speed or load of the machine. The time allotted to
+ * searchMoves still caps the search. A budget can be shared by the threads searching a tree and by
+ * the workers of a root-parallel search, which all draw from the same counters. Playouts are
+ * reserved before they start, so the playout limit is never exceeded. New nodes are counted after
+ * the simulations that created them, so searches running in parallel may overshoot the node limit
+ * by the nodes of their last simulations. The counters are reset when a move is applied.
+ *
+ * @author sandorw
+ */
+public final class SearchBudget {
+    public static final int UNLIMITED = 0;
+
+    private final int maxPlayouts;
+    private final int maxNodes;
+    private final AtomicLong numPlayouts;
+    private final AtomicLong numNodes;
+
+    /**
+     * @param maxPlayouts playouts per move, or UNLIMITED
+     * @param maxNodes new tree nodes per move, or UNLIMITED
+     */
+    public SearchBudget(int maxPlayouts, int maxNodes) {
+        if ((maxPlayouts < 0) || (maxNodes < 0))
+            throw new IllegalArgumentException("Search budgets cannot be negative");
+        this.maxPlayouts = maxPlayouts;
+        this.maxNodes = maxNodes;
+        numPlayouts = new AtomicLong(0L);
+        numNodes = new AtomicLong(0L);
+    }
+
+    /**
+     * Reserves the playouts of one simulation, unless that would exceed the budget or the node
+     * budget is already used up.
+     */
+    public boolean tryStartSimulation(int numSimulationPlayouts) {
+        if ((maxNodes != UNLIMITED) && (numNodes.get() >= maxNodes))
+            return false;
+        if (maxPlayouts == UNLIMITED) {
+            numPlayouts.addAndGet(numSimulationPlayouts);
+            return true;
+        }
+        while (true) {
+            long usedPlayouts = numPlayouts.get();
+            if (usedPlayouts + numSimulationPlayouts > maxPlayouts)
+                return false;
+            if (numPlayouts.compareAndSet(usedPlayouts, usedPlayouts + numSimulationPlayouts))
+                return true;
+        }
+    }
+
+    public void addNodes(long numNewNodes) {
+        numNodes.addAndGet(numNewNodes);
+    }
+
+    public long getNumPlayouts() {
+        return numPlayouts.get();
+    }
+
+    public long getNumNodes() {
+        return numNodes.get();
+    }
+
+    public void reset() {
+        numPlayouts.set(0L);
+        numNodes.set(0L);
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.sandorw.mocabogaso.games.GameMove;
+import com.github.sandorw.mocabogaso.games.GameResult;
+import com.github.sandorw.mocabogaso.games.GameState;
+import com.github.sandorw.mocabogaso.games.ReversibleGameState;
+
+/**
+ * Runs the simulations of a Monte Carlo search service, both timed searches and pondering, and
+ * owns the settings that control how many are run. Nodes created by a search are charged to the
+ * search budget, while nodes created by pondering are not. Reversible game states are copied once
+ * per search and rewound by the simulation, any other state is copied for each simulation.
+ *
+ * @author sandorw
+ */
+public final class SearchRunner<GM extends GameMove> {
+    private static Logger LOGGER = LoggerFactory.getLogger(SearchRunner.class);
+
+    private final MonteCarloSearchTree<GM,?> searchTree;
+    private final Simulation<GM> simulation;
+    private final Ponderer ponderer;
+    private final AtomicLong countedNodes;
+    private volatile LeafPlayoutExecutor leafPlayoutExecutor;
+    private volatile SearchBudget searchBudget;
+    private volatile boolean SMART_TIME_MANAGEMENT = false;
+
+    /**
+     * One simulation from the given state, returning the number of playouts it performed. A
+     * reversible state must be rewound to where it started.
+     */
+    @FunctionalInterface
+    public interface Simulation<GM extends GameMove> {
+        int perform(GameState<GM,?> gameState);
+    }
+
+    public SearchRunner(MonteCarloSearchTree<GM,?> searchTree, Simulation<GM> simulation) {
+        this.searchTree = searchTree;
+        this.simulation = simulation;
+        ponderer = new Ponderer();
+        countedNodes = new AtomicLong(0L);
+    }
+
+    public void setSearchBudget(SearchBudget searchBudget) {
+        countedNodes.set(searchTree.getNumCreatedNodes());
+        this.searchBudget = searchBudget;
+    }
+
+    public void setSmartTimeManagement(boolean smartTimeManagement) {
+        SMART_TIME_MANAGEMENT = smartTimeManagement;
+    }
+
+    public synchronized void setLeafParallelism(int numPlayouts) {
+        if (leafPlayoutExecutor != null)
+            leafPlayoutExecutor.shutdown();
+        leafPlayoutExecutor = (numPlayouts > 1) ? new LeafPlayoutExecutor(numPlayouts) : null;
+    }
+
+    /**
+     * The executor for leaf parallel playouts, or null when each simulation runs a single playout.
+     */
+    public LeafPlayoutExecutor getLeafPlayoutExecutor() {
+        return leafPlayoutExecutor;
+    }
+
+    public <GR extends GameResult, GS extends GameState<GM,GR>> void searchMoves(GS currentGameState, int allottedTimeMs) {
+        ponderer.stop();
+        int numSimulations = 0;
+        long startTime = System.currentTimeMillis();
+        searchTree.iterator().expandNode(currentGameState);
+        TimeManager timeManager = new TimeManager(allottedTimeMs, SMART_TIME_MANAGEMENT, searchTree);
+        SearchBudget budget = searchBudget;
+        if (currentGameState instanceof ReversibleGameState) {
+            GameState<GM,GR> searchGameState = currentGameState.getCopy();
+            while (timeManager.shouldContinue(searchTree) && tryStartSimulation(budget)) {
+                numSimulations += simulation.perform(searchGameState);
+            }
+        } else {
+            while (timeManager.shouldContinue(searchTree) && tryStartSimulation(budget)) {
+                numSimulations += simulation.perform(currentGameState.getCopy());
+            }
+        }
+        if (budget != null) {
+            budget.addNodes(countNewNodes());
+        }
+        LOGGER.info("Performed {} simulations in {} ms", numSimulations, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Charges the nodes created since the last check to the budget, then reserves the playouts of
+     * the next simulation.
+     */
+    private boolean tryStartSimulation(SearchBudget budget) {
+        if (budget == null)
+            return true;
+        budget.addNodes(countNewNodes());
+        LeafPlayoutExecutor executor = leafPlayoutExecutor;
+        return budget.tryStartSimulation(executor == null ? 1 : executor.getNumPlayouts());
+    }
+
+    private long countNewNodes() {
+        long numCreatedNodes = searchTree.getNumCreatedNodes();
+        return numCreatedNodes - countedNodes.getAndSet(numCreatedNodes);
+    }
+
+    /**
+     * Stops pondering and advances the tree past the move. Nodes kept from the old tree are not
+     * charged to the budget, which starts over for the next search.
+     */
+    public <GR extends GameResult, GS extends GameState<GM,GR>> void applyMove(GM move, GS resultingGameState) {
+        ponderer.stop();
+        searchTree.advanceTree(move, resultingGameState);
+        countedNodes.set(searchTree.getNumCreatedNodes());
+        SearchBudget budget = searchBudget;
+        if (budget != null) {
+            budget.reset();
+        }
+    }
+
+    public <GR extends GameResult, GS extends GameState<GM,GR>> void startPondering(GS currentGameState) {
+        ponderer.stop();
+        if (currentGameState.isGameOver())
+            return;
+        searchTree.iterator().expandNode(currentGameState);
+        GameState<GM,GR> ponderGameState = currentGameState.getCopy();
+        if (ponderGameState instanceof ReversibleGameState) {
+            ponderer.start(() -> performPonderSimulation(ponderGameState));
+        } else {
+            ponderer.start(() -> performPonderSimulation(ponderGameState.getCopy()));
+        }
+    }
+
+    public void stopPondering() {
+        ponderer.stop();
+    }
+
+    /**
+     * Pondering simulation, whose nodes are not charged to the search budget.
+     */
+    private int performPonderSimulation(GameState<GM,?> ponderGameState) {
+        int numPlayouts = simulation.perform(ponderGameState);
+        countedNodes.set(searchTree.getNumCreatedNodes());
+        return numPlayouts;
+    }
+}
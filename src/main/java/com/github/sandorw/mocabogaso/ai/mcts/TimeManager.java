@@ -0,0 +1,76 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Decides how long a single search runs. Without smart time management, the search simply runs for
+ * the allotted time. With it, the search stops as soon as the most simulated child of the root
+ * leads the runner up by more simulations than the search is expected to run in the time left,
+ * since the selected move can then no longer change. When the allotted time runs out while the
+ * two children are within CLOSE_RATIO of each other, the search is extended by up to
+ * MAX_EXTENSION of the allotted time. The tree is only checked every CHECK_INTERVAL_MS.
+ *
+ * @author sandorw
+ */
+public final class TimeManager {
+    private static final float MAX_EXTENSION = 0.5f;
+    private static final float CLOSE_RATIO = 0.9f;
+    private static final long CHECK_INTERVAL_MS = 5;
+
+    private final boolean smartTimeManagement;
+    private final LongSupplier clock;
+    private final long startTime;
+    private final long deadline;
+    private final long extendedDeadline;
+    private final int initialRootSimulations;
+    private long nextCheckTime;
+    private boolean stopped;
+
+    public TimeManager(int allottedTimeMs, boolean smartTimeManagement, MonteCarloSearchTree<?,?> searchTree) {
+        this(allottedTimeMs, smartTimeManagement, getRootSimulations(searchTree), System::currentTimeMillis);
+    }
+
+    TimeManager(int allottedTimeMs, boolean smartTimeManagement, int initialRootSimulations, LongSupplier clock) {
+        this.smartTimeManagement = smartTimeManagement;
+        this.clock = clock;
+        this.initialRootSimulations = initialRootSimulations;
+        startTime = clock.getAsLong();
+        deadline = startTime + allottedTimeMs;
+        extendedDeadline = deadline + (long)(MAX_EXTENSION*allottedTimeMs);
+        nextCheckTime = startTime + CHECK_INTERVAL_MS;
+        stopped = false;
+    }
+
+    public boolean shouldContinue(MonteCarloSearchTree<?,?> searchTree) {
+        long now = clock.getAsLong();
+        if (!smartTimeManagement)
+            return (now < deadline);
+        if (stopped || (now >= extendedDeadline))
+            return false;
+        if ((now < nextCheckTime) && (now < deadline))
+            return true;
+        nextCheckTime = now + CHECK_INTERVAL_MS;
+        int[] topSimulations = searchTree.getTopRootChildSimulations();
+        stopped = !shouldContinue(now, getRootSimulations(searchTree), topSimulations[0], topSimulations[1]);
+        return !stopped;
+    }
+
+    /**
+     * Decision at a check, given the simulations of the root and of its two most simulated children.
+     */
+    boolean shouldContinue(long now, int rootSimulations, int bestSimulations, int secondSimulations) {
+        if (now >= deadline)
+            return (now < extendedDeadline) && (bestSimulations > 0) 
+                    && (secondSimulations >= CLOSE_RATIO*bestSimulations);
+        long elapsed = now - startTime;
+        int numSimulations = rootSimulations - initialRootSimulations;
+        if ((elapsed == 0) || (numSimulations <= 0))
+            return true;
+        double remainingSimulations = (double)numSimulations*(deadline - now)/elapsed;
+        return (bestSimulations - secondSimulations <= remainingSimulations);
+    }
+
+    private static int getRootSimulations(MonteCarloSearchTree<?,?> searchTree) {
+        return searchTree.iterator().getCurrentNodeResults().getNumSimulations();
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntSupplier;
+
+/**
+ * Fixed capacity transposition table mapping Zobrist hashes to NodeArena indices. Each entry is a
+ * single long holding a 32 bit check value folded from the hash and the node index, so entries are
+ * claimed and replaced with one CAS. A hash may live in any slot of a small bucket starting at the
+ * slot given by its low bits. When a bucket is full the least valuable entry is replaced: the one 
+ * with the fewest simulations, and among those the deepest node. A matching check value is only a
+ * hit if the full hash stored with the node matches too.
+ *
+ * Lookups never lock. Insertions of a hash hold the lock of the stripe its bucket starts in, so 
+ * concurrent insertions of the same position agree on one node, and a node is only created once 
+ * the table is known not to hold one.
+ *
+ * Evicting an entry only forgets the transposition. The node stays in the tree.
+ *
+ * @author sandorw
+ */
+final class TranspositionTable {
+    static final long DEFAULT_MEMORY_BYTES = 4L << 20;
+    private static final int BYTES_PER_ENTRY = 8;
+    private static final int BUCKET_SIZE = 4;
+    private static final long EMPTY = 0L;
+    private static final int NUM_INSERT_LOCKS = 64;
+
+    private final AtomicLongArray entries;
+    private final int mask;
+    private final NodeArena<?,?> nodeArena;
+    private final Object[] insertLocks;
+
+    TranspositionTable(long memoryBytes, NodeArena<?,?> nodeArena) {
+        int capacity = getCapacity(memoryBytes);
+        entries = new AtomicLongArray(capacity);
+        mask = capacity - 1;
+        this.nodeArena = nodeArena;
+        insertLocks = new Object[NUM_INSERT_LOCKS];
+        for (int i=0; i < NUM_INSERT_LOCKS; ++i) {
+            insertLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Largest power of two number of entries that fits in the given memory, but at least one bucket.
+     */
+    static int getCapacity(long memoryBytes) {
+        long maxEntries = Math.min(memoryBytes/BYTES_PER_ENTRY, 1 << 30);
+        return (int)Math.max(Long.highestOneBit(Math.max(maxEntries, 1L)), BUCKET_SIZE);
+    }
+
+    int getCapacity() {
+        return entries.length();
+    }
+
+    int get(long zobristHash) {
+        int check = getCheck(zobristHash);
+        int firstSlot = (int)zobristHash & mask;
+        for (int i=0; i < BUCKET_SIZE; ++i) {
+            long entry = entries.get((firstSlot + i) & mask);
+            if (isEntryFor(entry, check, zobristHash))
+                return getEntryNode(entry);
+        }
+        return NodeArena.NONE;
+    }
+
+    /**
+     * Lock held while the hash is inserted. Callers that must also publish the node elsewhere 
+     * without racing other insertions of the same position can hold it around getOrInsert.
+     */
+    Object getInsertLock(long zobristHash) {
+        return insertLocks[(int)zobristHash & mask & (NUM_INSERT_LOCKS - 1)];
+    }
+
+    /**
+     * Returns the node stored for the hash. If there is none, creates one with the supplier, stores
+     * it and returns it. The supplier is called at most once, and only if the node is stored.
+     */
+    int getOrInsert(long zobristHash, IntSupplier nodeSupplier) {
+        int node = get(zobristHash);
+        if (node != NodeArena.NONE)
+            return node;
+        synchronized (getInsertLock(zobristHash)) {
+            return insert(zobristHash, nodeSupplier);
+        }
+    }
+
+    /**
+     * Other hashes can take slots of the bucket concurrently, since buckets overlap, but never this
+     * one while the insert lock is held. A lost CAS rescans the bucket and retries with the same node.
+     */
+    private int insert(long zobristHash, IntSupplier nodeSupplier) {
+        int check = getCheck(zobristHash);
+        int firstSlot = (int)zobristHash & mask;
+        int newNode = NodeArena.NONE;
+        while (true) {
+            int victimSlot = -1;
+            long victimEntry = EMPTY;
+            for (int i=0; i < BUCKET_SIZE; ++i) {
+                int slot = (firstSlot + i) & mask;
+                long entry = entries.get(slot);
+                if (entry == EMPTY) {
+                    if ((victimSlot < 0) || (victimEntry != EMPTY)) {
+                        victimSlot = slot;
+                        victimEntry = EMPTY;
+                    }
+                } else if (isEntryFor(entry, check, zobristHash)) {
+                    return getEntryNode(entry);
+                } else if ((victimSlot < 0) || ((victimEntry != EMPTY) && isLessValuable(entry, victimEntry))) {
+                    victimSlot = slot;
+                    victimEntry = entry;
+                }
+            }
+            if (newNode == NodeArena.NONE)
+                newNode = nodeSupplier.getAsInt();
+            if (entries.compareAndSet(victimSlot, victimEntry, toEntry(check, newNode)))
+                return newNode;
+        }
+    }
+
+    private boolean isEntryFor(long entry, int check, long zobristHash) {
+        return (entry != EMPTY) && (getEntryCheck(entry) == check)
+                && (nodeArena.getZobristHash(getEntryNode(entry)) == zobristHash);
+    }
+
+    private boolean isLessValuable(long entry, long otherEntry) {
+        int node = getEntryNode(entry);
+        int otherNode = getEntryNode(otherEntry);
+        int numSimulations = nodeArena.getNodeResults(node).getNumSimulations();
+        int otherNumSimulations = nodeArena.getNodeResults(otherNode).getNumSimulations();
+        if (numSimulations != otherNumSimulations)
+            return numSimulations < otherNumSimulations;
+        return nodeArena.getDepth(node) > nodeArena.getDepth(otherNode);
+    }
+
+    private static int getCheck(long zobristHash) {
+        return (int)(zobristHash >>> 32) ^ (int)zobristHash;
+    }
+
+    private static long toEntry(int check, int node) {
+        return ((long)check << 32) | ((node + 1) & 0xFFFFFFFFL);
+    }
+
+    private static int getEntryCheck(long entry) {
+        return (int)(entry >>> 32);
+    }
+
+    private static int getEntryNode(long entry) {
+        return (int)entry - 1;
+    }
+}
@@ -1,57 +1,62 @@
 package com.github.sandorw.mocabogaso.ai.mcts.amaf;
 
-import java.util.List;
-
+import com.github.sandorw.mocabogaso.ai.mcts.Heuristic;
 import com.github.sandorw.mocabogaso.ai.mcts.HeuristicNodeResults;
+import com.github.sandorw.mocabogaso.ai.mcts.PackedResultCounts;
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
 
 /**
- * NodeResults that include AMAF data and take heuristics into account when constructed.
+ * NodeResults that include AMAF data and take heuristics into account when constructed. Real,
+ * virtual and AMAF counts are each kept in PackedResultCounts.
  * 
  * @author sandorw
  */
 public class AMAFHeuristicNodeResults implements AMAFNodeResults, HeuristicNodeResults {
     private final String player1Name;
-    private float player1Score;
-    private float player2Score;
-    private float player1VirtScore;
-    private float player2VirtScore;
-    private float player1AMAFScore;
-    private float player2AMAFScore;
-    private int numSims;
-    private int numVirtSims;
-    private int numRAVESims;
+    private final PackedResultCounts resultCounts;
+    private final PackedResultCounts virtualResultCounts;
+    private final PackedResultCounts amafResultCounts;
     
-    private static float WIN_VALUE = 1.0f;
-    private static float TIE_VALUE = 0.25f;
     private static int SIMS_EQUIV = 1000;
     
     public AMAFHeuristicNodeResults(GameState<?,?> gameState) {
-        List<String> playerNames = gameState.getAllPlayerNames();
-        player1Name = playerNames.get(0);
-        player1Score = player1VirtScore = player1AMAFScore = 0.0f;
-        player2Score = player2VirtScore = player2AMAFScore = 0.0f;
-        numSims = 0;
-        numVirtSims = 0;
-        numRAVESims = 0;
+        player1Name = gameState.getAllPlayerNames().get(0);
+        resultCounts = new PackedResultCounts();
+        virtualResultCounts = new PackedResultCounts();
+        amafResultCounts = new PackedResultCounts();
     }
 
     @Override
     public int getNumSimulations() {
-        return numSims;
+        return resultCounts.getNumSimulations();
     }
     
     @Override
     public float getValue(String evaluatingPlayerName) {
-        int numTotalSims = numSims + numVirtSims;
+        return getValue(evaluatingPlayerName.equals(player1Name) ? 0 : 1);
+    }
+    
+    @Override
+    public float getValue(int evaluatingPlayerIndex) {
+        long amafWins = amafResultCounts.getWins();
+        return getValue(evaluatingPlayerIndex, amafResultCounts.getNumSimulations(), amafWins);
+    }
+    
+    @Override
+    public float getValue(int evaluatingPlayerIndex, int numRAVESims, long amafWins) {
+        long wins = resultCounts.getWins();
+        int numSims = resultCounts.getNumSimulations();
+        long virtualWins = virtualResultCounts.getWins();
+        int numVirtualSims = virtualResultCounts.getNumSimulations();
+        int numTotalSims = numSims + numVirtualSims;
         if ((numTotalSims == 0) && (numRAVESims == 0)) {
             return 0.0f;
         }
-        float playerScore = (evaluatingPlayerName.equals(player1Name) ? player1Score : player2Score);
-        float playerVirtScore = (evaluatingPlayerName.equals(player1Name) ? player1VirtScore : player2VirtScore);
-        float playerAMAFScore = (evaluatingPlayerName.equals(player1Name) ? player1AMAFScore : player2AMAFScore);
+        float playerScore = getScore(numSims, wins, evaluatingPlayerIndex);
+        float playerVirtScore = getScore(numVirtualSims, virtualWins, evaluatingPlayerIndex);
+        float playerAMAFScore = getScore(numRAVESims, amafWins, evaluatingPlayerIndex);
         float weightedScore = (numTotalSims == 0 ? 0.0f : (playerScore + playerVirtScore)/numTotalSims);
         float beta = numRAVESims/(numRAVESims + numTotalSims + (float)numRAVESims*numTotalSims/SIMS_EQUIV);
         float RAVEterm = (numRAVESims == 0 ? 0.0f : beta*playerAMAFScore/numRAVESims);
@@ -59,34 +64,18 @@ public class AMAFHeuristicNodeResults implements AMAFNodeResults, HeuristicNodeR
         return RAVEterm + normterm;
     }
     
+    private static float getScore(int numSimulations, long wins, int playerIndex) {
+        return (float)PackedResultCounts.getPoints(numSimulations, wins, playerIndex)/PackedResultCounts.WIN_POINTS;
+    }
+    
     @Override
     public <GR extends GameResult> void applyGameResult(GR gameResult) {
-        ++numSims;
-        if (gameResult.isTie()) {
-            player1Score += TIE_VALUE;
-            player2Score += TIE_VALUE;
-        } else {
-            if (gameResult.getWinningPlayer().equals(player1Name)) {
-                player1Score += WIN_VALUE;
-            } else {
-                player2Score += WIN_VALUE;
-            }
-        }
+        resultCounts.addGameResult(gameResult, 1);
     }
     
     @Override
     public <GM extends GameMove, GR extends GameResult> void applyAMAFGameResult(GR gameResult) {
-        ++numRAVESims;
-        if (gameResult.isTie()) {
-            player1AMAFScore += TIE_VALUE;
-            player2AMAFScore += TIE_VALUE;
-        } else {
-            if (gameResult.getWinningPlayer().equals(player1Name)) {
-                player1AMAFScore += WIN_VALUE;
-            } else {
-                player2AMAFScore += WIN_VALUE;
-            }
-        }
+        amafResultCounts.addGameResult(gameResult, 1);
     }
 
     @Override
@@ -94,16 +83,14 @@ public class AMAFHeuristicNodeResults implements AMAFNodeResults, HeuristicNodeR
         if (weight == 0) {
             return;
         }
-        numVirtSims += weight;
-        if (gameResult.isTie()) {
-            player1VirtScore += weight*TIE_VALUE;
-            player2VirtScore += weight*TIE_VALUE;
-        } else {
-            if (gameResult.getWinningPlayer().equals(player1Name)) {
-                player1VirtScore += weight*WIN_VALUE;
-            } else {
-                player2VirtScore += weight*WIN_VALUE;
-            }
+        virtualResultCounts.addGameResult(gameResult, weight);
+    }
+
+    @Override
+    public void applyVirtualOutcome(int outcome, int weight) {
+        if ((weight == 0) || (outcome == Heuristic.NO_RESULT)) {
+            return;
         }
+        virtualResultCounts.addResult(outcome == Heuristic.TIE, outcome, weight);
     }
 }
@@ -1,28 +1,128 @@
 package com.github.sandorw.mocabogaso.ai.mcts.amaf;
 
+import java.util.List;
+
 import com.github.sandorw.mocabogaso.ai.mcts.Heuristic;
+import com.github.sandorw.mocabogaso.ai.mcts.HeuristicEvaluation;
 import com.github.sandorw.mocabogaso.ai.mcts.NodeResultsFactory;
+import com.github.sandorw.mocabogaso.ai.mcts.PackedResultCounts;
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 /**
- * Factory for constructing AMAFHeuristicNodeResults.
- * 
+ * Factory for constructing AMAFHeuristicNodeResults. The heuristics evaluate all valid moves of a
+ * game state in one batch the first time any of its moves is needed, and the HeuristicEvaluation is
+ * cached by the Zobrist hash of the game state, so that the remaining children of the position and
+ * its transpositions reuse it. Moves outside the cached batch are evaluated one at a time.
+ *
  * @author sandorw
  */
 public class AMAFHeuristicNodeResultsFactory implements NodeResultsFactory<AMAFHeuristicNodeResults> {
+    private final Cache<Long, HeuristicEvaluation<?>> evaluationCache;
+
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    public AMAFHeuristicNodeResultsFactory() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    public AMAFHeuristicNodeResultsFactory(int cacheSize) {
+        evaluationCache = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+    }
 
     @Override
-    public <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> 
+    public <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>>
             AMAFHeuristicNodeResults getNewNodeResults(GM move, GS initialGameState) {
         AMAFHeuristicNodeResults nodeResults = new AMAFHeuristicNodeResults(initialGameState);
+        if ((move == null) || initialGameState.getHeuristics().isEmpty()) {
+            applyHeuristics(move, initialGameState, nodeResults);
+            return nodeResults;
+        }
+        HeuristicEvaluation<GM> evaluation = getEvaluation(initialGameState);
+        int moveIndex = evaluation.getMoveIndex(move);
+        if (moveIndex < 0) {
+            applyHeuristics(move, initialGameState, nodeResults);
+        } else {
+            evaluation.applyVirtualResults(moveIndex, nodeResults);
+        }
+        return nodeResults;
+    }
+
+    private static <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>>
+            void applyHeuristics(GM move, GS initialGameState, AMAFHeuristicNodeResults nodeResults) {
         for (Heuristic<GM,GR> heuristic : initialGameState.getHeuristics()) {
             GameResult heuristicGameResult = heuristic.evaluateMove(move, initialGameState);
             if (heuristicGameResult != null) {
                 nodeResults.applyVirtualGameResult(heuristicGameResult, heuristic.getWeight());
             }
         }
-        return nodeResults;
+    }
+
+    /**
+     * The heuristic score of the move for the moving player, which is what a new
+     * AMAFHeuristicNodeResults reports before any simulations.
+     */
+    @Override
+    public <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>>
+            float getMovePrior(GM move, GS initialGameState) {
+        if (initialGameState.getHeuristics().isEmpty()) {
+            return 0.0f;
+        }
+        HeuristicEvaluation<GM> evaluation = getEvaluation(initialGameState);
+        int moveIndex = evaluation.getMoveIndex(move);
+        if (moveIndex >= 0) {
+            return evaluation.getPrior(moveIndex);
+        }
+        int movingPlayerIndex = initialGameState.getNextPlayerIndex();
+        int totalWeight = 0;
+        int points = 0;
+        for (Heuristic<GM,GR> heuristic : initialGameState.getHeuristics()) {
+            int weight = heuristic.getWeight();
+            GameResult heuristicGameResult = heuristic.evaluateMove(move, initialGameState);
+            if ((heuristicGameResult != null) && (weight > 0)) {
+                totalWeight += weight;
+                if (heuristicGameResult.isTie()) {
+                    points += PackedResultCounts.TIE_POINTS*weight;
+                } else if (heuristicGameResult.getWinningPlayerIndex() == movingPlayerIndex) {
+                    points += PackedResultCounts.WIN_POINTS*weight;
+                }
+            }
+        }
+        return (totalWeight == 0 ? 0.0f : (float)points/(PackedResultCounts.WIN_POINTS*totalWeight));
+    }
+
+    @Override
+    public <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>>
+            float[] getMovePriors(List<GM> moves, GS initialGameState) {
+        float[] priors = new float[moves.size()];
+        if (initialGameState.getHeuristics().isEmpty()) {
+            return priors;
+        }
+        HeuristicEvaluation<GM> evaluation = getEvaluation(initialGameState);
+        for (int i=0; i < moves.size(); ++i) {
+            int moveIndex = evaluation.getMoveIndex(moves.get(i));
+            if (moveIndex < 0) {
+                evaluation = HeuristicEvaluation.of(moves, initialGameState);
+                evaluationCache.put(initialGameState.getZobristHash(), evaluation);
+                return evaluation.getPriors().clone();
+            }
+            priors[i] = evaluation.getPrior(moveIndex);
+        }
+        return priors;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>>
+            HeuristicEvaluation<GM> getEvaluation(GS initialGameState) {
+        long zobristHash = initialGameState.getZobristHash();
+        HeuristicEvaluation<GM> evaluation = (HeuristicEvaluation<GM>) evaluationCache.getIfPresent(zobristHash);
+        if (evaluation == null) {
+            evaluation = HeuristicEvaluation.of(initialGameState.getAllValidMoves(), initialGameState);
+            evaluationCache.put(zobristHash, evaluation);
+        }
+        return evaluation;
     }
 }
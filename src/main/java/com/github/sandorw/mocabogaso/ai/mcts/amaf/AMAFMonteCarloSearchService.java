@@ -1,77 +1,312 @@
 package com.github.sandorw.mocabogaso.ai.mcts.amaf;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.sandorw.mocabogaso.ai.AIService;
+import com.github.sandorw.mocabogaso.ai.mcts.LeafPlayoutExecutor;
+import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloAIService;
 import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloSearchTree;
+import com.github.sandorw.mocabogaso.ai.mcts.MoveBuffers;
 import com.github.sandorw.mocabogaso.ai.mcts.PlayoutPolicy;
+import com.github.sandorw.mocabogaso.ai.mcts.SearchBudget;
+import com.github.sandorw.mocabogaso.ai.mcts.SearchRunner;
 import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloSearchTree.SearchTreeIterator;
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
+import com.github.sandorw.mocabogaso.games.IntMoveGameState;
+import com.github.sandorw.mocabogaso.games.RandomFillGameState;
+import com.github.sandorw.mocabogaso.games.ReversibleGameState;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 /**
  * AI service for managing a Monte Carlo search tree based AI that maintains AMAF results on tree
- * nodes.
+ * nodes. Reversible game states are copied once per search and rewound after every simulation.
+ * 
+ * With path AMAF, results are only propagated along the selection path rather than to every 
+ * ancestor, which keeps updates linear on trees with many transpositions. This needs an 
+ * IntMoveGameState whose encoded moves identify moves regardless of the state, such as board 
+ * locations, and other games keep the full walk. Path AMAF playouts record their moves by id in a
+ * bitset reused by each thread.
  *
  * @author sandorw
  */
-public final class AMAFMonteCarloSearchService<GM extends GameMove, NR extends AMAFNodeResults> implements AIService<GM> {
+public final class AMAFMonteCarloSearchService<GM extends GameMove, NR extends AMAFNodeResults> implements MonteCarloAIService<GM> {
     private static Logger LOGGER = LoggerFactory.getLogger(AMAFMonteCarloSearchService.class);
+    private static final ThreadLocal<BitSet> PLAYED_MOVE_IDS = ThreadLocal.withInitial(BitSet::new);
+    private static final ThreadLocal<int[]> PATH_PLAYER_INDICES = ThreadLocal.withInitial(() -> new int[16]);
 
     private final MonteCarloSearchTree<GM,NR> searchTree;
     private final PlayoutPolicy playoutPolicy;
     private final AMAFNodeResultsService<NR> nodeResultsService;
+    private final SearchRunner<GM> searchRunner;
+    private volatile boolean PATH_AMAF = false;
     
     public <GR extends GameResult, GS extends GameState<GM,GR>> 
             AMAFMonteCarloSearchService(AMAFNodeResultsService<NR> nodeResultsService, PlayoutPolicy policy, GS initialGameState) {
         this.nodeResultsService = nodeResultsService;
         playoutPolicy = policy;
         searchTree = new MonteCarloSearchTree<>(nodeResultsService, initialGameState);
+        searchRunner = new SearchRunner<>(searchTree, this::performPlayoutSimulation);
     }
 
+    @Override
     public void setNodeExpandThreshold(int threshold) {
         searchTree.setNodeExpandThreshold(threshold);
     }
 
+    @Override
     public void setExplorationConstant(float explorationConstant) {
         searchTree.setExplorationConstant(explorationConstant);
     }
 
+    @Override
+    public void setVirtualLoss(int virtualLoss) {
+        searchTree.setVirtualLoss(virtualLoss);
+    }
+
+    @Override
+    public void setTranspositionTableMemory(long memoryBytes) {
+        searchTree.setTranspositionTableMemory(memoryBytes);
+    }
+
+    @Override
+    public void setNodeBudget(int maxNodes) {
+        searchTree.setNodeBudget(maxNodes);
+    }
+
+    @Override
+    public void setLazyExpansion(boolean lazyExpansion) {
+        searchTree.setLazyExpansion(lazyExpansion);
+    }
+
+    @Override
+    public void setProgressiveWidening(float coefficient, float exponent) {
+        searchTree.setProgressiveWidening(coefficient, exponent);
+    }
+
+    @Override
+    public void setSearchBudget(SearchBudget searchBudget) {
+        searchRunner.setSearchBudget(searchBudget);
+    }
+
+    @Override
+    public void setSmartTimeManagement(boolean smartTimeManagement) {
+        searchRunner.setSmartTimeManagement(smartTimeManagement);
+    }
+
+    /**
+     * Not supported, since the AMAF statistics of a node refer to moves in the orientation of the 
+     * game states that visited it.
+     */
+    @Override
+    public void setSymmetryHashing(boolean symmetryHashing) {
+        if (symmetryHashing)
+            throw new UnsupportedOperationException("Symmetry hashing is not supported with AMAF");
+    }
+
+    public void setPathAMAF(boolean pathAMAF) {
+        PATH_AMAF = pathAMAF;
+    }
+
+    /**
+     * Keeps AMAF counts in arrays on the parent node. See MonteCarloSearchTree.setEdgeAMAF.
+     */
+    public void setEdgeAMAF(boolean edgeAMAF) {
+        searchTree.setEdgeAMAF(edgeAMAF);
+    }
+
+    @Override
+    public void setLeafParallelism(int numPlayouts) {
+        searchRunner.setLeafParallelism(numPlayouts);
+    }
+
+    @Override
+    public Map<GM,Integer> getRootChildSimulations() {
+        return searchTree.getRootChildSimulations();
+    }
+
     @Override
     public <GR extends GameResult, GS extends GameState<GM,GR>>
             void searchMoves(GS currentGameState, int allottedTimeMs) {
-        int numSimulations = 0;
-        long timeout = System.currentTimeMillis() + (long)allottedTimeMs;
-        searchTree.iterator().expandNode(currentGameState);
-        while (System.currentTimeMillis() < timeout) {
-            performPlayoutSimulation(currentGameState.getCopy());
-            ++numSimulations;
-        }
-        LOGGER.info("Performed {} simulations in {} ms", numSimulations, allottedTimeMs);
+        searchRunner.searchMoves(currentGameState, allottedTimeMs);
         logMoveChoices(currentGameState);
     }
 
-    private <GR extends GameResult, GS extends GameState<GM,GR>> void performPlayoutSimulation(GS playoutGameState) {
+    /**
+     * Runs one simulation from the given state. A reversible state is rewound to where it started,
+     * any other state is left at the end of the simulated game.
+     */
+    @SuppressWarnings("unchecked")
+    private <GR extends GameResult> int performPlayoutSimulation(GameState<GM,GR> playoutGameState) {
+        boolean reversible = (playoutGameState instanceof ReversibleGameState);
+        boolean pathAMAF = PATH_AMAF && (playoutGameState instanceof IntMoveGameState);
         SearchTreeIterator<GM,NR> iterator = searchTree.iterator();
+        int[] pathPlayerIndices = PATH_PLAYER_INDICES.get();
+        int numSelectedMoves = 0;
         while (iterator.hasNext()) {
-            String currentPlayerName = playoutGameState.getNextPlayerName();
-            GM move = iterator.advanceToNextExplorationNode(currentPlayerName);
+            if (pathAMAF) {
+                pathPlayerIndices = setPathPlayerIndex(pathPlayerIndices, numSelectedMoves, playoutGameState.getNextPlayerIndex());
+            }
+            GM move = iterator.advanceToNextExplorationNode(playoutGameState);
             playoutGameState.applyMove(move);
+            ++numSelectedMoves;
         }
-        GameState<GM, ? extends GameResult> expansionGameState = playoutGameState.getCopy();
+        if (pathAMAF) {
+            pathPlayerIndices = setPathPlayerIndex(pathPlayerIndices, numSelectedMoves, playoutGameState.getNextPlayerIndex());
+        }
+        GameState<GM,GR> expansionGameState = (reversible ? playoutGameState : playoutGameState.getCopy());
+        LeafPlayoutExecutor executor = searchRunner.getLeafPlayoutExecutor();
+        List<Playout<GR>> playouts;
+        if (executor == null) {
+            playouts = ImmutableList.of(playOut(playoutGameState, reversible, (pathAMAF ? PLAYED_MOVE_IDS.get() : null)));
+        } else {
+            playouts = executor.runPlayouts(() -> playOut(expansionGameState.getCopy(), false, (pathAMAF ? new BitSet() : null)));
+        }
+        List<GR> gameResults = Lists.newArrayListWithCapacity(playouts.size());
+        for (Playout<GR> playout : playouts) {
+            gameResults.add(playout.gameResult);
+        }
+        if (pathAMAF) {
+            List<BitSet> playedMoveIds = Lists.newArrayListWithCapacity(playouts.size());
+            for (Playout<GR> playout : playouts) {
+                playedMoveIds.add(playout.playedMoveIds);
+            }
+            IntMoveGameState<GM,GR> intMoveGameState = (IntMoveGameState<GM,GR>) playoutGameState;
+            nodeResultsService.propagateGameResultsOnPathWithAMAF(gameResults, iterator, playedMoveIds, 
+                    intMoveGameState::getEncodedMove, intMoveGameState.getAllPlayerNames().size(), pathPlayerIndices);
+        } else {
+            List<Set<GM>> playedMoves = Lists.newArrayListWithCapacity(playouts.size());
+            for (Playout<GR> playout : playouts) {
+                playedMoves.add(playout.playedMoves);
+            }
+            nodeResultsService.propagateGameResultsWithAMAF(gameResults, iterator, playedMoves);
+        }
+        iterator.revertVirtualLoss();
+        iterator.expandNode(expansionGameState);
+        if (reversible) {
+            undoMoves(playoutGameState, numSelectedMoves);
+        }
+        return playouts.size();
+    }
+
+    private static int[] setPathPlayerIndex(int[] pathPlayerIndices, int depth, int playerIndex) {
+        if (depth == pathPlayerIndices.length) {
+            pathPlayerIndices = Arrays.copyOf(pathPlayerIndices, 2*depth);
+            PATH_PLAYER_INDICES.set(pathPlayerIndices);
+        }
+        pathPlayerIndices[depth] = playerIndex;
+        return pathPlayerIndices;
+    }
+
+    /**
+     * Plays the game out. The moves are recorded by id in playedMoveIds if it is given, which 
+     * requires an IntMoveGameState, and as a set of moves otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    private <GR extends GameResult> Playout<GR> playOut(GameState<GM,GR> playoutGameState, boolean rewind, BitSet playedMoveIds) {
+        if (playedMoveIds != null) {
+            playedMoveIds.clear();
+        }
+        if (playoutPolicy.isUniformlyRandom() && (playoutGameState instanceof RandomFillGameState))
+            return playOutRandomFill((RandomFillGameState<GM,GR>) playoutGameState, playedMoveIds);
+        if (playoutGameState instanceof IntMoveGameState)
+            return playOutEncoded((IntMoveGameState<GM,GR>) playoutGameState, rewind, playedMoveIds);
         Set<GM> playedMoves = Sets.newHashSet();
+        int numMoves = 0;
         while (!playoutGameState.isGameOver()) {
             GM nextMove = playoutPolicy.getPlayoutMove(playoutGameState);
             playedMoves.add(nextMove);
             playoutGameState.applyMove(nextMove);
+            ++numMoves;
+        }
+        Playout<GR> playout = new Playout<>(playoutGameState.getGameResult(), playedMoves, null);
+        if (rewind) {
+            undoMoves(playoutGameState, numMoves);
+        }
+        return playout;
+    }
+
+    /**
+     * Playout on encoded moves. Without playedMoveIds, played moves are recorded as the game's 
+     * shared move instances.
+     */
+    private <GR extends GameResult> Playout<GR> playOutEncoded(IntMoveGameState<GM,GR> playoutGameState, boolean rewind,
+            BitSet playedMoveIds) {
+        int[] moveBuffer = MoveBuffers.get(playoutGameState.getMaxNumMoves());
+        int numPlayers = playoutGameState.getAllPlayerNames().size();
+        Set<GM> playedMoves = (playedMoveIds == null ? Sets.newHashSet() : null);
+        int numMoves = 0;
+        while (!playoutGameState.isGameOver()) {
+            int nextMove = playoutPolicy.getEncodedPlayoutMove(playoutGameState, moveBuffer);
+            if (playedMoveIds != null) {
+                playedMoveIds.set(AMAFPathWalker.getMoveId(nextMove, playoutGameState.getNextPlayerIndex(), numPlayers));
+            } else {
+                playedMoves.add(playoutGameState.getMove(nextMove));
+            }
+            playoutGameState.applyEncodedMove(nextMove);
+            ++numMoves;
+        }
+        Playout<GR> playout = new Playout<>(playoutGameState.getGameResult(), playedMoves, playedMoveIds);
+        if (rewind) {
+            undoMoves(playoutGameState, numMoves);
+        }
+        return playout;
+    }
+
+    /**
+     * Playout by random fill. Every filled location counts as played for AMAF, including those the
+     * step by step playout would not have reached after the game was decided.
+     */
+    private <GR extends GameResult> Playout<GR> playOutRandomFill(RandomFillGameState<GM,GR> playoutGameState, 
+            BitSet playedMoveIds) {
+        int numFilledMoves = playoutGameState.getNumEmptyLocations();
+        int[] moveBuffer = MoveBuffers.get(numFilledMoves);
+        GR gameResult = playoutGameState.getRandomFillResult(ThreadLocalRandom.current(), moveBuffer);
+        int nextPlayerIndex = playoutGameState.getNextPlayerIndex();
+        int numPlayers = playoutGameState.getAllPlayerNames().size();
+        if (playedMoveIds != null) {
+            for (int i=0; i < numFilledMoves; ++i) {
+                playedMoveIds.set(AMAFPathWalker.getMoveId(moveBuffer[i], (nextPlayerIndex + i) % numPlayers, numPlayers));
+            }
+            return new Playout<>(gameResult, null, playedMoveIds);
+        }
+        Set<GM> playedMoves = Sets.newHashSetWithExpectedSize(numFilledMoves);
+        for (int i=0; i < numFilledMoves; ++i) {
+            playedMoves.add(playoutGameState.getMove((nextPlayerIndex + i) % numPlayers, moveBuffer[i]));
+        }
+        return new Playout<>(gameResult, playedMoves, null);
+    }
+
+    private static void undoMoves(GameState<?,?> gameState, int numMoves) {
+        ReversibleGameState<?,?> reversibleGameState = (ReversibleGameState<?,?>) gameState;
+        for (int i=0; i < numMoves; ++i) {
+            reversibleGameState.undoMove();
+        }
+    }
+
+    /**
+     * Result of a playout with its moves, either as a set or by id.
+     */
+    private final class Playout<GR extends GameResult> {
+        private final GR gameResult;
+        private final Set<GM> playedMoves;
+        private final BitSet playedMoveIds;
+
+        private Playout(GR gameResult, Set<GM> playedMoves, BitSet playedMoveIds) {
+            this.gameResult = gameResult;
+            this.playedMoves = playedMoves;
+            this.playedMoveIds = playedMoveIds;
         }
-        nodeResultsService.propagateGameResultWithAMAF(playoutGameState.getGameResult(), iterator, playedMoves);
-        iterator.expandNode(expansionGameState);
     }
 
     @Override
@@ -81,7 +316,17 @@ public final class AMAFMonteCarloSearchService<GM extends GameMove, NR extends A
 
     @Override
     public <GR extends GameResult, GS extends GameState<GM,GR>> void applyMove(GM move, GS resultingGameState) {
-        searchTree.advanceTree(move, resultingGameState);
+        searchRunner.applyMove(move, resultingGameState);
+    }
+
+    @Override
+    public <GR extends GameResult, GS extends GameState<GM,GR>> void startPondering(GS currentGameState) {
+        searchRunner.startPondering(currentGameState);
+    }
+
+    @Override
+    public void stopPondering() {
+        searchRunner.stopPondering();
     }
 
     public <GR extends GameResult, GS extends GameState<GM,GR>> void logMoveChoices(GS rootGameState) {
@@ -90,6 +335,8 @@ public final class AMAFMonteCarloSearchService<GM extends GameMove, NR extends A
         SearchTreeIterator<GM,NR> iterator = searchTree.iterator();
         while (iterator.hasNextChild()) {
             iterator.advanceChildNode();
+            if (!iterator.hasCurrentChildNode())
+                continue;
             String moveString = rootGameState.getHumanReadableMoveString(iterator.getCurrentChildMove());
             NR nodeResults = iterator.getCurrentChildIterator().getCurrentNodeResults();
             LOGGER.debug("Move {} was visited in {} simulations and has score {}", 
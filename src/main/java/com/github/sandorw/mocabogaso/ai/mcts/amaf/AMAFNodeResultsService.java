@@ -1,6 +1,9 @@
 package com.github.sandorw.mocabogaso.ai.mcts.amaf;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.ToIntFunction;
 
 import com.github.sandorw.mocabogaso.ai.mcts.NodeResultsService;
 import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloSearchTree.SearchTreeIterator;
@@ -26,6 +29,18 @@ public final class AMAFNodeResultsService<NR extends AMAFNodeResults> implements
             NR getNewNodeResults(GM move, GS initialGameState) {
         return nodeResultsFactory.getNewNodeResults(move, initialGameState);
     }
+    
+    @Override
+    public <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> 
+            float getMovePrior(GM move, GS initialGameState) {
+        return nodeResultsFactory.getMovePrior(move, initialGameState);
+    }
+    
+    @Override
+    public <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> 
+            float[] getMovePriors(List<GM> moves, GS initialGameState) {
+        return nodeResultsFactory.getMovePriors(moves, initialGameState);
+    }
 
     public <GM extends GameMove> void propagateGameResultWithAMAF(GameResult gameResult, 
             SearchTreeIterator<GM,NR> treeIterator, Set<GM> playedMoves) {
@@ -33,9 +48,32 @@ public final class AMAFNodeResultsService<NR extends AMAFNodeResults> implements
         treeWalker.applyGameResultWithPlayoutMoves(gameResult, playedMoves);
     }
 
+    public <GM extends GameMove> void propagateGameResultsWithAMAF(List<? extends GameResult> gameResults, 
+            SearchTreeIterator<GM,NR> treeIterator, List<Set<GM>> playedMoves) {
+        AMAFTreeWalker<GM,NR> treeWalker = new AMAFTreeWalker<>(treeIterator);
+        treeWalker.applyGameResultsWithPlayoutMoves(gameResults, playedMoves);
+    }
+
+    /**
+     * Updates only the selection path of the iterator, with the moves of each playout identified 
+     * by id as in AMAFPathWalker.getMoveId.
+     */
+    public <GM extends GameMove> void propagateGameResultsOnPathWithAMAF(List<? extends GameResult> gameResults, 
+            SearchTreeIterator<GM,NR> treeIterator, List<BitSet> playedMoveIds, ToIntFunction<GM> encodedMoves, 
+            int numPlayers, int[] pathPlayerIndices) {
+        AMAFPathWalker<GM,NR> pathWalker = new AMAFPathWalker<>(treeIterator, encodedMoves, numPlayers, pathPlayerIndices);
+        pathWalker.applyGameResultsWithPlayoutMoves(gameResults, playedMoveIds);
+    }
+
     @Override
     public <GM extends GameMove, GR extends GameResult> 
             void propagateGameResult(GR gameResult, SearchTreeIterator<GM,NR> treeIterator) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public <GM extends GameMove, GR extends GameResult> 
+            void propagateGameResults(List<GR> gameResults, SearchTreeIterator<GM,NR> treeIterator) {
+        throw new UnsupportedOperationException();
+    }
 }
@@ -0,0 +1,99 @@
+package com.github.sandorw.mocabogaso.ai.mcts.amaf;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloSearchTree.SearchTreeIterator;
+import com.github.sandorw.mocabogaso.games.GameMove;
+import com.github.sandorw.mocabogaso.games.GameResult;
+
+/**
+ * Alternative to the AMAFTreeWalker that only updates the selection path of the iterator, instead
+ * of every ancestor reachable through transpositions. Played moves are marked by id in a bitset,
+ * and the path is walked from the leaf up with a single cursor, adding each selected move to the
+ * bitset before checking the children of the node it was selected from. Every node is visited once
+ * per playout, so an update is linear in the length of the path times the number of children.
+ * Every child whose move was played gets an AMAF update, including the child on the path. With edge
+ * AMAF, the same updates go to the edge block of each node instead of the children's NodeResults.
+ *
+ * @author sandorw
+ */
+public final class AMAFPathWalker<GM extends GameMove, NR extends AMAFNodeResults> {
+    private final SearchTreeIterator<GM,NR> treeIterator;
+    private final SearchTreeIterator<GM,NR> pathCursor;
+    private final ToIntFunction<GM> encodedMoves;
+    private final int numPlayers;
+    private final int[] pathPlayerIndices;
+    private final Predicate<GM> isPlayed;
+    private BitSet playedMoveIds;
+    private int playerIndex;
+
+    /**
+     * @param encodedMoves maps each move to a small non-negative int identifying it for its player
+     * @param pathPlayerIndices index of the player to move at each node of the selection path, from
+     *     the starting node to the current node of the iterator
+     */
+    public AMAFPathWalker(SearchTreeIterator<GM,NR> iterator, ToIntFunction<GM> encodedMoves, int numPlayers,
+            int[] pathPlayerIndices) {
+        treeIterator = iterator;
+        pathCursor = iterator.getSelectionPathIterator(0);
+        this.encodedMoves = encodedMoves;
+        this.numPlayers = numPlayers;
+        this.pathPlayerIndices = pathPlayerIndices;
+        isPlayed = this::isPlayed;
+    }
+
+    /**
+     * Id of a move in the played move bitsets.
+     */
+    public static int getMoveId(int encodedMove, int playerIndex, int numPlayers) {
+        return numPlayers*encodedMove + playerIndex;
+    }
+
+    /**
+     * Applies each game result with the ids of the moves of its playout, to which the moves of the
+     * selection path are added.
+     */
+    public void applyGameResultsWithPlayoutMoves(List<? extends GameResult> gameResults, List<BitSet> playedMoveIds) {
+        int pathLength = treeIterator.getSelectionPathLength();
+        for (int depth=0; depth <= pathLength; ++depth) {
+            pathCursor.moveToSelectionPathNode(treeIterator, depth);
+            NR nodeResults = pathCursor.getCurrentNodeResults();
+            for (GameResult gameResult : gameResults) {
+                nodeResults.applyGameResult(gameResult);
+            }
+        }
+        for (int i=0; i < gameResults.size(); ++i) {
+            this.playedMoveIds = playedMoveIds.get(i);
+            GameResult gameResult = gameResults.get(i);
+            for (int depth=pathLength; depth >= 0; --depth) {
+                pathCursor.moveToSelectionPathNode(treeIterator, depth);
+                playerIndex = pathPlayerIndices[depth];
+                if (depth < pathLength) {
+                    this.playedMoveIds.set(getMoveId(encodedMoves.applyAsInt(treeIterator.getSelectionPathMove(depth)),
+                            playerIndex, numPlayers));
+                }
+                if (treeIterator.isEdgeAMAF()) {
+                    pathCursor.applyAMAFGameResultToChildren(gameResult, isPlayed);
+                } else {
+                    applyAMAFGameResultToChildNodes(gameResult);
+                }
+            }
+        }
+    }
+
+    private boolean isPlayed(GM move) {
+        return playedMoveIds.get(getMoveId(encodedMoves.applyAsInt(move), playerIndex, numPlayers));
+    }
+
+    private void applyAMAFGameResultToChildNodes(GameResult gameResult) {
+        while (pathCursor.hasNextChild()) {
+            pathCursor.advanceChildNode();
+            if (pathCursor.hasCurrentChildNode() && isPlayed(pathCursor.getCurrentChildMove())) {
+                pathCursor.getCurrentChildNodeResults().applyAMAFGameResult(gameResult);
+            }
+        }
+    }
+}
@@ -1,55 +1,78 @@
 package com.github.sandorw.mocabogaso.ai.mcts.amaf;
 
+import java.util.List;
 import java.util.Set;
 
 import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloSearchTree.SearchTreeIterator;
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 /**
  * Helper class for the AMAFNodeResultsService. Walks the tree to handle normal and AMAF updates.
- * 
+ * Several playouts from the same leaf can be applied with a single walk. Every node reached through
+ * the parents of the leaf is visited once, the first time the walk reaches it, and gets the real
+ * results. Each child of a visited node whose move was played in the playout, or on the way up from
+ * the leaf, gets an AMAF update. With edge AMAF, the same updates go to the edges of the visited
+ * node instead of the children's NodeResults.
+ *
  * @author sandorw
  */
 public final class AMAFTreeWalker<GM extends GameMove, NR extends AMAFNodeResults> {
     private final Set<NR> nodeResultsSet;
-    private final Set<NR> amafNodeResultsSet;
     private final SearchTreeIterator<GM,NR> treeIterator;
 
     public AMAFTreeWalker(SearchTreeIterator<GM,NR> iterator) {
         nodeResultsSet = Sets.newIdentityHashSet();
-        amafNodeResultsSet = Sets.newIdentityHashSet();
         treeIterator = iterator;
     }
-    
+
     public void applyGameResultWithPlayoutMoves(GameResult gameResult, Set<GM> playedMoves) {
-        walkTreeAndCollectNodeResults(treeIterator, playedMoves);
+        applyGameResultsWithPlayoutMoves(ImmutableList.of(gameResult), ImmutableList.of(playedMoves));
+    }
+
+    public void applyGameResultsWithPlayoutMoves(List<? extends GameResult> gameResults, List<Set<GM>> playedMoves) {
+        walkTree(treeIterator, gameResults, playedMoves);
         for (NR nodeResults : nodeResultsSet) {
-            nodeResults.applyGameResult(gameResult);
-        }
-        for (NR nodeResults : amafNodeResultsSet) {
-            nodeResults.applyAMAFGameResult(gameResult);
+            for (GameResult gameResult : gameResults) {
+                nodeResults.applyGameResult(gameResult);
+            }
         }
     }
-    
-    private void walkTreeAndCollectNodeResults(SearchTreeIterator<GM,NR> iterator, Set<GM> playedMoves) {
-        nodeResultsSet.add(iterator.getCurrentNodeResults());
-        while (iterator.hasNextChild()) {
-            iterator.advanceChildNode();
-            GM childMove = iterator.getCurrentChildMove();
-            if (playedMoves.contains(childMove)) {
-                NR nodeResults = iterator.getCurrentChildIterator().getCurrentNodeResults();
-                if (!nodeResultsSet.contains(nodeResults)) {
-                    amafNodeResultsSet.add(nodeResults);
-                }
+
+    private void walkTree(SearchTreeIterator<GM,NR> iterator, List<? extends GameResult> gameResults,
+            List<Set<GM>> playedMoves) {
+        if (!nodeResultsSet.add(iterator.getCurrentNodeResults()))
+            return;
+        for (int i=0; i < gameResults.size(); ++i) {
+            if (iterator.isEdgeAMAF()) {
+                iterator.applyAMAFGameResultToChildren(gameResults.get(i), playedMoves.get(i)::contains);
+            } else {
+                applyAMAFGameResultToChildNodes(iterator, gameResults.get(i), playedMoves.get(i));
             }
         }
         while (iterator.hasNextParent()) {
             iterator.advanceParentNode();
-            Set<GM> updatedPlayedMoves = Sets.newHashSet(playedMoves);
-            updatedPlayedMoves.add(iterator.getCurrentParentMove());
-            walkTreeAndCollectNodeResults(iterator.getCurrentParentIterator(), updatedPlayedMoves);
+            GM parentMove = iterator.getCurrentParentMove();
+            List<Set<GM>> updatedPlayedMoves = Lists.newArrayListWithCapacity(playedMoves.size());
+            for (Set<GM> moves : playedMoves) {
+                Set<GM> updatedMoves = Sets.newHashSet(moves);
+                updatedMoves.add(parentMove);
+                updatedPlayedMoves.add(updatedMoves);
+            }
+            walkTree(iterator.getCurrentParentIterator(), gameResults, updatedPlayedMoves);
+        }
+    }
+
+    private void applyAMAFGameResultToChildNodes(SearchTreeIterator<GM,NR> iterator, GameResult gameResult,
+            Set<GM> playedMoves) {
+        while (iterator.hasNextChild()) {
+            iterator.advanceChildNode();
+            if (iterator.hasCurrentChildNode() && playedMoves.contains(iterator.getCurrentChildMove())) {
+                iterator.getCurrentChildNodeResults().applyAMAFGameResult(gameResult);
+            }
         }
     }
 }
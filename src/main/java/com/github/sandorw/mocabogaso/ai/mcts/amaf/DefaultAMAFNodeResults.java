@@ -1,7 +1,6 @@
 package com.github.sandorw.mocabogaso.ai.mcts.amaf;
 
-import java.util.List;
-
+import com.github.sandorw.mocabogaso.ai.mcts.PackedResultCounts;
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
@@ -9,77 +8,65 @@ import com.github.sandorw.mocabogaso.games.GameState;
 /**
  * Node results that include AMAF results - results propagated to nodes that were not visited in
  * the simulation, but share moves with the playout. AMAF results are combined with real results
- * via the RAVE formula. These results are specifically designed not to be thread safe, to allow
- * performance at the expense of noisy results.
+ * via the RAVE formula. Real and AMAF counts are each kept in PackedResultCounts, so updates are 
+ * thread safe without locking.
  * 
  * @author sandorw
  */
 public final class DefaultAMAFNodeResults implements AMAFNodeResults {
     private final String player1Name;
-    private float player1Score;
-    private float player2Score;
-    private float player1AMAFScore;
-    private float player2AMAFScore;
-    private int numSims;
-    private int numRAVESims;
+    private final PackedResultCounts resultCounts;
+    private final PackedResultCounts amafResultCounts;
     
-    private static float WIN_VALUE = 1.0f;
-    private static float TIE_VALUE = 0.25f;
     private static int SIMS_EQUIV = 1000;
     
     public DefaultAMAFNodeResults(GameState<?,?> gameState) {
-        List<String> playerNames = gameState.getAllPlayerNames();
-        player1Name = playerNames.get(0);
-        player1Score = player1AMAFScore = 0.0f;
-        player2Score = player2AMAFScore = 0.0f;
-        numSims = 0;
-        numRAVESims = 0;
+        player1Name = gameState.getAllPlayerNames().get(0);
+        resultCounts = new PackedResultCounts();
+        amafResultCounts = new PackedResultCounts();
     }
 
     @Override
     public int getNumSimulations() {
-        return numSims;
+        return resultCounts.getNumSimulations();
     }
     
     @Override
     public float getValue(String evaluatingPlayerName) {
-        float playerScore = (evaluatingPlayerName.equals(player1Name) ? player1Score : player2Score);
-        float playerAMAFScore = (evaluatingPlayerName.equals(player1Name) ? player1AMAFScore : player2AMAFScore);
+        return getValue(evaluatingPlayerName.equals(player1Name) ? 0 : 1);
+    }
+    
+    @Override
+    public float getValue(int evaluatingPlayerIndex) {
+        long amafWins = amafResultCounts.getWins();
+        return getValue(evaluatingPlayerIndex, amafResultCounts.getNumSimulations(), amafWins);
+    }
+    
+    @Override
+    public float getValue(int evaluatingPlayerIndex, int numRAVESims, long amafWins) {
+        long wins = resultCounts.getWins();
+        int numSims = resultCounts.getNumSimulations();
         if (numSims + numRAVESims == 0)
             return 0.0f;
+        float playerScore = getScore(numSims, wins, evaluatingPlayerIndex);
+        float playerAMAFScore = getScore(numRAVESims, amafWins, evaluatingPlayerIndex);
         float beta = numRAVESims/(numRAVESims + numSims + (float)numRAVESims*numSims/SIMS_EQUIV);
         float RAVEterm = (numRAVESims == 0 ? 0.0f : beta*playerAMAFScore/numRAVESims);
         float normterm = (numSims == 0 ? 0.0f : (1.0f-beta)*playerScore/numSims);
         return RAVEterm + normterm;
     }
     
+    private static float getScore(int numSimulations, long wins, int playerIndex) {
+        return (float)PackedResultCounts.getPoints(numSimulations, wins, playerIndex)/PackedResultCounts.WIN_POINTS;
+    }
+    
     @Override
     public <GR extends GameResult> void applyGameResult(GR gameResult) {
-        ++numSims;
-        if (gameResult.isTie()) {
-            player1Score += TIE_VALUE;
-            player2Score += TIE_VALUE;
-        } else {
-            if (gameResult.getWinningPlayer().equals(player1Name)) {
-                player1Score += WIN_VALUE;
-            } else {
-                player2Score += WIN_VALUE;
-            }
-        }
+        resultCounts.addGameResult(gameResult, 1);
     }
     
     @Override
     public <GM extends GameMove, GR extends GameResult> void applyAMAFGameResult(GR gameResult) {
-        ++numRAVESims;
-        if (gameResult.isTie()) {
-            player1AMAFScore += TIE_VALUE;
-            player2AMAFScore += TIE_VALUE;
-        } else {
-            if (gameResult.getWinningPlayer().equals(player1Name)) {
-                player1AMAFScore += WIN_VALUE;
-            } else {
-                player2AMAFScore += WIN_VALUE;
-            }
-        }
+        amafResultCounts.addGameResult(gameResult, 1);
     }
 }
@@ -17,4 +17,10 @@ public final class DefaultAMAFNodeResultsFactory implements NodeResultsFactory<D
             DefaultAMAFNodeResults getNewNodeResults(GM move, GS initialGameState) {
         return new DefaultAMAFNodeResults(initialGameState);
     }
+    
+    @Override
+    public <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> 
+            float getMovePrior(GM move, GS initialGameState) {
+        return 0.0f;
+    }
 }
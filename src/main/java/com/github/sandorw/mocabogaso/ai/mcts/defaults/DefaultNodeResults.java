@@ -1,54 +1,47 @@
 package com.github.sandorw.mocabogaso.ai.mcts.defaults;
 
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
-
 import com.github.sandorw.mocabogaso.ai.mcts.NodeResults;
+import com.github.sandorw.mocabogaso.ai.mcts.PackedResultCounts;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
-import com.google.common.collect.MapMaker;
 
 /**
- * Default NodeResults implementation, tracking the number of simulations and wins.
+ * Default NodeResults implementation, tracking the number of simulations and wins. Counts are kept
+ * in PackedResultCounts, so concurrent updates are never lost.
  *
  * @author sandorw
  */
 public final class DefaultNodeResults implements NodeResults {
-    private final Map<String,Float> playerScoreMap;
-    private AtomicInteger numSimulations;
-    
-    private static float WIN_VALUE = 1.0f;
-    private static float TIE_VALUE = 0.25f;
+    private final String player1Name;
+    private final PackedResultCounts resultCounts;
     
     public DefaultNodeResults(GameState<?,?> gameState) {
-        playerScoreMap = new MapMaker()
-                .concurrencyLevel(4)
-                .initialCapacity(4)
-                .makeMap();
-        for (String playerName : gameState.getAllPlayerNames()) {
-            playerScoreMap.put(playerName, 0.0f);
-        }
-        numSimulations = new AtomicInteger(0);
+        player1Name = gameState.getAllPlayerNames().get(0);
+        resultCounts = new PackedResultCounts();
     }
 
     @Override
     public int getNumSimulations() {
-        return numSimulations.get();
+        return resultCounts.getNumSimulations();
     }
     
     @Override
     public float getValue(String evaluatingPlayerName) {
-        return (numSimulations.get() > 0 ? playerScoreMap.get(evaluatingPlayerName)/numSimulations.get() : 0.0f);
+        return getValue(evaluatingPlayerName.equals(player1Name) ? 0 : 1);
+    }
+    
+    @Override
+    public float getValue(int evaluatingPlayerIndex) {
+        long wins = resultCounts.getWins();
+        int numSimulations = resultCounts.getNumSimulations();
+        if (numSimulations == 0)
+            return 0.0f;
+        int playerPoints = PackedResultCounts.getPoints(numSimulations, wins, evaluatingPlayerIndex);
+        return (float)playerPoints/(PackedResultCounts.WIN_POINTS*numSimulations);
     }
     
     @Override
     public <GR extends GameResult> void applyGameResult(GR gameResult) {
-        numSimulations.incrementAndGet();
-        if (gameResult.isTie()) {
-            playerScoreMap.forEach((name, score) -> playerScoreMap.put(name, score + TIE_VALUE));
-        } else {
-            String winningPlayerName = gameResult.getWinningPlayer();
-            playerScoreMap.put(winningPlayerName, playerScoreMap.get(winningPlayerName) + WIN_VALUE);
-        }
+        resultCounts.addGameResult(gameResult, 1);
     }
 }
@@ -18,4 +18,10 @@ public final class DefaultNodeResultsFactory implements NodeResultsFactory<Defau
         return new DefaultNodeResults(initialGameState);
     }
 
+    @Override
+    public <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> 
+            float getMovePrior(GM move, GS initialGameState) {
+        return 0.0f;
+    }
+
 }
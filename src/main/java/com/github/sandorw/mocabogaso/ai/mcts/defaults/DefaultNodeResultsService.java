@@ -1,6 +1,7 @@
 package com.github.sandorw.mocabogaso.ai.mcts.defaults;
 
 import java.util.Deque;
+import java.util.List;
 import java.util.Set;
 
 import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloSearchTree.SearchTreeIterator;
@@ -31,9 +32,37 @@ public final class DefaultNodeResultsService<NR extends NodeResults> implements
         return nodeResultsFactory.getNewNodeResults(move, initialGameState);
     }
     
+    @Override
+    public <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> 
+            float getMovePrior(GM move, GS initialGameState) {
+        return nodeResultsFactory.getMovePrior(move, initialGameState);
+    }
+    
+    @Override
+    public <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> 
+            float[] getMovePriors(List<GM> moves, GS initialGameState) {
+        return nodeResultsFactory.getMovePriors(moves, initialGameState);
+    }
+    
     @Override
     public <GM extends GameMove, GR extends GameResult> 
             void propagateGameResult(GR gameResult, SearchTreeIterator<GM,NR> treeIterator) {
+        for (NR nodeResults : collectNodeResults(treeIterator)) {
+            nodeResults.applyGameResult(gameResult);
+        }
+    }
+    
+    @Override
+    public <GM extends GameMove, GR extends GameResult> 
+            void propagateGameResults(List<GR> gameResults, SearchTreeIterator<GM,NR> treeIterator) {
+        for (NR nodeResults : collectNodeResults(treeIterator)) {
+            for (GR gameResult : gameResults) {
+                nodeResults.applyGameResult(gameResult);
+            }
+        }
+    }
+    
+    private <GM extends GameMove> Set<NR> collectNodeResults(SearchTreeIterator<GM,NR> treeIterator) {
         Set<NR> nodeResultsSet = Sets.newIdentityHashSet();
         Deque<SearchTreeIterator<GM,NR>> iteratorDeque = Queues.newArrayDeque();
         iteratorDeque.push(treeIterator);
@@ -46,8 +75,6 @@ public final class DefaultNodeResultsService<NR extends NodeResults> implements
                 }
             }
         }
-        for (NR nodeResults : nodeResultsSet) {
-            nodeResults.applyGameResult(gameResult);
-        }
+        return nodeResultsSet;
     }
 }
@@ -7,19 +7,41 @@ import com.github.sandorw.mocabogaso.ai.mcts.PlayoutPolicy;
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
+import com.github.sandorw.mocabogaso.games.IntMoveGameState;
+import com.github.sandorw.mocabogaso.games.MoveSamplingGameState;
 
 /**
- * PlayoutPolicy that chooses randomly among the available moves for a given GameState.
+ * PlayoutPolicy that chooses randomly among the available moves for a given GameState. Games that 
+ * can sample a random move themselves are asked to, which avoids listing the valid moves.
  *
  * @author sandorw
  */
 public final class RandomMovePlayoutPolicy implements PlayoutPolicy {
 
     @Override
+    @SuppressWarnings("unchecked")
     public <GM extends GameMove, GS extends GameState<GM, ? extends GameResult>> GM getPlayoutMove(GS gameState) {
+        if (gameState instanceof MoveSamplingGameState) {
+            MoveSamplingGameState<GM,?> samplingGameState = (MoveSamplingGameState<GM,?>) gameState;
+            return samplingGameState.getMove(samplingGameState.getRandomEncodedMove(ThreadLocalRandom.current()));
+        }
         List<GM> moveList = gameState.getAllValidMoves();
         int listIndex = ThreadLocalRandom.current().nextInt(moveList.size());
         return moveList.get(listIndex);
     }
 
+    @Override
+    public <GM extends GameMove, GR extends GameResult> int getEncodedPlayoutMove(IntMoveGameState<GM,GR> gameState, 
+            int[] moveBuffer) {
+        if (gameState instanceof MoveSamplingGameState)
+            return ((MoveSamplingGameState<GM,GR>) gameState).getRandomEncodedMove(ThreadLocalRandom.current());
+        int numMoves = gameState.getAllValidMoves(moveBuffer);
+        return moveBuffer[ThreadLocalRandom.current().nextInt(numMoves)];
+    }
+
+    @Override
+    public boolean isUniformlyRandom() {
+        return true;
+    }
+
 }
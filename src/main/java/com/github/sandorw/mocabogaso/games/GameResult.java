@@ -10,5 +10,10 @@ public interface GameResult {
     boolean isTie();
 
     String getWinningPlayer();
+    
+    /**
+     * Index of the winning player into GameState.getAllPlayerNames, or -1 for a tie.
+     */
+    int getWinningPlayerIndex();
 
 }
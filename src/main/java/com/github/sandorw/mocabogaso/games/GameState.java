@@ -14,6 +14,12 @@ public interface GameState<GM extends GameMove, GR extends GameResult> {
     GameState<GM, GR> getCopy();
 
     String getNextPlayerName();
+    
+    /**
+     * Index of the next player into getAllPlayerNames. Prefer this over getNextPlayerName in
+     * search code, where it avoids comparing Strings.
+     */
+    int getNextPlayerIndex();
 
     List<String> getAllPlayerNames();
 
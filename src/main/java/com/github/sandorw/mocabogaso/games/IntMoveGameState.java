@@ -0,0 +1,32 @@
+package com.github.sandorw.mocabogaso.games;
+
+/**
+ * GameState whose moves can also be handled as ints, so that playouts can generate and apply moves
+ * without allocating. An encoded move is only meaningful for the player about to move in the state
+ * it was generated from.
+ *
+ * @author sandorw
+ */
+public interface IntMoveGameState<GM extends GameMove, GR extends GameResult> extends GameState<GM, GR> {
+
+    /**
+     * Upper bound on the number of valid moves in any state of this game, for sizing move buffers.
+     */
+    int getMaxNumMoves();
+
+    /**
+     * Writes the encoded valid moves into the buffer, in the same order as getAllValidMoves, and 
+     * returns how many there are.
+     */
+    int getAllValidMoves(int[] moveBuffer);
+
+    void applyEncodedMove(int move);
+
+    /**
+     * The shared GameMove instance for an encoded move of the next player.
+     */
+    GM getMove(int move);
+
+    int getEncodedMove(GM move);
+
+}
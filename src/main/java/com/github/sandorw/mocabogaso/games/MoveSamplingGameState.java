@@ -0,0 +1,19 @@
+package com.github.sandorw.mocabogaso.games;
+
+import java.util.Random;
+
+/**
+ * IntMoveGameState that can draw a uniformly random valid move in constant time, without listing
+ * the valid moves first.
+ *
+ * @author sandorw
+ */
+public interface MoveSamplingGameState<GM extends GameMove, GR extends GameResult> extends IntMoveGameState<GM, GR> {
+
+    /**
+     * Encoded valid move for the next player chosen uniformly at random. Only called while the 
+     * game is not over.
+     */
+    int getRandomEncodedMove(Random random);
+
+}
@@ -0,0 +1,29 @@
+package com.github.sandorw.mocabogaso.games;
+
+import java.util.Random;
+
+/**
+ * IntMoveGameState for games that cannot end in a tie and whose result does not change once the
+ * board is full, such as Hex. A uniformly random playout of such a game ends the same way as 
+ * filling every empty location at random and finding the winner once, which is much cheaper than
+ * applying the moves one by one.
+ *
+ * @author sandorw
+ */
+public interface RandomFillGameState<GM extends GameMove, GR extends GameResult> extends IntMoveGameState<GM, GR> {
+
+    int getNumEmptyLocations();
+
+    /**
+     * Result of a uniformly random playout from this state, which is left unchanged. The move 
+     * buffer receives the getNumEmptyLocations filled locations in a random order, with the next 
+     * player's on the even indices and the opponent's on the odd ones.
+     */
+    GR getRandomFillResult(Random random, int[] moveBuffer);
+
+    /**
+     * The shared GameMove instance for an encoded move of the given player.
+     */
+    GM getMove(int playerIndex, int move);
+
+}
@@ -0,0 +1,17 @@
+package com.github.sandorw.mocabogaso.games;
+
+/**
+ * GameState that can take back moves. Search code can then keep rewinding a single state instead
+ * of copying it for every simulated game.
+ *
+ * @author sandorw
+ */
+public interface ReversibleGameState<GM extends GameMove, GR extends GameResult> extends GameState<GM, GR> {
+
+    /**
+     * Takes back the most recent move that has not been undone yet. Only moves applied to this
+     * instance can be undone, not those applied before it was copied.
+     */
+    void undoMove();
+
+}
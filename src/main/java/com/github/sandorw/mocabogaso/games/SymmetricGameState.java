@@ -0,0 +1,25 @@
+package com.github.sandorw.mocabogaso.games;
+
+/**
+ * GameState whose board has symmetries, such as reflections and rotations, under which the game
+ * plays out the same. All symmetric variants of a position share one canonical Zobrist hash, and
+ * moves can be mapped to and from the canonical orientation of the position, so search code can
+ * store a single node for all of them.
+ *
+ * @author sandorw
+ */
+public interface SymmetricGameState<GM extends GameMove, GR extends GameResult> extends GameState<GM, GR> {
+
+    long getCanonicalZobristHash();
+
+    /**
+     * The move in the canonical orientation of this state that corresponds to the given move.
+     */
+    GM toCanonicalMove(GM move);
+
+    /**
+     * Inverse of toCanonicalMove.
+     */
+    GM fromCanonicalMove(GM move);
+
+}
@@ -1,65 +1,110 @@
 package com.github.sandorw.mocabogaso.games.connectx;
 
 import java.util.List;
+import java.util.Random;
 
 import com.github.sandorw.mocabogaso.games.GameState;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMove;
+import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMoveTable;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameResult;
+import com.github.sandorw.mocabogaso.games.defaults.SparseIntSet;
+import com.github.sandorw.mocabogaso.games.mnkgame.BoardSymmetries;
 import com.github.sandorw.mocabogaso.games.mnkgame.MNKGameState;
 import com.github.sandorw.mocabogaso.games.mnkgame.MNKZobristHashService;
 import com.google.common.collect.Lists;
 
+/**
+ * GameState for Connect X - the m,n,k game where stones drop to the lowest empty row of a column.
+ * The height of each column is tracked alongside the MNK bitboards, so the drop point of a column
+ * is known without scanning it. Stones only stack from the bottom, so the left to right mirror
+ * image is the only symmetry.
+ * 
+ * @author sandorw
+ */
 public class ConnectXGameState extends MNKGameState {
+    private final int[] columnHeights;
+    private final SparseIntSet openColumns;
 
     public static ConnectXGameState of(int m, int n, int k) {
-        return new ConnectXGameState(m, n, k, new MNKZobristHashService(m,n));
+        return new ConnectXGameState(m, n, k, MNKZobristHashService.of(m,n), getMoveTable(m, n), 
+                BoardSymmetries.ofColumnMirror(m, n));
     }
     
-    private ConnectXGameState(int m, int n, int k, MNKZobristHashService hashService) {
-        super(m, n, k, hashService, Lists.newArrayList());
+    private ConnectXGameState(int m, int n, int k, MNKZobristHashService hashService, DefaultGameMoveTable moveTable,
+            BoardSymmetries symmetries) {
+        super(m, n, k, hashService, moveTable, symmetries, Lists.newArrayList());
+        columnHeights = new int[n];
+        openColumns = SparseIntSet.full(n);
     }
     
     @Override
     public GameState<DefaultGameMove, DefaultGameResult> getCopy() {
-        ConnectXGameState copy = new ConnectXGameState(numRows, numCols, goalNumInARow, zobristHashService);
-        for (int i=0; i < numRows; ++i)
-            for (int j=0; j < numCols; ++j)
-                copy.boardLocation[i][j] = boardLocation[i][j];
-        copy.nextPlayerName = nextPlayerName;
-        copy.winningPlayerName = winningPlayerName;
-        copy.zobristHash = zobristHash; 
+        ConnectXGameState copy = new ConnectXGameState(numRows, numCols, goalNumInARow, zobristHashService, moveTable, symmetries);
+        copyStateTo(copy);
+        System.arraycopy(columnHeights, 0, copy.columnHeights, 0, numCols);
+        openColumns.copyTo(copy.openColumns);
         return copy;
     }
     
     @Override
     public List<DefaultGameMove> getAllValidMoves() {
-        List<DefaultGameMove> moveList = Lists.newArrayList();
+        List<DefaultGameMove> moveList = Lists.newArrayListWithCapacity(numCols);
         for (int j=0; j < numCols; ++j)
-            for (int i=0; i < numRows; ++i)
-                if (boardLocation[i][j] == BoardStatus.EMPTY) {
-                    moveList.add(new DefaultGameMove(nextPlayerName, i*numCols + j));
-                    break;
-                }
+            if (columnHeights[j] < numRows)
+                moveList.add(moveTable.get(nextPlayerIndex, columnHeights[j]*numCols + j));
         return moveList;
     }
     
+    @Override
+    public int getMaxNumMoves() {
+        return numCols;
+    }
+    
+    @Override
+    public int getAllValidMoves(int[] moveBuffer) {
+        int numMoves = 0;
+        for (int j=0; j < numCols; ++j)
+            if (columnHeights[j] < numRows)
+                moveBuffer[numMoves++] = columnHeights[j]*numCols + j;
+        return numMoves;
+    }
+    
     @Override
     public boolean isValidMove(DefaultGameMove move) {
         int i = getRowNumber(move.getLocation());
         int j = getColNumber(move.getLocation());
-        return super.isValidMove(move) && ((i == 0) || (boardLocation[i-1][j] != BoardStatus.EMPTY));
+        return super.isValidMove(move) && (columnHeights[j] == i);
+    }
+    
+    @Override
+    public int getRandomEncodedMove(Random random) {
+        int column = openColumns.get(random.nextInt(openColumns.size()));
+        return columnHeights[column]*numCols + column;
+    }
+    
+    @Override
+    protected void applyMove(int playerIndex, int location) {
+        int column = getColNumber(location);
+        if (++columnHeights[column] == numRows)
+            openColumns.remove(column);
+        super.applyMove(playerIndex, location);
+    }
+    
+    @Override
+    public void undoMove() {
+        if (numMovesPlayed > 0) {
+            int column = getColNumber(moveHistory[numMovesPlayed-1]);
+            --columnHeights[column];
+            openColumns.add(column);
+        }
+        super.undoMove();
     }
 
     @Override
     public DefaultGameMove getMoveFromString(String input) {
         int colNumber = Integer.parseInt(input);
-        int rowNumber = 0;
-        for (int i=0; i < numRows; ++i)
-            if (boardLocation[i][colNumber] == BoardStatus.EMPTY) {
-                rowNumber = i;
-                break;
-            }
-        return new DefaultGameMove(nextPlayerName, rowNumber*numCols + colNumber);
+        int rowNumber = Math.min(columnHeights[colNumber], numRows - 1);
+        return new DefaultGameMove(getNextPlayerName(), rowNumber*numCols + colNumber);
     }
     
     @Override
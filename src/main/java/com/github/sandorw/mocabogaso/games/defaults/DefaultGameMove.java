@@ -1,7 +1,5 @@
 package com.github.sandorw.mocabogaso.games.defaults;
 
-import java.util.Objects;
-
 import com.github.sandorw.mocabogaso.games.GameMove;
 
 /**
@@ -45,7 +43,7 @@ public final class DefaultGameMove implements GameMove {
     
     @Override
     public int hashCode() {
-        return Objects.hash(playerName, location);
+        return 31*(31 + playerName.hashCode()) + location;
     }
 
 }
@@ -0,0 +1,43 @@
+package com.github.sandorw.mocabogaso.games.defaults;
+
+import java.util.List;
+
+/**
+ * Interned DefaultGameMoves for every player and location of a board. A game creates one table and
+ * shares it with all of its copies, so handing out moves never allocates.
+ *
+ * @author sandorw
+ */
+public final class DefaultGameMoveTable {
+    private final DefaultGameMove[][] moves;
+    
+    public DefaultGameMoveTable(List<String> playerNames, int numLocations) {
+        moves = new DefaultGameMove[playerNames.size()][numLocations];
+        for (int i=0; i < moves.length; ++i) {
+            for (int location=0; location < numLocations; ++location) {
+                moves[i][location] = new DefaultGameMove(playerNames.get(i), location);
+            }
+        }
+    }
+    
+    public DefaultGameMove get(int playerIndex, int location) {
+        return moves[playerIndex][location];
+    }
+    
+    /**
+     * Index of the player of a move on this board. Moves handed out by the table are recognized 
+     * by identity, and only other instances are matched by player name.
+     */
+    public int getPlayerIndex(DefaultGameMove move) {
+        int location = move.getLocation();
+        for (int i=0; i < moves.length; ++i) {
+            if (moves[i][location] == move)
+                return i;
+        }
+        for (int i=0; i < moves.length; ++i) {
+            if (moves[i][location].getPlayerName().equals(move.getPlayerName()))
+                return i;
+        }
+        throw new IllegalArgumentException("Unknown player " + move.getPlayerName());
+    }
+}
@@ -3,16 +3,18 @@ package com.github.sandorw.mocabogaso.games.defaults;
 import com.github.sandorw.mocabogaso.games.GameResult;
 
 /**
- * Default GameResult implementation. Stores the winning player's name. Allows for a tie.
+ * Default GameResult implementation. Stores the winning player's name and index. Allows for a tie.
  *
  * @author sandorw
  */
 public final class DefaultGameResult implements GameResult {
     private final String winningPlayerName;
+    private final int winningPlayerIndex;
     private final boolean isTie;
     
-    public DefaultGameResult(String winningPlayerName, boolean isTie) {
+    public DefaultGameResult(String winningPlayerName, int winningPlayerIndex, boolean isTie) {
         this.winningPlayerName = winningPlayerName;
+        this.winningPlayerIndex = (isTie ? -1 : winningPlayerIndex);
         this.isTie = isTie;
     }
     
@@ -26,6 +28,11 @@ public final class DefaultGameResult implements GameResult {
         return winningPlayerName;
     }
     
+    @Override
+    public int getWinningPlayerIndex() {
+        return winningPlayerIndex;
+    }
+    
     @Override
     public String toString() {
         return "DefaultGameResult: [" + (isTie ? "Tie" : winningPlayerName + " won") + "]";
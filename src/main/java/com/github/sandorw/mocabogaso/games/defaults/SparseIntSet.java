@@ -0,0 +1,72 @@
+package com.github.sandorw.mocabogaso.games.defaults;
+
+/**
+ * Set of the ints 0 to capacity-1 with constant time add, remove, contains and access by index.
+ * Members are kept densely packed at the front of an array, and removing one moves the last member
+ * into its slot. The order of members is therefore arbitrary, but picking a uniformly random index
+ * below size picks a uniformly random member.
+ *
+ * @author sandorw
+ */
+public final class SparseIntSet {
+    private final int[] members;
+    private final int[] positions;
+    private int size;
+    
+    public SparseIntSet(int capacity) {
+        members = new int[capacity];
+        positions = new int[capacity];
+        size = 0;
+    }
+    
+    /**
+     * A set that initially contains every int below capacity.
+     */
+    public static SparseIntSet full(int capacity) {
+        SparseIntSet set = new SparseIntSet(capacity);
+        for (int i=0; i < capacity; ++i) {
+            set.members[i] = i;
+            set.positions[i] = i;
+        }
+        set.size = capacity;
+        return set;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int get(int index) {
+        return members[index];
+    }
+    
+    public boolean contains(int value) {
+        int position = positions[value];
+        return (position < size) && (members[position] == value);
+    }
+    
+    public void add(int value) {
+        if (contains(value))
+            return;
+        members[size] = value;
+        positions[value] = size++;
+    }
+    
+    public void remove(int value) {
+        if (!contains(value))
+            return;
+        int position = positions[value];
+        int lastMember = members[--size];
+        members[position] = lastMember;
+        positions[lastMember] = position;
+    }
+    
+    /**
+     * Makes the other set, which must have the same capacity, equal to this one.
+     */
+    public void copyTo(SparseIntSet other) {
+        System.arraycopy(members, 0, other.members, 0, members.length);
+        System.arraycopy(positions, 0, other.positions, 0, positions.length);
+        other.size = size;
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.sandorw.mocabogaso.games.hex;
 
+import java.util.List;
+
 import com.github.sandorw.mocabogaso.ai.mcts.Heuristic;
 import com.github.sandorw.mocabogaso.games.GameState;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMove;
@@ -30,40 +32,54 @@ public class FirstLineHeuristic implements Heuristic<DefaultGameMove, DefaultGam
             return null;
         }
         HexGameState hexGameState = (HexGameState) initialGameState;
-        int rowIndex = hexGameState.getRowNumber(move.getLocation());
-        int colIndex = hexGameState.getColNumber(move.getLocation());
+        if (isUnforcedPerimeterMove(hexGameState, move.getLocation())) {
+            return new DefaultGameResult(hexGameState.getLastPlayerName(), hexGameState.getLastPlayerIndex(), false);
+        }
+        return null;
+    }
+
+    @Override
+    public <GS extends GameState<DefaultGameMove, DefaultGameResult>> void 
+            evaluateMoves(List<DefaultGameMove> moves, GS initialGameState, int[] outcomes) {
+        HexGameState hexGameState = (HexGameState) initialGameState;
+        int lastPlayerIndex = hexGameState.getLastPlayerIndex();
+        for (int i=0; i < moves.size(); ++i) {
+            outcomes[i] = (isUnforcedPerimeterMove(hexGameState, moves.get(i).getLocation()) ? lastPlayerIndex : NO_RESULT);
+        }
+    }
+
+    private static boolean isUnforcedPerimeterMove(HexGameState hexGameState, int location) {
+        int rowIndex = hexGameState.getRowNumber(location);
+        int colIndex = hexGameState.getColNumber(location);
         int boardSize = hexGameState.boardSize;
         if ((rowIndex > 0) && (rowIndex < boardSize-1) && 
                 (colIndex > 0) && (colIndex < boardSize-1)) {
-            return null;
+            return false;
         }
         boolean hasNeighbor = false;
         if (rowIndex != 0) {
-            if (hexGameState.boardLocation[rowIndex-1][colIndex] != BoardStatus.EMPTY) {
+            if (hexGameState.getBoardStatus(rowIndex-1, colIndex) != BoardStatus.EMPTY) {
                 hasNeighbor = true;
             }
-            if ((colIndex != 0) && (hexGameState.boardLocation[rowIndex-1][colIndex-1] != BoardStatus.EMPTY)) {
+            if ((colIndex != 0) && (hexGameState.getBoardStatus(rowIndex-1, colIndex-1) != BoardStatus.EMPTY)) {
                 hasNeighbor = true;
             }
         }
         if (rowIndex != boardSize-1) {
-            if (hexGameState.boardLocation[rowIndex+1][colIndex] != BoardStatus.EMPTY) {
+            if (hexGameState.getBoardStatus(rowIndex+1, colIndex) != BoardStatus.EMPTY) {
                 hasNeighbor = true;
             }
-            if ((colIndex != boardSize-1) && (hexGameState.boardLocation[rowIndex+1][colIndex+1] != BoardStatus.EMPTY)) {
+            if ((colIndex != boardSize-1) && (hexGameState.getBoardStatus(rowIndex+1, colIndex+1) != BoardStatus.EMPTY)) {
                 hasNeighbor = true;
             }
         }
-        if ((colIndex != 0) && (hexGameState.boardLocation[rowIndex][colIndex-1] != BoardStatus.EMPTY)) {
+        if ((colIndex != 0) && (hexGameState.getBoardStatus(rowIndex, colIndex-1) != BoardStatus.EMPTY)) {
             hasNeighbor = true;
         }
-        if ((colIndex != boardSize-1) && (hexGameState.boardLocation[rowIndex][colIndex+1] != BoardStatus.EMPTY)) {
+        if ((colIndex != boardSize-1) && (hexGameState.getBoardStatus(rowIndex, colIndex+1) != BoardStatus.EMPTY)) {
             hasNeighbor = true;
         }
-        if (!hasNeighbor) {
-            return new DefaultGameResult(hexGameState.getLastPlayerName(), false);
-        }
-        return null;
+        return !hasNeighbor;
     }
 
     @Override
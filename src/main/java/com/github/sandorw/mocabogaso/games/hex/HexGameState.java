@@ -1,28 +1,56 @@
 package com.github.sandorw.mocabogaso.games.hex;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.github.sandorw.mocabogaso.ai.mcts.Heuristic;
 import com.github.sandorw.mocabogaso.games.GameState;
+import com.github.sandorw.mocabogaso.games.MoveSamplingGameState;
+import com.github.sandorw.mocabogaso.games.RandomFillGameState;
+import com.github.sandorw.mocabogaso.games.ReversibleGameState;
+import com.github.sandorw.mocabogaso.games.SymmetricGameState;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMove;
+import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMoveTable;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameResult;
+import com.github.sandorw.mocabogaso.games.defaults.SparseIntSet;
+import com.github.sandorw.mocabogaso.games.mnkgame.BoardSymmetries;
 import com.github.sandorw.mocabogaso.games.mnkgame.MNKZobristHashService;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 /**
- * GameState implementation for the board game Hex.
+ * GameState implementation for the board game Hex. Stones are kept in one bitboard per player, 
+ * indexed by location. Connectivity is tracked with a flat union-find over the locations plus four
+ * virtual nodes for the board edges, so a player has won as soon as their two edges share a root.
+ * The union-find stores the negated size at each root and uses union by size without path 
+ * compression, which lets every union be undone. The board plays the same when rotated by 180
+ * degrees, so the stones are hashed both ways round and the smaller hash is the canonical one.
  * 
  * @author sandorw
  */
-public final class HexGameState implements GameState<DefaultGameMove, DefaultGameResult> {
-    protected BoardStatus[][] boardLocation;
-    protected Group[][] groups;
+public final class HexGameState implements ReversibleGameState<DefaultGameMove, DefaultGameResult>,
+        MoveSamplingGameState<DefaultGameMove, DefaultGameResult>, RandomFillGameState<DefaultGameMove, DefaultGameResult>,
+        SymmetricGameState<DefaultGameMove, DefaultGameResult> {
+    protected final long[][] stones;
+    protected final int[] parents;
+    protected final int[] moveHistory;
+    protected final int[] unionHistory;
+    protected final int[] unionHistorySizes;
+    protected int numMovesPlayed;
+    protected final SparseIntSet emptyLocations;
+    protected int numUnions;
     protected final int boardSize;
-    protected String nextPlayerName;
-    protected String winningPlayerName;
+    protected final int[] neighborLocations;
+    protected int nextPlayerIndex;
+    protected int winningPlayerIndex;
     protected long zobristHash;
     protected final MNKZobristHashService zobristHashService;
+    protected final DefaultGameMoveTable moveTable;
+    protected final BoardSymmetries symmetries;
+    protected final long[] symmetricStoneHashes;
     protected final List<Heuristic<DefaultGameMove, DefaultGameResult>> heuristicList;
     
     protected enum BoardStatus {
@@ -50,8 +78,15 @@ public final class HexGameState implements GameState<DefaultGameMove, DefaultGam
         }
     }
     
-    public static final List<Integer> neighborRowDelta = ImmutableList.of(1, 1, 0, -1, -1, 0);
-    public static final List<Integer> neighborColDelta = ImmutableList.of(0, 1, 1, 0, -1, -1);
+    private static final List<String> PLAYER_NAMES = ImmutableList.of("X","O");
+    static final int[] NEIGHBOR_ROW_DELTAS = {1, 1, 0, -1, -1, 0};
+    static final int[] NEIGHBOR_COL_DELTAS = {0, 1, 1, 0, -1, -1};
+    private static final int NUM_NEIGHBORS = 6;
+    private static final Map<Integer, int[]> NEIGHBOR_LOCATIONS = new ConcurrentHashMap<>();
+    private static final Map<Integer, DefaultGameMoveTable> MOVE_TABLES = new ConcurrentHashMap<>();
+    private static final ThreadLocal<long[]> FILL_STONES = ThreadLocal.withInitial(() -> new long[0]);
+    private static final ThreadLocal<long[]> REACHED_LOCATIONS = ThreadLocal.withInitial(() -> new long[0]);
+    private static final ThreadLocal<int[]> LOCATION_STACK = ThreadLocal.withInitial(() -> new int[0]);
     
     public static HexGameState of(int boardSize) {
         List<Heuristic<DefaultGameMove, DefaultGameResult>> heuristics = Lists.newArrayList();
@@ -59,79 +94,240 @@ public final class HexGameState implements GameState<DefaultGameMove, DefaultGam
         heuristics.add(new FirstLineHeuristic(15));
         heuristics.add(new OneSpaceHopHeuristic(10));
         heuristics.add(new SecureConnectionHeuristic(15));
-        return new HexGameState(boardSize, new MNKZobristHashService(boardSize, boardSize), heuristics);
+        if (boardSize < 2)
+            throw new IllegalArgumentException("Board size must be greater than 1");
+        HexGameState gameState = new HexGameState(boardSize, 
+                NEIGHBOR_LOCATIONS.computeIfAbsent(boardSize, HexGameState::getNeighborLocations), 
+                MNKZobristHashService.of(boardSize, boardSize), 
+                MOVE_TABLES.computeIfAbsent(boardSize, size -> new DefaultGameMoveTable(PLAYER_NAMES, size*size)),
+                BoardSymmetries.ofHalfTurn(boardSize, boardSize), heuristics);
+        Arrays.fill(gameState.parents, -1);
+        return gameState;
     }
     
-    private HexGameState(int boardSize, MNKZobristHashService hashService,
+    private HexGameState(int boardSize, int[] neighborLocations, MNKZobristHashService hashService,
+            DefaultGameMoveTable moveTable, BoardSymmetries symmetries, 
             List<Heuristic<DefaultGameMove, DefaultGameResult>> heuristics) {
-        if (boardSize < 2)
-            throw new IllegalArgumentException("Board size must be greater than 1");
         this.boardSize = boardSize;
-        boardLocation = new BoardStatus[boardSize][boardSize];
-        groups = new Group[boardSize][boardSize];
-        for (int i=0; i < boardSize; ++i)
-            for (int j=0; j < boardSize; ++j)
-                boardLocation[i][j] = BoardStatus.EMPTY;
-        nextPlayerName = "X";
-        winningPlayerName = "";
-        zobristHash = 0L;
+        this.neighborLocations = neighborLocations;
+        int numLocations = boardSize*boardSize;
+        stones = new long[2][(numLocations + 63) >>> 6];
+        parents = new int[numLocations + 4];
+        moveHistory = new int[numLocations];
+        unionHistory = new int[2*(numLocations + 4)];
+        unionHistorySizes = new int[numLocations];
+        numMovesPlayed = 0;
+        emptyLocations = SparseIntSet.full(numLocations);
+        numUnions = 0;
+        nextPlayerIndex = BoardStatus.X.getIndex();
+        winningPlayerIndex = -1;
         zobristHashService = hashService;
+        zobristHash = hashService.getSideToMoveHash(nextPlayerIndex);
+        this.moveTable = moveTable;
+        this.symmetries = symmetries;
+        symmetricStoneHashes = new long[symmetries.getNumSymmetries()];
         heuristicList = heuristics;
     }
     
-    @Override
-    public GameState<DefaultGameMove, DefaultGameResult> getCopy() {
-        HexGameState copy = new HexGameState(boardSize, zobristHashService, heuristicList);
+    /**
+     * Flat table of the six neighbors of every location, with -1 for those off the board. Shared by
+     * all states of the same board size.
+     */
+    private static int[] getNeighborLocations(int boardSize) {
+        int[] neighborLocations = new int[boardSize*boardSize*NUM_NEIGHBORS];
         for (int i=0; i < boardSize; ++i) {
             for (int j=0; j < boardSize; ++j) {
-                copy.boardLocation[i][j] = boardLocation[i][j];
-            }
-        }
-        for (int i=0; i < boardSize; ++i) {
-            for (int j=0; j < boardSize; ++j) {
-                if ((groups[i][j] != null) && (copy.groups[i][j] == null)) {
-                    Group existingGroup = groups[i][j];
-                    Group copiedGroup = new Group(existingGroup);
-                    for (int k=0; k < boardSize; ++k) {
-                        for (int m=0; m < boardSize; ++m) {
-                            if (groups[k][m] == existingGroup) {
-                                copy.groups[k][m] = copiedGroup;
-                            }
-                        }
-                    }
+                for (int k=0; k < NUM_NEIGHBORS; ++k) {
+                    int neighborRow = i + NEIGHBOR_ROW_DELTAS[k];
+                    int neighborCol = j + NEIGHBOR_COL_DELTAS[k];
+                    boolean inBounds = (neighborRow >= 0) && (neighborRow < boardSize) 
+                            && (neighborCol >= 0) && (neighborCol < boardSize);
+                    neighborLocations[(i*boardSize + j)*NUM_NEIGHBORS + k] = 
+                            (inBounds ? neighborRow*boardSize + neighborCol : -1);
                 }
             }
         }
-        copy.nextPlayerName = nextPlayerName;
+        return neighborLocations;
+    }
+    
+    /**
+     * Copies the board and connectivity. Moves applied before the copy cannot be undone on it.
+     */
+    @Override
+    public GameState<DefaultGameMove, DefaultGameResult> getCopy() {
+        HexGameState copy = new HexGameState(boardSize, neighborLocations, zobristHashService, moveTable, symmetries, 
+                heuristicList);
+        System.arraycopy(stones[0], 0, copy.stones[0], 0, stones[0].length);
+        System.arraycopy(stones[1], 0, copy.stones[1], 0, stones[1].length);
+        System.arraycopy(parents, 0, copy.parents, 0, parents.length);
+        emptyLocations.copyTo(copy.emptyLocations);
+        System.arraycopy(symmetricStoneHashes, 0, copy.symmetricStoneHashes, 0, symmetricStoneHashes.length);
+        copy.nextPlayerIndex = nextPlayerIndex;
+        copy.winningPlayerIndex = winningPlayerIndex;
         copy.zobristHash = zobristHash;
         return copy;
     }
 
     @Override
     public String getNextPlayerName() {
-        return nextPlayerName;
+        return PLAYER_NAMES.get(nextPlayerIndex);
+    }
+
+    @Override
+    public int getNextPlayerIndex() {
+        return nextPlayerIndex;
     }
     
     public String getLastPlayerName() {
-        return (nextPlayerName.equals("X") ? "O" : "X");
+        return PLAYER_NAMES.get(getLastPlayerIndex());
+    }
+    
+    public int getLastPlayerIndex() {
+        return 1 - nextPlayerIndex;
     }
 
     @Override
     public List<String> getAllPlayerNames() {
-        return ImmutableList.of("X","O");
+        return PLAYER_NAMES;
     }
 
     @Override
     public List<DefaultGameMove> getAllValidMoves() {
         List<DefaultGameMove> moveList = Lists.newArrayList();
+        int numLocations = boardSize*boardSize;
+        for (int word=0; word < stones[0].length; ++word) {
+            long emptyLocations = ~(stones[0][word] | stones[1][word]);
+            while (emptyLocations != 0L) {
+                int location = (word << 6) + Long.numberOfTrailingZeros(emptyLocations);
+                if (location >= numLocations)
+                    break;
+                moveList.add(moveTable.get(nextPlayerIndex, location));
+                emptyLocations &= emptyLocations - 1;
+            }
+        }
+        return moveList;
+    }
+    
+    @Override
+    public int getMaxNumMoves() {
+        return boardSize*boardSize;
+    }
+    
+    @Override
+    public int getAllValidMoves(int[] moveBuffer) {
+        int numMoves = 0;
+        int numLocations = boardSize*boardSize;
+        for (int word=0; word < stones[0].length; ++word) {
+            long emptyLocations = ~(stones[0][word] | stones[1][word]);
+            while (emptyLocations != 0L) {
+                int location = (word << 6) + Long.numberOfTrailingZeros(emptyLocations);
+                if (location >= numLocations)
+                    break;
+                moveBuffer[numMoves++] = location;
+                emptyLocations &= emptyLocations - 1;
+            }
+        }
+        return numMoves;
+    }
+    
+    @Override
+    public DefaultGameMove getMove(int move) {
+        return moveTable.get(nextPlayerIndex, move);
+    }
+    
+    @Override
+    public int getRandomEncodedMove(Random random) {
+        return emptyLocations.get(random.nextInt(emptyLocations.size()));
+    }
+    
+    @Override
+    public DefaultGameMove getMove(int playerIndex, int move) {
+        return moveTable.get(playerIndex, move);
+    }
+    
+    @Override
+    public int getNumEmptyLocations() {
+        return emptyLocations.size();
+    }
+    
+    /**
+     * Shuffles the empty locations, gives every other one to X and checks once whether X's stones
+     * join the first and last columns. The board is full, so if they do not, O has won. The 
+     * scratch arrays are reused by each thread, so a playout allocates nothing but its result.
+     */
+    @Override
+    public DefaultGameResult getRandomFillResult(Random random, int[] moveBuffer) {
+        if (isGameOver())
+            return getGameResult();
+        int numEmptyLocations = emptyLocations.size();
+        for (int k=0; k < numEmptyLocations; ++k) {
+            int swapIndex = random.nextInt(k+1);
+            moveBuffer[k] = moveBuffer[swapIndex];
+            moveBuffer[swapIndex] = emptyLocations.get(k);
+        }
+        int xIndex = BoardStatus.X.getIndex();
+        int numWords = stones[xIndex].length;
+        long[] xStones = getBuffer(FILL_STONES, numWords);
+        System.arraycopy(stones[xIndex], 0, xStones, 0, numWords);
+        for (int k=(nextPlayerIndex == xIndex ? 0 : 1); k < numEmptyLocations; k += 2) {
+            xStones[moveBuffer[k] >>> 6] |= 1L << moveBuffer[k];
+        }
+        int winner = (connectsFirstAndLastColumns(xStones) ? xIndex : BoardStatus.O.getIndex());
+        return new DefaultGameResult(PLAYER_NAMES.get(winner), winner, false);
+    }
+    
+    private boolean connectsFirstAndLastColumns(long[] playerStones) {
+        int numWords = stones[0].length;
+        long[] reached = getBuffer(REACHED_LOCATIONS, numWords);
+        Arrays.fill(reached, 0, numWords, 0L);
+        int[] stack = LOCATION_STACK.get();
+        if (stack.length < boardSize*boardSize) {
+            stack = new int[boardSize*boardSize];
+            LOCATION_STACK.set(stack);
+        }
+        int stackSize = 0;
         for (int i=0; i < boardSize; ++i) {
-            for (int j=0; j < boardSize; ++j) {
-                if (boardLocation[i][j] == BoardStatus.EMPTY) {
-                    moveList.add(new DefaultGameMove(nextPlayerName, i*boardSize + j));
+            int location = i*boardSize;
+            if (hasBit(playerStones, location)) {
+                reached[location >>> 6] |= 1L << location;
+                stack[stackSize++] = location;
+            }
+        }
+        while (stackSize > 0) {
+            int location = stack[--stackSize];
+            if (getColNumber(location) == boardSize-1)
+                return true;
+            for (int k=location*NUM_NEIGHBORS; k < (location+1)*NUM_NEIGHBORS; ++k) {
+                int neighbor = neighborLocations[k];
+                if ((neighbor >= 0) && hasBit(playerStones, neighbor) && !hasBit(reached, neighbor)) {
+                    reached[neighbor >>> 6] |= 1L << neighbor;
+                    stack[stackSize++] = neighbor;
                 }
             }
         }
-        return moveList;
+        return false;
+    }
+    
+    /**
+     * The buffer of the calling thread, grown to at least the given length. Words past that length
+     * may hold stale bits, which are never read since they hold no board location.
+     */
+    private static long[] getBuffer(ThreadLocal<long[]> buffers, int minLength) {
+        long[] buffer = buffers.get();
+        if (buffer.length < minLength) {
+            buffer = new long[minLength];
+            buffers.set(buffer);
+        }
+        return buffer;
+    }
+    
+    private static boolean hasBit(long[] bits, int location) {
+        return (bits[location >>> 6] & (1L << location)) != 0L;
+    }
+    
+    @Override
+    public int getEncodedMove(DefaultGameMove move) {
+        return move.getLocation();
     }
 
     @Override
@@ -139,9 +335,9 @@ public final class HexGameState implements GameState<DefaultGameMove, DefaultGam
         try {
             int columnIndex = (int)input.charAt(0) - 65;
             int rowIndex = Integer.parseInt(input.substring(1))-1;
-            return new DefaultGameMove(nextPlayerName, rowIndex*boardSize + columnIndex);
+            return new DefaultGameMove(getNextPlayerName(), rowIndex*boardSize + columnIndex);
         } catch (IndexOutOfBoundsException | NumberFormatException e) {
-            return new DefaultGameMove(nextPlayerName, -1);
+            return new DefaultGameMove(getNextPlayerName(), -1);
         }
     }
     
@@ -158,9 +354,34 @@ public final class HexGameState implements GameState<DefaultGameMove, DefaultGam
         int i = getRowNumber(move.getLocation());
         int j = getColNumber(move.getLocation());
         if (!isIndexInBounds(i) || !isIndexInBounds(j) || 
-                (!move.getPlayerName().equals(nextPlayerName)))
+                (!move.getPlayerName().equals(getNextPlayerName())))
             return false;
-        return boardLocation[i][j] == BoardStatus.EMPTY;
+        return !isOccupied(move.getLocation());
+    }
+    
+    private boolean isOccupied(int location) {
+        return hasStone(0, location) || hasStone(1, location);
+    }
+    
+    private boolean hasStone(int playerIndex, int location) {
+        return (stones[playerIndex][location >>> 6] & (1L << location)) != 0L;
+    }
+    
+    protected BoardStatus getBoardStatus(int i, int j) {
+        int location = i*boardSize + j;
+        if (hasStone(0, location))
+            return BoardStatus.X;
+        if (hasStone(1, location))
+            return BoardStatus.O;
+        return BoardStatus.EMPTY;
+    }
+    
+    /**
+     * Identifies the group of connected stones at the location. Groups touching the same board
+     * edge count as connected through it.
+     */
+    protected int getGroup(int i, int j) {
+        return find(i*boardSize + j);
     }
     
     public boolean isIndexInBounds(int index) {
@@ -177,51 +398,148 @@ public final class HexGameState implements GameState<DefaultGameMove, DefaultGam
 
     @Override
     public void applyMove(DefaultGameMove move) {
-        int i = getRowNumber(move.getLocation());
-        int j = getColNumber(move.getLocation());
-        BoardStatus newStatus = (move.getPlayerName().equals("X") ? BoardStatus.X : BoardStatus.O);
-        boardLocation[i][j] = newStatus;
-        groups[i][j] = new Group(i,j,newStatus);
-        for (int k=0; k < 6; ++k) {
-            checkAndJoinNeighboringGroups(i,j,i+neighborRowDelta.get(k),j+neighborColDelta.get(k));
+        applyMove(moveTable.getPlayerIndex(move), move.getLocation());
+    }
+    
+    @Override
+    public void applyEncodedMove(int move) {
+        applyMove(nextPlayerIndex, move);
+    }
+    
+    private void applyMove(int playerIndex, int location) {
+        int i = getRowNumber(location);
+        int j = getColNumber(location);
+        stones[playerIndex][location >>> 6] |= 1L << location;
+        emptyLocations.remove(location);
+        unionHistorySizes[numMovesPlayed] = numUnions;
+        moveHistory[numMovesPlayed++] = location;
+        for (int k=location*NUM_NEIGHBORS; k < (location+1)*NUM_NEIGHBORS; ++k) {
+            int neighbor = neighborLocations[k];
+            if ((neighbor >= 0) && hasStone(playerIndex, neighbor)) {
+                union(location, neighbor);
+            }
+        }
+        int firstEdge = getFirstEdgeNode(playerIndex);
+        int edgeIndex = (playerIndex == BoardStatus.X.getIndex() ? j : i);
+        if (edgeIndex == 0) {
+            union(location, firstEdge);
+        }
+        if (edgeIndex == boardSize-1) {
+            union(location, firstEdge + 1);
+        }
+        if (find(firstEdge) == find(firstEdge + 1)) {
+            winningPlayerIndex = playerIndex;
         }
-        zobristHash ^= zobristHashService.getLocationHash(i,j,newStatus.getIndex());
+        zobristHash ^= zobristHashService.getLocationHash(location,playerIndex);
+        updateSymmetricStoneHashes(playerIndex, location);
         toggleCurrentPlayer();
     }
     
-    private void checkAndJoinNeighboringGroups(int i, int j, int neighborRow, int neighborCol) {
-        if (isIndexInBounds(neighborRow) && isIndexInBounds(neighborCol)
-                && (boardLocation[i][j] == boardLocation[neighborRow][neighborCol])) {
-            addAllToGroup(groups[i][j], groups[neighborRow][neighborCol]);
+    /**
+     * X connects the first and last columns, O the first and last rows. Each player's two edges
+     * are consecutive virtual nodes after the board locations.
+     */
+    private int getFirstEdgeNode(int playerIndex) {
+        return boardSize*boardSize + 2*playerIndex;
+    }
+    
+    private int find(int node) {
+        while (parents[node] >= 0) {
+            node = parents[node];
         }
+        return node;
     }
     
-    private void addAllToGroup(Group oldGroup, Group newGroup) {
-        for (int i=0; i < boardSize; ++i) {
-            for (int j=0; j < boardSize; ++j) {
-                if (groups[i][j] == oldGroup) {
-                    groups[i][j] = newGroup;
-                    if (newGroup.addToGroupAndCheckWin(i,j,boardLocation[i][j])) {
-                        winningPlayerName = boardLocation[i][j].toString();
-                    }
-                }
-            }
+    private void union(int firstNode, int secondNode) {
+        int firstRoot = find(firstNode);
+        int secondRoot = find(secondNode);
+        if (firstRoot == secondRoot)
+            return;
+        if (parents[firstRoot] > parents[secondRoot]) {
+            int smallerRoot = firstRoot;
+            firstRoot = secondRoot;
+            secondRoot = smallerRoot;
+        }
+        unionHistory[2*numUnions] = secondRoot;
+        unionHistory[2*numUnions + 1] = parents[secondRoot];
+        ++numUnions;
+        parents[firstRoot] += parents[secondRoot];
+        parents[secondRoot] = firstRoot;
+    }
+    
+    /**
+     * Play stops once there is a winner, so there was none before the move being undone.
+     */
+    @Override
+    public void undoMove() {
+        if (numMovesPlayed == 0)
+            throw new IllegalStateException("No moves to undo");
+        int location = moveHistory[--numMovesPlayed];
+        int firstUnion = unionHistorySizes[numMovesPlayed];
+        while (numUnions > firstUnion) {
+            --numUnions;
+            int absorbedRoot = unionHistory[2*numUnions];
+            int negatedSize = unionHistory[2*numUnions + 1];
+            parents[parents[absorbedRoot]] -= negatedSize;
+            parents[absorbedRoot] = negatedSize;
+        }
+        int playerIndex = (hasStone(0, location) ? 0 : 1);
+        stones[playerIndex][location >>> 6] &= ~(1L << location);
+        emptyLocations.add(location);
+        zobristHash ^= zobristHashService.getLocationHash(location,playerIndex);
+        updateSymmetricStoneHashes(playerIndex, location);
+        toggleCurrentPlayer();
+        winningPlayerIndex = -1;
+    }
+    
+    private void updateSymmetricStoneHashes(int playerIndex, int location) {
+        for (int s=0; s < symmetricStoneHashes.length; ++s) {
+            symmetricStoneHashes[s] ^= zobristHashService.getLocationHash(symmetries.getSymmetricLocation(s, location), 
+                    playerIndex);
         }
     }
     
+    private int getCanonicalSymmetry() {
+        int canonicalSymmetry = 0;
+        for (int s=1; s < symmetricStoneHashes.length; ++s) {
+            if (symmetricStoneHashes[s] < symmetricStoneHashes[canonicalSymmetry])
+                canonicalSymmetry = s;
+        }
+        return canonicalSymmetry;
+    }
+    
+    @Override
+    public long getCanonicalZobristHash() {
+        return symmetricStoneHashes[getCanonicalSymmetry()] ^ zobristHashService.getSideToMoveHash(nextPlayerIndex);
+    }
+    
+    @Override
+    public DefaultGameMove toCanonicalMove(DefaultGameMove move) {
+        int location = symmetries.getSymmetricLocation(getCanonicalSymmetry(), move.getLocation());
+        return moveTable.get(moveTable.getPlayerIndex(move), location);
+    }
+    
+    @Override
+    public DefaultGameMove fromCanonicalMove(DefaultGameMove move) {
+        int location = symmetries.getInverseLocation(getCanonicalSymmetry(), move.getLocation());
+        return moveTable.get(moveTable.getPlayerIndex(move), location);
+    }
+    
     private void toggleCurrentPlayer() {
-        nextPlayerName = (nextPlayerName.equals("X") ? "O" : "X");
+        zobristHash ^= zobristHashService.getSideToMoveHash(nextPlayerIndex);
+        nextPlayerIndex = 1 - nextPlayerIndex;
+        zobristHash ^= zobristHashService.getSideToMoveHash(nextPlayerIndex);
     }
 
     @Override
     public boolean isGameOver() {
-        return !winningPlayerName.isEmpty();
+        return (winningPlayerIndex >= 0);
     }
 
     @Override
     public DefaultGameResult getGameResult() {
         if (isGameOver()) {
-            return new DefaultGameResult(winningPlayerName, false);
+            return new DefaultGameResult(PLAYER_NAMES.get(winningPlayerIndex), winningPlayerIndex, false);
         }
         throw new IllegalStateException("HexGameState is not finished");
     }
@@ -248,7 +566,7 @@ public final class HexGameState implements GameState<DefaultGameMove, DefaultGam
                 stringBuilder.append(" ");
             stringBuilder.append(i+1 + " ");
             for (int j=0; j < boardSize; ++j) {
-                stringBuilder.append(boardLocation[i][j] + " ");
+                stringBuilder.append(getBoardStatus(i,j) + " ");
             }
             stringBuilder.append("\n");
         }
@@ -257,7 +575,7 @@ public final class HexGameState implements GameState<DefaultGameMove, DefaultGam
         for (int i=0; i < boardSize; ++i) {
             stringBuilder.append((char)(i+65) + " ");
         }
-        stringBuilder.append("\n" + "Next player: " + nextPlayerName);        
+        stringBuilder.append("\n" + "Next player: " + getNextPlayerName());        
         return stringBuilder.toString();
     }
     
@@ -270,13 +588,9 @@ public final class HexGameState implements GameState<DefaultGameMove, DefaultGam
 
         HexGameState rhs = (HexGameState) obj;
         if ((getZobristHash() != rhs.getZobristHash()) || (boardSize != rhs.boardSize) ||
-                (!nextPlayerName.equals(rhs.nextPlayerName)))
+                (nextPlayerIndex != rhs.nextPlayerIndex))
             return false;
-        for (int i=0; i < boardSize; ++i)
-            for (int j=0; j < boardSize; ++j)
-                if (boardLocation[i][j] != rhs.boardLocation[i][j])
-                    return false;
-        return true;
+        return Arrays.equals(stones[0], rhs.stones[0]) && Arrays.equals(stones[1], rhs.stones[1]);
     }
     
     @Override
@@ -285,35 +599,6 @@ public final class HexGameState implements GameState<DefaultGameMove, DefaultGam
         return (int) ((zobristHash >>> 32) ^ ((zobristHash & 0xFFFF0000) >>> 32));
     }
 
-    protected final class Group {
-        private int minBound;
-        private int maxBound;
-        
-        private Group(int i, int j, BoardStatus type) {
-            if (type == BoardStatus.X) {
-                minBound = maxBound = j;
-            } else {
-                minBound = maxBound = i;
-            }
-        }
-        
-        private Group(Group other) {
-            minBound = other.minBound;
-            maxBound = other.maxBound;
-        }
-        
-        private boolean addToGroupAndCheckWin(int i, int j, BoardStatus type) {
-            if (type == BoardStatus.X) {
-                minBound = Math.min(j, minBound);
-                maxBound = Math.max(j, maxBound);
-            } else {
-                minBound = Math.min(i, minBound);
-                maxBound = Math.max(i, maxBound);
-            }
-            return ((minBound == 0) && (maxBound == boardSize-1));
-        }
-    }
-
     @Override
     public List<Heuristic<DefaultGameMove, DefaultGameResult>> getHeuristics() {
         return heuristicList;
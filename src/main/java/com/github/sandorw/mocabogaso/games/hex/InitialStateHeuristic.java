@@ -1,5 +1,8 @@
 package com.github.sandorw.mocabogaso.games.hex;
 
+import java.util.Arrays;
+import java.util.List;
+
 import com.github.sandorw.mocabogaso.ai.mcts.Heuristic;
 import com.github.sandorw.mocabogaso.games.GameState;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMove;
@@ -26,7 +29,13 @@ public class InitialStateHeuristic implements Heuristic<DefaultGameMove, Default
     @Override
     public <GS extends GameState<DefaultGameMove, DefaultGameResult>> DefaultGameResult 
             evaluateMove(DefaultGameMove move, GS initialGameState) {
-        return new DefaultGameResult(null, true);
+        return new DefaultGameResult(null, -1, true);
+    }
+
+    @Override
+    public <GS extends GameState<DefaultGameMove, DefaultGameResult>> void 
+            evaluateMoves(List<DefaultGameMove> moves, GS initialGameState, int[] outcomes) {
+        Arrays.fill(outcomes, 0, moves.size(), TIE);
     }
 
     @Override
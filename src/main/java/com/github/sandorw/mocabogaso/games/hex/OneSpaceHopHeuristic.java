@@ -35,44 +35,44 @@ public class OneSpaceHopHeuristic implements Heuristic<DefaultGameMove, DefaultG
         int boardSize = hexGameState.boardSize;
         BoardStatus movingPlayer = (move.getPlayerName().equals("X") ? BoardStatus.X : BoardStatus.O);
         if ((rowIndex < boardSize-2) && (colIndex < boardSize-1)
-                && (hexGameState.boardLocation[rowIndex+2][colIndex+1] == movingPlayer) 
-                && (hexGameState.boardLocation[rowIndex+1][colIndex] == BoardStatus.EMPTY)
-                && (hexGameState.boardLocation[rowIndex+1][colIndex+1] == BoardStatus.EMPTY)) {
-            return new DefaultGameResult(move.getPlayerName(), false);
+                && (hexGameState.getBoardStatus(rowIndex+2, colIndex+1) == movingPlayer) 
+                && (hexGameState.getBoardStatus(rowIndex+1, colIndex) == BoardStatus.EMPTY)
+                && (hexGameState.getBoardStatus(rowIndex+1, colIndex+1) == BoardStatus.EMPTY)) {
+            return new DefaultGameResult(move.getPlayerName(), movingPlayer.getIndex(), false);
         }
         if (rowIndex < boardSize-1) {
             if ((colIndex < boardSize-2)
-                    && (hexGameState.boardLocation[rowIndex+1][colIndex+2] == movingPlayer)
-                    && (hexGameState.boardLocation[rowIndex+1][colIndex+1] == BoardStatus.EMPTY)
-                    && (hexGameState.boardLocation[rowIndex][colIndex+1] == BoardStatus.EMPTY)) {
-                return new DefaultGameResult(move.getPlayerName(), false);
+                    && (hexGameState.getBoardStatus(rowIndex+1, colIndex+2) == movingPlayer)
+                    && (hexGameState.getBoardStatus(rowIndex+1, colIndex+1) == BoardStatus.EMPTY)
+                    && (hexGameState.getBoardStatus(rowIndex, colIndex+1) == BoardStatus.EMPTY)) {
+                return new DefaultGameResult(move.getPlayerName(), movingPlayer.getIndex(), false);
             }
             if ((colIndex > 0)
-                    && (hexGameState.boardLocation[rowIndex+1][colIndex-1] == movingPlayer)
-                    && (hexGameState.boardLocation[rowIndex][colIndex-1] == BoardStatus.EMPTY)
-                    && (hexGameState.boardLocation[rowIndex+1][colIndex] == BoardStatus.EMPTY)) {
-                return new DefaultGameResult(move.getPlayerName(), false);
+                    && (hexGameState.getBoardStatus(rowIndex+1, colIndex-1) == movingPlayer)
+                    && (hexGameState.getBoardStatus(rowIndex, colIndex-1) == BoardStatus.EMPTY)
+                    && (hexGameState.getBoardStatus(rowIndex+1, colIndex) == BoardStatus.EMPTY)) {
+                return new DefaultGameResult(move.getPlayerName(), movingPlayer.getIndex(), false);
             }
         }
         if (rowIndex > 0) {
             if ((colIndex > 1)
-                    && (hexGameState.boardLocation[rowIndex-1][colIndex-2] == movingPlayer)
-                    && (hexGameState.boardLocation[rowIndex-1][colIndex-1] == BoardStatus.EMPTY)
-                    && (hexGameState.boardLocation[rowIndex][colIndex-1] == BoardStatus.EMPTY)) {
-                return new DefaultGameResult(move.getPlayerName(), false);
+                    && (hexGameState.getBoardStatus(rowIndex-1, colIndex-2) == movingPlayer)
+                    && (hexGameState.getBoardStatus(rowIndex-1, colIndex-1) == BoardStatus.EMPTY)
+                    && (hexGameState.getBoardStatus(rowIndex, colIndex-1) == BoardStatus.EMPTY)) {
+                return new DefaultGameResult(move.getPlayerName(), movingPlayer.getIndex(), false);
             }
             if ((colIndex < boardSize-1)
-                    && (hexGameState.boardLocation[rowIndex-1][colIndex+1] == movingPlayer)
-                    && (hexGameState.boardLocation[rowIndex][colIndex+1] == BoardStatus.EMPTY)
-                    && (hexGameState.boardLocation[rowIndex-1][colIndex] == BoardStatus.EMPTY)) {
-                return new DefaultGameResult(move.getPlayerName(), false);
+                    && (hexGameState.getBoardStatus(rowIndex-1, colIndex+1) == movingPlayer)
+                    && (hexGameState.getBoardStatus(rowIndex, colIndex+1) == BoardStatus.EMPTY)
+                    && (hexGameState.getBoardStatus(rowIndex-1, colIndex) == BoardStatus.EMPTY)) {
+                return new DefaultGameResult(move.getPlayerName(), movingPlayer.getIndex(), false);
             }
         }
         if ((rowIndex > 1) && (colIndex > 0)
-                && (hexGameState.boardLocation[rowIndex-2][colIndex-1] == movingPlayer)
-                && (hexGameState.boardLocation[rowIndex-1][colIndex] == BoardStatus.EMPTY)
-                && (hexGameState.boardLocation[rowIndex-1][colIndex-1] == BoardStatus.EMPTY)) {
-            return new DefaultGameResult(move.getPlayerName(), false);
+                && (hexGameState.getBoardStatus(rowIndex-2, colIndex-1) == movingPlayer)
+                && (hexGameState.getBoardStatus(rowIndex-1, colIndex) == BoardStatus.EMPTY)
+                && (hexGameState.getBoardStatus(rowIndex-1, colIndex-1) == BoardStatus.EMPTY)) {
+            return new DefaultGameResult(move.getPlayerName(), movingPlayer.getIndex(), false);
         }        
         return null;
     }
@@ -38,15 +38,15 @@ public class SecureConnectionHeuristic implements Heuristic<DefaultGameMove, Def
         int numAlliedGroups = 0;
         int numAlliedPieces = 0;
         int firstAllyIndex = -4;
-        HexGameState.Group[] alliedGroups = {null, null, null};
+        int[] alliedGroups = {-1, -1, -1};
         for (int i=0; i < 6; ++i) {
-            int neighborRow = rowIndex + HexGameState.neighborRowDelta.get(i);
-            int neighborCol = colIndex + HexGameState.neighborColDelta.get(i);
+            int neighborRow = rowIndex + HexGameState.NEIGHBOR_ROW_DELTAS[i];
+            int neighborCol = colIndex + HexGameState.NEIGHBOR_COL_DELTAS[i];
             if (hexGameState.isIndexInBounds(neighborRow) && hexGameState.isIndexInBounds(neighborCol)) {
-                BoardStatus neighborStatus = hexGameState.boardLocation[neighborRow][neighborCol];
+                BoardStatus neighborStatus = hexGameState.getBoardStatus(neighborRow, neighborCol);
                 if (neighborStatus == movingPlayer) {
                     ++numAlliedPieces;
-                    HexGameState.Group neighborGroup = hexGameState.groups[neighborRow][neighborCol];
+                    int neighborGroup = hexGameState.getGroup(neighborRow, neighborCol);
                     boolean matchingGroup = false;
                     for (int j=0; j < numAlliedGroups; ++j) {
                         if (neighborGroup == alliedGroups[j]) {
@@ -66,18 +66,18 @@ public class SecureConnectionHeuristic implements Heuristic<DefaultGameMove, Def
                 } else if (neighborStatus == BoardStatus.EMPTY) {
                     int prevIndex = (i == 0 ? 5 : i-1);
                     int nextIndex = (i == 5 ? 0 : i+1);
-                    int prevRow = rowIndex + HexGameState.neighborRowDelta.get(prevIndex);
-                    int prevCol = colIndex + HexGameState.neighborColDelta.get(prevIndex);
-                    int nextRow = rowIndex + HexGameState.neighborRowDelta.get(nextIndex);
-                    int nextCol = colIndex + HexGameState.neighborColDelta.get(nextIndex);
+                    int prevRow = rowIndex + HexGameState.NEIGHBOR_ROW_DELTAS[prevIndex];
+                    int prevCol = colIndex + HexGameState.NEIGHBOR_COL_DELTAS[prevIndex];
+                    int nextRow = rowIndex + HexGameState.NEIGHBOR_ROW_DELTAS[nextIndex];
+                    int nextCol = colIndex + HexGameState.NEIGHBOR_COL_DELTAS[nextIndex];
                     if (hexGameState.isIndexInBounds(prevRow) 
                             && hexGameState.isIndexInBounds(prevCol)
                             && hexGameState.isIndexInBounds(nextRow)
                             && hexGameState.isIndexInBounds(nextCol)) {
-                        BoardStatus prevStatus = hexGameState.boardLocation[prevRow][prevCol];
-                        BoardStatus nextStatus = hexGameState.boardLocation[nextRow][nextCol];
-                        HexGameState.Group prevGroup = hexGameState.groups[prevRow][prevCol];
-                        HexGameState.Group nextGroup = hexGameState.groups[nextRow][nextCol];
+                        BoardStatus prevStatus = hexGameState.getBoardStatus(prevRow, prevCol);
+                        BoardStatus nextStatus = hexGameState.getBoardStatus(nextRow, nextCol);
+                        int prevGroup = hexGameState.getGroup(prevRow, prevCol);
+                        int nextGroup = hexGameState.getGroup(nextRow, nextCol);
                         if ((prevStatus == movingPlayer) && (nextStatus == movingPlayer)
                                 && (prevGroup != nextGroup)) {
                             nonUrgentConnectionExists = true;
@@ -89,7 +89,7 @@ public class SecureConnectionHeuristic implements Heuristic<DefaultGameMove, Def
         if ((numAlliedGroups == 3) || ((numAlliedGroups == 2) 
                 && ((directOppositeAllies && (numAlliedPieces == 2))
                 || !nonUrgentConnectionExists))) {
-            return new DefaultGameResult(move.getPlayerName(), false);
+            return new DefaultGameResult(move.getPlayerName(), movingPlayer.getIndex(), false);
         }
         return null;
     }
@@ -0,0 +1,104 @@
+package com.github.sandorw.mocabogaso.games.mnkgame;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A group of symmetries of a rectangular board, as location permutation tables. The first symmetry
+ * is always the identity. Instances are immutable and cached per board shape.
+ *
+ * @author sandorw
+ */
+public final class BoardSymmetries {
+    private static final int IDENTITY = 0;
+    private static final int HALF_TURN = 1;
+    private static final int ROW_MIRROR = 2;
+    private static final int COLUMN_MIRROR = 3;
+    private static final int TRANSPOSE = 4;
+    private static final int ANTI_TRANSPOSE = 5;
+    private static final int QUARTER_TURN = 6;
+    private static final int THREE_QUARTER_TURN = 7;
+    private static final Map<String, BoardSymmetries> INSTANCES = new ConcurrentHashMap<>();
+    
+    private final int[][] symmetricLocations;
+    private final int[][] inverseLocations;
+    
+    /**
+     * All eight symmetries of a square board, or the four of any other rectangle.
+     */
+    public static BoardSymmetries ofRectangle(int numRows, int numCols) {
+        if (numRows == numCols)
+            return of("rectangle", numRows, numCols, IDENTITY, HALF_TURN, ROW_MIRROR, COLUMN_MIRROR, TRANSPOSE, 
+                    ANTI_TRANSPOSE, QUARTER_TURN, THREE_QUARTER_TURN);
+        return of("rectangle", numRows, numCols, IDENTITY, HALF_TURN, ROW_MIRROR, COLUMN_MIRROR);
+    }
+    
+    /**
+     * The identity and the left to right mirror image, for games where the rows are not 
+     * interchangeable.
+     */
+    public static BoardSymmetries ofColumnMirror(int numRows, int numCols) {
+        return of("column mirror", numRows, numCols, IDENTITY, COLUMN_MIRROR);
+    }
+    
+    /**
+     * The identity and the rotation by 180 degrees.
+     */
+    public static BoardSymmetries ofHalfTurn(int numRows, int numCols) {
+        return of("half turn", numRows, numCols, IDENTITY, HALF_TURN);
+    }
+    
+    private static BoardSymmetries of(String groupName, int numRows, int numCols, int... symmetries) {
+        return INSTANCES.computeIfAbsent(groupName + " " + numRows + "x" + numCols, 
+                key -> new BoardSymmetries(numRows, numCols, symmetries));
+    }
+    
+    private BoardSymmetries(int numRows, int numCols, int[] symmetries) {
+        int numLocations = numRows*numCols;
+        symmetricLocations = new int[symmetries.length][numLocations];
+        inverseLocations = new int[symmetries.length][numLocations];
+        for (int s=0; s < symmetries.length; ++s) {
+            for (int i=0; i < numRows; ++i) {
+                for (int j=0; j < numCols; ++j) {
+                    int location = i*numCols + j;
+                    int symmetricLocation = getSymmetricLocation(symmetries[s], i, j, numRows, numCols);
+                    symmetricLocations[s][location] = symmetricLocation;
+                    inverseLocations[s][symmetricLocation] = location;
+                }
+            }
+        }
+    }
+    
+    private static int getSymmetricLocation(int symmetry, int i, int j, int numRows, int numCols) {
+        switch (symmetry) {
+        case HALF_TURN:
+            return (numRows-1-i)*numCols + (numCols-1-j);
+        case ROW_MIRROR:
+            return (numRows-1-i)*numCols + j;
+        case COLUMN_MIRROR:
+            return i*numCols + (numCols-1-j);
+        case TRANSPOSE:
+            return j*numCols + i;
+        case ANTI_TRANSPOSE:
+            return (numCols-1-j)*numCols + (numRows-1-i);
+        case QUARTER_TURN:
+            return j*numCols + (numRows-1-i);
+        case THREE_QUARTER_TURN:
+            return (numCols-1-j)*numCols + i;
+        default:
+            return i*numCols + j;
+        }
+    }
+    
+    public int getNumSymmetries() {
+        return symmetricLocations.length;
+    }
+    
+    public int getSymmetricLocation(int symmetry, int location) {
+        return symmetricLocations[symmetry][location];
+    }
+    
+    public int getInverseLocation(int symmetry, int location) {
+        return inverseLocations[symmetry][location];
+    }
+}
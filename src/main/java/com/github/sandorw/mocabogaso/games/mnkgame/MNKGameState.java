@@ -1,12 +1,21 @@
 package com.github.sandorw.mocabogaso.games.mnkgame;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.github.sandorw.mocabogaso.ai.mcts.Heuristic;
 import com.github.sandorw.mocabogaso.games.GameState;
+import com.github.sandorw.mocabogaso.games.MoveSamplingGameState;
+import com.github.sandorw.mocabogaso.games.ReversibleGameState;
+import com.github.sandorw.mocabogaso.games.SymmetricGameState;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMove;
+import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMoveTable;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameResult;
+import com.github.sandorw.mocabogaso.games.defaults.SparseIntSet;
 import com.github.sandorw.mocabogaso.games.hex.InitialStateHeuristic;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
@@ -15,17 +24,34 @@ import com.google.common.collect.Lists;
  * Representation of the GameState for the m,n,k game - on an m x n board, players take turns
  * making moves, aiming to get k in a row to win.
  * 
+ * Stones are kept in one bitboard per player. Each row takes numCols+1 bits, the last of which is
+ * always clear so that lines cannot wrap from one row into the next. When the whole board fits in
+ * a single long, k in a row is found by and-ing shifted copies of the bitboard; larger boards walk
+ * outwards from the last move. The empty locations are also kept in a SparseIntSet, which makes
+ * isGameOver constant time and lets playouts draw a random move without listing them all.
+ * 
+ * The stones are also hashed under every symmetry of the board, so that the smallest of those 
+ * hashes gives a canonical hash shared by all symmetric variants of a position.
+ * 
  * @author sandorw
  */
-public class MNKGameState implements GameState<DefaultGameMove, DefaultGameResult> {   
-    protected BoardStatus[][] boardLocation;
+public class MNKGameState implements ReversibleGameState<DefaultGameMove, DefaultGameResult>,
+        MoveSamplingGameState<DefaultGameMove, DefaultGameResult>, SymmetricGameState<DefaultGameMove, DefaultGameResult> {   
+    protected final long[][] stones;
+    protected final int rowStride;
+    protected final SparseIntSet emptyLocations;
+    protected final int[] moveHistory;
+    protected int numMovesPlayed;
     protected final int numRows;
     protected final int numCols;
     protected final int goalNumInARow;
-    protected String nextPlayerName;
-    protected String winningPlayerName;
+    protected int nextPlayerIndex;
+    protected int winningPlayerIndex;
     protected long zobristHash;
     protected final MNKZobristHashService zobristHashService;
+    protected final DefaultGameMoveTable moveTable;
+    protected final BoardSymmetries symmetries;
+    protected final long[] symmetricStoneHashes;
     protected final List<Heuristic<DefaultGameMove, DefaultGameResult>> heuristicList;
     
     protected enum BoardStatus {
@@ -53,14 +79,26 @@ public class MNKGameState implements GameState<DefaultGameMove, DefaultGameResul
         }
     }
     
+    private static final List<String> PLAYER_NAMES = ImmutableList.of("X", "O");
+    private static final Map<Long, DefaultGameMoveTable> MOVE_TABLES = new ConcurrentHashMap<>();
+    
     public static MNKGameState of(int m, int n, int k) {
         List<Heuristic<DefaultGameMove, DefaultGameResult>> heuristics = Lists.newArrayList();
         heuristics.add(new InitialStateHeuristic(5));
-        return new MNKGameState(m, n, k, new MNKZobristHashService(m, n), heuristics);
+        return new MNKGameState(m, n, k, MNKZobristHashService.of(m, n), getMoveTable(m, n), 
+                BoardSymmetries.ofRectangle(m, n), heuristics);
     }
     
-    protected MNKGameState(int m, int n, int k, MNKZobristHashService hashService,
-            List<Heuristic<DefaultGameMove, DefaultGameResult>> heuristicList) {
+    /**
+     * The move table shared by all states with an m by n board.
+     */
+    protected static DefaultGameMoveTable getMoveTable(int m, int n) {
+        long boardShape = ((long)m << 32) | (n & 0xffffffffL);
+        return MOVE_TABLES.computeIfAbsent(boardShape, shape -> new DefaultGameMoveTable(PLAYER_NAMES, Math.max(m*n, 0)));
+    }
+    
+    protected MNKGameState(int m, int n, int k, MNKZobristHashService hashService, DefaultGameMoveTable moveTable,
+            BoardSymmetries symmetries, List<Heuristic<DefaultGameMove, DefaultGameResult>> heuristicList) {
         numRows = m;
         numCols = n;
         if ((m < 1) || (n < 1))
@@ -70,37 +108,56 @@ public class MNKGameState implements GameState<DefaultGameMove, DefaultGameResul
             throw new IllegalArgumentException("Unwinnable game. k must not be greater than the number of rows and columns");
         if (k < 1)
             throw new IllegalArgumentException("k must be greater than zero");
-        boardLocation = new BoardStatus[numRows][numCols];
-        for (int i=0; i < numRows; ++i)
-            for (int j=0; j < numCols; ++j)
-                boardLocation[i][j] = BoardStatus.EMPTY;
-        nextPlayerName = "X";
-        winningPlayerName = "";
+        rowStride = numCols + 1;
+        stones = new long[2][(numRows*rowStride + 63) >>> 6];
+        emptyLocations = SparseIntSet.full(numRows*numCols);
+        moveHistory = new int[numRows*numCols];
+        numMovesPlayed = 0;
+        nextPlayerIndex = BoardStatus.X.getIndex();
+        winningPlayerIndex = -1;
         zobristHashService = hashService;
-        zobristHash = 0L;
+        this.moveTable = moveTable;
+        this.symmetries = symmetries;
+        symmetricStoneHashes = new long[symmetries.getNumSymmetries()];
+        zobristHash = hashService.getSideToMoveHash(nextPlayerIndex);
         this.heuristicList = heuristicList;
     }
     
     @Override
     public GameState<DefaultGameMove, DefaultGameResult> getCopy() {
-        MNKGameState copy = new MNKGameState(numRows, numCols, goalNumInARow, zobristHashService, heuristicList);
-        for (int i=0; i < numRows; ++i)
-            for (int j=0; j < numCols; ++j)
-                copy.boardLocation[i][j] = boardLocation[i][j];
-        copy.nextPlayerName = nextPlayerName;
-        copy.winningPlayerName = winningPlayerName;
-        copy.zobristHash = zobristHash;
+        MNKGameState copy = new MNKGameState(numRows, numCols, goalNumInARow, zobristHashService, moveTable, symmetries, 
+                heuristicList);
+        copyStateTo(copy);
         return copy;
     }
+    
+    /**
+     * Copies the board into a freshly constructed state of the same dimensions. The move history 
+     * is not copied.
+     */
+    protected void copyStateTo(MNKGameState copy) {
+        System.arraycopy(stones[0], 0, copy.stones[0], 0, stones[0].length);
+        System.arraycopy(stones[1], 0, copy.stones[1], 0, stones[1].length);
+        emptyLocations.copyTo(copy.emptyLocations);
+        System.arraycopy(symmetricStoneHashes, 0, copy.symmetricStoneHashes, 0, symmetricStoneHashes.length);
+        copy.nextPlayerIndex = nextPlayerIndex;
+        copy.winningPlayerIndex = winningPlayerIndex;
+        copy.zobristHash = zobristHash;
+    }
 
     @Override
     public String getNextPlayerName() {
-        return nextPlayerName;
+        return PLAYER_NAMES.get(nextPlayerIndex);
+    }
+
+    @Override
+    public int getNextPlayerIndex() {
+        return nextPlayerIndex;
     }
 
     @Override
     public List<String> getAllPlayerNames() {
-        return ImmutableList.of("X", "O");
+        return PLAYER_NAMES;
     }
 
     @Override
@@ -108,19 +165,49 @@ public class MNKGameState implements GameState<DefaultGameMove, DefaultGameResul
         List<DefaultGameMove> moveList = new ArrayList<>();
         for (int i=0; i < numRows; ++i)
             for (int j=0; j < numCols; ++j)
-                if (boardLocation[i][j] == BoardStatus.EMPTY)
-                    moveList.add(new DefaultGameMove(nextPlayerName, i*numCols + j));
+                if (isEmpty(i,j))
+                    moveList.add(moveTable.get(nextPlayerIndex, i*numCols + j));
         return moveList;
     }
+    
+    @Override
+    public int getMaxNumMoves() {
+        return numRows*numCols;
+    }
+    
+    @Override
+    public int getAllValidMoves(int[] moveBuffer) {
+        int numMoves = 0;
+        for (int i=0; i < numRows; ++i)
+            for (int j=0; j < numCols; ++j)
+                if (isEmpty(i,j))
+                    moveBuffer[numMoves++] = i*numCols + j;
+        return numMoves;
+    }
+    
+    @Override
+    public DefaultGameMove getMove(int move) {
+        return moveTable.get(nextPlayerIndex, move);
+    }
+    
+    @Override
+    public int getRandomEncodedMove(Random random) {
+        return emptyLocations.get(random.nextInt(emptyLocations.size()));
+    }
+    
+    @Override
+    public int getEncodedMove(DefaultGameMove move) {
+        return move.getLocation();
+    }
 
     @Override
     public DefaultGameMove getMoveFromString(String input) {
         try {
             int columnIndex = (int)input.charAt(0) - 65;
             int rowIndex = Integer.parseInt(input.substring(1))-1;
-            return new DefaultGameMove(nextPlayerName, rowIndex*numCols + columnIndex);
+            return new DefaultGameMove(getNextPlayerName(), rowIndex*numCols + columnIndex);
         } catch (IndexOutOfBoundsException | NumberFormatException e) {
-            return new DefaultGameMove(nextPlayerName, -1);
+            return new DefaultGameMove(getNextPlayerName(), -1);
         }
     }
     
@@ -136,9 +223,36 @@ public class MNKGameState implements GameState<DefaultGameMove, DefaultGameResul
     public boolean isValidMove(DefaultGameMove move) {
         int i = getRowNumber(move.getLocation());
         int j = getColNumber(move.getLocation());
-        return (move.getPlayerName().equals(nextPlayerName)
+        return (move.getPlayerName().equals(getNextPlayerName())
                 && (i >=0) && (i < numRows) && (j >= 0) && (j < numCols)
-                && (boardLocation[i][j] == BoardStatus.EMPTY));
+                && isEmpty(i,j));
+    }
+    
+    protected boolean hasStone(int playerIndex, int i, int j) {
+        int bit = i*rowStride + j;
+        return (stones[playerIndex][bit >>> 6] & (1L << bit)) != 0L;
+    }
+    
+    protected boolean isEmpty(int i, int j) {
+        return !hasStone(0,i,j) && !hasStone(1,i,j);
+    }
+    
+    protected BoardStatus getBoardStatus(int i, int j) {
+        if (hasStone(0,i,j))
+            return BoardStatus.X;
+        if (hasStone(1,i,j))
+            return BoardStatus.O;
+        return BoardStatus.EMPTY;
+    }
+    
+    private void setStone(int playerIndex, int i, int j) {
+        int bit = i*rowStride + j;
+        stones[playerIndex][bit >>> 6] |= 1L << bit;
+    }
+    
+    private void clearStone(int playerIndex, int i, int j) {
+        int bit = i*rowStride + j;
+        stones[playerIndex][bit >>> 6] &= ~(1L << bit);
     }
     
     protected int getRowNumber(int location) {
@@ -151,78 +265,145 @@ public class MNKGameState implements GameState<DefaultGameMove, DefaultGameResul
 
     @Override
     public void applyMove(DefaultGameMove move) {
-        int i = getRowNumber(move.getLocation());
-        int j = getColNumber(move.getLocation());
-        BoardStatus newStatus = (move.getPlayerName().equals("X") ? BoardStatus.X : BoardStatus.O);
-        boardLocation[i][j] = newStatus;
-        zobristHash ^= zobristHashService.getLocationHash(i,j,newStatus.getIndex());
+        applyMove(moveTable.getPlayerIndex(move), move.getLocation());
+    }
+    
+    @Override
+    public void applyEncodedMove(int move) {
+        applyMove(nextPlayerIndex, move);
+    }
+    
+    protected void applyMove(int playerIndex, int location) {
+        int i = getRowNumber(location);
+        int j = getColNumber(location);
+        setStone(playerIndex, i, j);
+        emptyLocations.remove(location);
+        moveHistory[numMovesPlayed++] = location;
+        zobristHash ^= zobristHashService.getLocationHash(location,playerIndex);
+        updateSymmetricStoneHashes(playerIndex, location);
         toggleCurrentPlayer();
-        updateWinner(move);
+        updateWinner(playerIndex, i, j);
+    }
+    
+    /**
+     * Play stops once there is a winner, so there was none before the move being undone.
+     */
+    @Override
+    public void undoMove() {
+        if (numMovesPlayed == 0)
+            throw new IllegalStateException("No moves to undo");
+        int location = moveHistory[--numMovesPlayed];
+        int i = getRowNumber(location);
+        int j = getColNumber(location);
+        int playerIndex = getBoardStatus(i,j).getIndex();
+        zobristHash ^= zobristHashService.getLocationHash(location,playerIndex);
+        updateSymmetricStoneHashes(playerIndex, location);
+        clearStone(playerIndex, i, j);
+        emptyLocations.add(location);
+        toggleCurrentPlayer();
+        winningPlayerIndex = -1;
+    }
+    
+    private void updateSymmetricStoneHashes(int playerIndex, int location) {
+        for (int s=0; s < symmetricStoneHashes.length; ++s) {
+            symmetricStoneHashes[s] ^= zobristHashService.getLocationHash(symmetries.getSymmetricLocation(s, location), 
+                    playerIndex);
+        }
+    }
+    
+    /**
+     * The symmetry with the smallest stone hash. Symmetric variants of a position have the same set
+     * of stone hashes, so they all map to the same canonical position.
+     */
+    private int getCanonicalSymmetry() {
+        int canonicalSymmetry = 0;
+        for (int s=1; s < symmetricStoneHashes.length; ++s) {
+            if (symmetricStoneHashes[s] < symmetricStoneHashes[canonicalSymmetry])
+                canonicalSymmetry = s;
+        }
+        return canonicalSymmetry;
+    }
+    
+    @Override
+    public long getCanonicalZobristHash() {
+        return symmetricStoneHashes[getCanonicalSymmetry()] ^ zobristHashService.getSideToMoveHash(nextPlayerIndex);
+    }
+    
+    @Override
+    public DefaultGameMove toCanonicalMove(DefaultGameMove move) {
+        int location = symmetries.getSymmetricLocation(getCanonicalSymmetry(), move.getLocation());
+        return moveTable.get(moveTable.getPlayerIndex(move), location);
+    }
+    
+    @Override
+    public DefaultGameMove fromCanonicalMove(DefaultGameMove move) {
+        int location = symmetries.getInverseLocation(getCanonicalSymmetry(), move.getLocation());
+        return moveTable.get(moveTable.getPlayerIndex(move), location);
     }
     
     protected void toggleCurrentPlayer() {
-        nextPlayerName = (nextPlayerName == "X" ? "O" : "X");
+        zobristHash ^= zobristHashService.getSideToMoveHash(nextPlayerIndex);
+        nextPlayerIndex = 1 - nextPlayerIndex;
+        zobristHash ^= zobristHashService.getSideToMoveHash(nextPlayerIndex);
     }
     
-    protected void updateWinner(DefaultGameMove move) {
-        int rowNum = getRowNumber(move.getLocation());
-        int colNum = getColNumber(move.getLocation());
-        BoardStatus newStatus = (move.getPlayerName().equals("X") ? BoardStatus.X : BoardStatus.O);
-        int rowDelta, colDelta;
-        
-        //Look for goalNumInARow horizontally, vertically, and along the diagonals
-        for (int k=0; k < 4; ++k) {
-            int tally = 1;
-            if (k == 0) {
-                rowDelta = 0;
-                colDelta = 1;
-            } else if (k == 1) {
-                rowDelta = 1;
-                colDelta = 1;
-            } else if (k == 2) {
-                rowDelta = 1;
-                colDelta = 0;
-            } else {
-                rowDelta = 1;
-                colDelta = -1;
-            }
-            for (int i=rowNum+rowDelta, j = colNum+colDelta; 
-                    (i >= 0) && (j >= 0) && (i < numRows) && (j < numCols); i += rowDelta, j += colDelta) {
-                if (boardLocation[i][j] == newStatus)
-                    ++tally;
-                else
-                    break;
-            }
-            for (int i=rowNum-rowDelta, j = colNum-colDelta; 
-                    (i >= 0) && (j >= 0) && (i < numRows) && (j < numCols); i -= rowDelta, j -= colDelta) {
-                if (boardLocation[i][j] == newStatus)
-                    ++tally;
-                else
-                    break;
-            }
-            if (tally >= goalNumInARow) {
-                winningPlayerName = move.getPlayerName();
-                break;
-            }
+    protected void updateWinner(int playerIndex, int rowNum, int colNum) {
+        boolean hasWon;
+        if (stones[playerIndex].length == 1) {
+            long board = stones[playerIndex][0];
+            hasWon = hasLine(board, 1) || hasLine(board, rowStride) || hasLine(board, rowStride+1) 
+                    || hasLine(board, rowStride-1);
+        } else {
+            hasWon = hasLineThrough(playerIndex, rowNum, colNum, 0, 1) || hasLineThrough(playerIndex, rowNum, colNum, 1, 1)
+                    || hasLineThrough(playerIndex, rowNum, colNum, 1, 0) || hasLineThrough(playerIndex, rowNum, colNum, 1, -1);
+        }
+        if (hasWon) {
+            winningPlayerIndex = playerIndex;
+        }
+    }
+    
+    /**
+     * Whether the single word board has goalNumInARow bits set, each shift bits after the last. 
+     * Every step doubles the length of the runs found so far, so this takes log k shifts.
+     */
+    private boolean hasLine(long board, int shift) {
+        long runs = board;
+        int runLength = 1;
+        while ((runLength < goalNumInARow) && (runs != 0L)) {
+            int step = Math.min(runLength, goalNumInARow - runLength);
+            if (step*shift >= 64)
+                return false;
+            runs &= runs >>> (step*shift);
+            runLength += step;
+        }
+        return (runs != 0L);
+    }
+    
+    private boolean hasLineThrough(int playerIndex, int rowNum, int colNum, int rowDelta, int colDelta) {
+        int tally = 1;
+        for (int i=rowNum+rowDelta, j = colNum+colDelta; 
+                (i >= 0) && (j >= 0) && (i < numRows) && (j < numCols) && hasStone(playerIndex,i,j); 
+                i += rowDelta, j += colDelta) {
+            ++tally;
+        }
+        for (int i=rowNum-rowDelta, j = colNum-colDelta; 
+                (i >= 0) && (j >= 0) && (i < numRows) && (j < numCols) && hasStone(playerIndex,i,j); 
+                i -= rowDelta, j -= colDelta) {
+            ++tally;
         }
+        return (tally >= goalNumInARow);
     }
 
     @Override
     public boolean isGameOver() {
-        if (!winningPlayerName.isEmpty())
-            return true;
-        for (int i=0; i < numRows; ++i)
-            for (int j=0; j < numCols; ++j)
-                if (boardLocation[i][j] == BoardStatus.EMPTY)
-                    return false;
-        return true;
+        return (winningPlayerIndex >= 0) || (emptyLocations.size() == 0);
     }
 
     @Override
     public DefaultGameResult getGameResult() {
-        if (winningPlayerName.isEmpty())
-            return new DefaultGameResult("no one", true);
-        return new DefaultGameResult(winningPlayerName, false);
+        if (winningPlayerIndex < 0)
+            return new DefaultGameResult("no one", -1, true);
+        return new DefaultGameResult(PLAYER_NAMES.get(winningPlayerIndex), winningPlayerIndex, false);
     }
     
     @Override
@@ -237,14 +418,14 @@ public class MNKGameState implements GameState<DefaultGameMove, DefaultGameResul
             stringBuilder.append((char)('A' + i));
             stringBuilder.append(" ");
             for (int j=0; j < numCols; ++j)
-                stringBuilder.append(boardLocation[i][j].toString());
+                stringBuilder.append(getBoardStatus(i,j).toString());
             stringBuilder.append("\n");
         }
         stringBuilder.append("  ");
         for (int i=1; i <= numCols; ++i)
             stringBuilder.append(i);
         stringBuilder.append("\n");
-        stringBuilder.append("Next player: ").append(nextPlayerName);
+        stringBuilder.append("Next player: ").append(getNextPlayerName());
         stringBuilder.append("\n");
         return stringBuilder.toString();
     }
@@ -258,13 +439,9 @@ public class MNKGameState implements GameState<DefaultGameMove, DefaultGameResul
 
         MNKGameState rhs = (MNKGameState) obj;
         if ((getZobristHash() != rhs.getZobristHash()) || (numRows != rhs.numRows) || (numCols != rhs.numCols) || 
-                (goalNumInARow != rhs.goalNumInARow) || (!nextPlayerName.equals(rhs.nextPlayerName)))
+                (goalNumInARow != rhs.goalNumInARow) || (nextPlayerIndex != rhs.nextPlayerIndex))
             return false;
-        for (int i=0; i < numRows; ++i)
-            for (int j=0; j < numCols; ++j)
-                if (boardLocation[i][j] != rhs.boardLocation[i][j])
-                    return false;
-        return true;
+        return Arrays.equals(stones[0], rhs.stones[0]) && Arrays.equals(stones[1], rhs.stones[1]);
     }
     
     @Override
@@ -1,25 +1,48 @@
 package com.github.sandorw.mocabogaso.games.mnkgame;
 
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class MNKZobristHashService {
-    private long positionHash[][][];
+/**
+ * Zobrist keys for two player games on a rectangular board. There is a key for each player's stone
+ * at each location, kept in one flat array indexed by location, and a side to move key for each 
+ * player so that positions differing only in whose turn it is hash differently. The keys are 
+ * immutable, so one instance per board shape is created and shared by every game of that shape.
+ *
+ * @author sandorw
+ */
+public final class MNKZobristHashService {
+    private static final int NUM_PLAYERS = 2;
+    private static final Map<Long, MNKZobristHashService> INSTANCES = new ConcurrentHashMap<>();
     
-    public MNKZobristHashService(int numRows, int numCols) {
+    private final long[] locationHashes;
+    private final long[] sideToMoveHashes;
+    
+    public static MNKZobristHashService of(int numRows, int numCols) {
         if ((numRows < 1) || (numCols < 1))
             throw new IllegalArgumentException("Number of rows and columns must be greater than zero");
+        long boardShape = ((long)numRows << 32) | numCols;
+        return INSTANCES.computeIfAbsent(boardShape, shape -> new MNKZobristHashService(numRows*numCols));
+    }
+    
+    private MNKZobristHashService(int numLocations) {
         Random rng = new Random(0L);
-        positionHash = new long[numRows][numCols][2];
-        for (int i=0; i < numRows; ++i) {
-            for (int j=0; j < numCols; ++j) {
-                for (int k=0; k < 2; ++k) {
-                    positionHash[i][j][k] = rng.nextLong();
-                }
-            }
+        locationHashes = new long[numLocations*NUM_PLAYERS];
+        for (int i=0; i < locationHashes.length; ++i) {
+            locationHashes[i] = rng.nextLong();
         }
+        sideToMoveHashes = new long[NUM_PLAYERS];
+        for (int i=0; i < NUM_PLAYERS; ++i) {
+            sideToMoveHashes[i] = rng.nextLong();
+        }
+    }
+    
+    public long getLocationHash(int location, int playerIndex) {
+        return locationHashes[location*NUM_PLAYERS + playerIndex];
     }
     
-    public long getLocationHash(int i, int j, int boardStatusIndex) {
-        return positionHash[i][j][boardStatusIndex];
+    public long getSideToMoveHash(int playerIndex) {
+        return sideToMoveHashes[playerIndex];
     }
 }
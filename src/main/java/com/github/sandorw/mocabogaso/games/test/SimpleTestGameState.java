@@ -16,34 +16,36 @@ import com.google.common.collect.Lists;
  */
 public final class SimpleTestGameState implements GameState<DefaultGameMove, DefaultGameResult> {
     private static int GOAL_SUM = 10;
+    private static final List<String> PLAYER_NAMES = ImmutableList.of("Player 1", "Player 2");
     private int moveSum;
-    private String lastPlayer;
+    private int lastPlayerIndex;
     
     public SimpleTestGameState() {
         moveSum = 0;
-        lastPlayer = "Player 2";
+        lastPlayerIndex = 1;
     }
     
     @Override
     public GameState<DefaultGameMove, DefaultGameResult> getCopy() {
         SimpleTestGameState copy = new SimpleTestGameState();
         copy.moveSum = moveSum;
-        copy.lastPlayer = lastPlayer;
+        copy.lastPlayerIndex = lastPlayerIndex;
         return copy;
     }
 
     @Override
     public String getNextPlayerName() {
-        return getOppositePlayerName(lastPlayer);
+        return PLAYER_NAMES.get(getNextPlayerIndex());
     }
-    
-    private String getOppositePlayerName(String name) {
-        return name.equals("Player 2") ? "Player 1" : "Player 2";
+
+    @Override
+    public int getNextPlayerIndex() {
+        return 1 - lastPlayerIndex;
     }
 
     @Override
     public List<String> getAllPlayerNames() {
-        return ImmutableList.of("Player 1", "Player 2");
+        return PLAYER_NAMES;
     }
 
     @Override
@@ -83,7 +85,7 @@ public final class SimpleTestGameState implements GameState<DefaultGameMove, Def
     }
     
     private void togglePlayer() {
-        lastPlayer = getOppositePlayerName(lastPlayer);
+        lastPlayerIndex = 1 - lastPlayerIndex;
     }
 
     @Override
@@ -93,12 +95,12 @@ public final class SimpleTestGameState implements GameState<DefaultGameMove, Def
 
     @Override
     public DefaultGameResult getGameResult() {
-        return new DefaultGameResult(getOppositePlayerName(lastPlayer), false);
+        return new DefaultGameResult(getNextPlayerName(), getNextPlayerIndex(), false);
     }
     
     @Override
     public long getZobristHash() {
-        return (2L << moveSum) ^ lastPlayer.hashCode();
+        return (2L << moveSum) ^ PLAYER_NAMES.get(lastPlayerIndex).hashCode();
     }
 
     public boolean equalsState(Object obj) {
@@ -109,11 +111,11 @@ public final class SimpleTestGameState implements GameState<DefaultGameMove, Def
 
         SimpleTestGameState rhs = (SimpleTestGameState) obj;
         return ((getZobristHash() == rhs.getZobristHash()) && (moveSum == rhs.moveSum) && 
-                (lastPlayer.equals(rhs.lastPlayer)));
+                (lastPlayerIndex == rhs.lastPlayerIndex));
     }
     
     public String toString() {
-        return "Current sum: " + moveSum + ", next player: " + getOppositePlayerName(lastPlayer);
+        return "Current sum: " + moveSum + ", next player: " + getNextPlayerName();
     }
 
     @Override
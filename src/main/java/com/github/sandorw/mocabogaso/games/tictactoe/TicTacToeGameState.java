@@ -1,5 +1,6 @@
 package com.github.sandorw.mocabogaso.games.tictactoe;
 
+import com.github.sandorw.mocabogaso.games.mnkgame.BoardSymmetries;
 import com.github.sandorw.mocabogaso.games.mnkgame.MNKGameState;
 import com.github.sandorw.mocabogaso.games.mnkgame.MNKZobristHashService;
 import com.google.common.collect.Lists;
@@ -11,6 +12,7 @@ public class TicTacToeGameState extends MNKGameState {
     }
     
     private TicTacToeGameState() {
-        super(3, 3, 3, new MNKZobristHashService(3, 3), Lists.newArrayList());
+        super(3, 3, 3, MNKZobristHashService.of(3, 3), getMoveTable(3, 3), BoardSymmetries.ofRectangle(3, 3), 
+                Lists.newArrayList());
     }
 }
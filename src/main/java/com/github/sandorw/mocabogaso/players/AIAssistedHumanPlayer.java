@@ -1,8 +1,6 @@
 package com.github.sandorw.mocabogaso.players;
 
 import java.util.Scanner;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import com.github.sandorw.mocabogaso.ai.AIService;
 import com.github.sandorw.mocabogaso.games.GameMove;
@@ -10,33 +8,23 @@ import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
 
 /**
- * Interface for a human player in a game. It uses to keyboard input for move generation.
+ * Interface for a human player in a game. It uses to keyboard input for move generation. The 
+ * AIService ponders the position while the player decides, and suggests moves on request.
  *
  * @author sandorw
  */
 public final class AIAssistedHumanPlayer<GM extends GameMove> implements Player<GM> {
     private final Scanner scanner;
     private final AIService<GM> aiService;
-    private final ExecutorService executor;
-    private volatile boolean dither;
     
     public AIAssistedHumanPlayer(AIService<GM> aiService) {
         scanner = new Scanner(System.in, "UTF-8");
         this.aiService = aiService;
-        executor = Executors.newFixedThreadPool(1);
-        dither = false;
     }
 
     @Override
     public <GR extends GameResult, GS extends GameState<GM,GR>> GM chooseNextMove(GS currentGameState) {
-        dither = true;
-        executor.submit(new Runnable() {
-            public void run() {
-                while (dither) {
-                    aiService.searchMoves(currentGameState, 100);
-                }
-            }
-        });
+        aiService.startPondering(currentGameState);
         System.out.println("Please input a valid move. Input hint for a suggestion from the AI. Hints will improve over time.");
         GM newMove = null;
         while (true) {
@@ -53,7 +41,7 @@ public final class AIAssistedHumanPlayer<GM extends GameMove> implements Player<
                 }
             }
         }
-        dither = false;
+        aiService.stopPondering();
         return newMove;
     }
 
@@ -65,6 +53,6 @@ public final class AIAssistedHumanPlayer<GM extends GameMove> implements Player<
 
     @Override
     public void shutdown() {
-        executor.shutdownNow();
+        aiService.stopPondering();
     }
 }
@@ -1,10 +1,14 @@
 package com.github.sandorw.mocabogaso.players;
 
-import com.github.sandorw.mocabogaso.ai.AIService;
+import java.util.List;
+
+import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloAIService;
 import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloSearchService;
 import com.github.sandorw.mocabogaso.ai.mcts.NodeResultsFactory;
 import com.github.sandorw.mocabogaso.ai.mcts.NodeResultsService;
 import com.github.sandorw.mocabogaso.ai.mcts.PlayoutPolicy;
+import com.github.sandorw.mocabogaso.ai.mcts.RootParallelMonteCarloSearchService;
+import com.github.sandorw.mocabogaso.ai.mcts.SearchBudget;
 import com.github.sandorw.mocabogaso.ai.mcts.amaf.AMAFHeuristicNodeResults;
 import com.github.sandorw.mocabogaso.ai.mcts.amaf.AMAFHeuristicNodeResultsFactory;
 import com.github.sandorw.mocabogaso.ai.mcts.amaf.AMAFMonteCarloSearchService;
@@ -18,6 +22,7 @@ import com.github.sandorw.mocabogaso.ai.mcts.policies.RandomMovePlayoutPolicy;
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
+import com.google.common.collect.Lists;
 
 public class AIBuilder<GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> {
     private GS initialGameState;
@@ -25,6 +30,22 @@ public class AIBuilder<GM extends GameMove, GR extends GameResult, GS extends Ga
     private boolean withHeuristics;
     private int timePerMoveMs;
     private int numThreads;
+    private ParallelizationMode parallelizationMode;
+    private int virtualLoss;
+    private long transpositionTableMemory;
+    private int nodeBudget;
+    private boolean lazyExpansion;
+    private float wideningCoefficient;
+    private float wideningExponent;
+    private boolean symmetryHashing;
+    private boolean pathAMAF;
+    private boolean edgeAMAF;
+    private boolean smartTimeManagement;
+    private boolean ponder;
+    private int playoutBudget;
+    private int searchNodeBudget;
+    
+    private static final int DEFAULT_VIRTUAL_LOSS = 3;
     
     public AIBuilder(GS initialGameState) {
         this.initialGameState = initialGameState;
@@ -32,6 +53,20 @@ public class AIBuilder<GM extends GameMove, GR extends GameResult, GS extends Ga
         withHeuristics = false;
         timePerMoveMs = 1000;
         numThreads = 1;
+        parallelizationMode = ParallelizationMode.TREE;
+        virtualLoss = DEFAULT_VIRTUAL_LOSS;
+        transpositionTableMemory = 0L;
+        nodeBudget = 0;
+        lazyExpansion = false;
+        wideningCoefficient = 0.0f;
+        wideningExponent = 0.0f;
+        symmetryHashing = false;
+        pathAMAF = false;
+        edgeAMAF = false;
+        smartTimeManagement = false;
+        ponder = false;
+        playoutBudget = SearchBudget.UNLIMITED;
+        searchNodeBudget = SearchBudget.UNLIMITED;
     }
     
     public AIBuilder<GM,GR,GS> withAMAF() {
@@ -39,6 +74,24 @@ public class AIBuilder<GM extends GameMove, GR extends GameResult, GS extends Ga
         return this;
     }
     
+    /**
+     * AMAF that only updates the selection path. Implies withAMAF.
+     */
+    public AIBuilder<GM,GR,GS> withPathAMAF() {
+        withAMAF = true;
+        pathAMAF = true;
+        return this;
+    }
+    
+    /**
+     * AMAF with counts kept on the parent node. Implies withAMAF.
+     */
+    public AIBuilder<GM,GR,GS> withEdgeAMAF() {
+        withAMAF = true;
+        edgeAMAF = true;
+        return this;
+    }
+    
     public AIBuilder<GM,GR,GS> withHeuristics() {
         withHeuristics = true;
         return this;
@@ -50,38 +103,163 @@ public class AIBuilder<GM extends GameMove, GR extends GameResult, GS extends Ga
     }
     
     public AIBuilder<GM,GR,GS> multithreaded(int numThreads) {
+        return multithreaded(numThreads, ParallelizationMode.TREE);
+    }
+    
+    public AIBuilder<GM,GR,GS> multithreaded(int numThreads, ParallelizationMode parallelizationMode) {
         this.numThreads = numThreads;
+        this.parallelizationMode = parallelizationMode;
+        return this;
+    }
+    
+    public AIBuilder<GM,GR,GS> withVirtualLoss(int virtualLoss) {
+        this.virtualLoss = virtualLoss;
+        return this;
+    }
+    
+    public AIBuilder<GM,GR,GS> withTranspositionTableMemory(long memoryBytes) {
+        transpositionTableMemory = memoryBytes;
+        return this;
+    }
+    
+    public AIBuilder<GM,GR,GS> withNodeBudget(int maxNodes) {
+        nodeBudget = maxNodes;
+        return this;
+    }
+    
+    public AIBuilder<GM,GR,GS> withLazyExpansion() {
+        lazyExpansion = true;
+        return this;
+    }
+    
+    public AIBuilder<GM,GR,GS> withProgressiveWidening(float coefficient, float exponent) {
+        lazyExpansion = true;
+        wideningCoefficient = coefficient;
+        wideningExponent = exponent;
+        return this;
+    }
+    
+    /**
+     * Shares tree nodes between symmetric game states. Cannot be combined with AMAF, whose 
+     * statistics refer to moves in the orientation of the game states that visited a node.
+     */
+    public AIBuilder<GM,GR,GS> withSymmetryHashing() {
+        symmetryHashing = true;
+        return this;
+    }
+    
+    public AIBuilder<GM,GR,GS> withSmartTimeManagement() {
+        smartTimeManagement = true;
+        return this;
+    }
+    
+    public AIBuilder<GM,GR,GS> withPondering() {
+        ponder = true;
+        return this;
+    }
+    
+    /**
+     * Caps the playouts of each move, shared by all search threads. The time per move still applies.
+     */
+    public AIBuilder<GM,GR,GS> withPlayoutBudget(int maxPlayouts) {
+        playoutBudget = maxPlayouts;
+        return this;
+    }
+    
+    /**
+     * Caps the nodes each move's search adds to the tree, shared by all search threads. Unlike 
+     * withNodeBudget, this limits search effort rather than tree size.
+     */
+    public AIBuilder<GM,GR,GS> withSearchNodeBudget(int maxNodes) {
+        searchNodeBudget = maxNodes;
         return this;
     }
     
     public Player<GM> build() {
+        if (symmetryHashing && withAMAF)
+            throw new IllegalStateException("Symmetry hashing cannot be combined with AMAF");
+        if (numThreads <= 1) {
+            MonteCarloAIService<GM> aiService = buildSearchService();
+            applySearchBudget(aiService);
+            return new AIPlayer<>(aiService, timePerMoveMs, ponder);
+        }
+        if (parallelizationMode == ParallelizationMode.LEAF) {
+            MonteCarloAIService<GM> aiService = buildSearchService();
+            aiService.setLeafParallelism(numThreads);
+            applySearchBudget(aiService);
+            return new AIPlayer<>(aiService, timePerMoveMs, ponder);
+        }
+        MonteCarloAIService<GM> aiService = null;
+        if (parallelizationMode == ParallelizationMode.ROOT) {
+            List<MonteCarloAIService<GM>> workerServices = Lists.newArrayList();
+            for (int i=0; i < numThreads; ++i) {
+                workerServices.add(buildSearchService());
+            }
+            aiService = new RootParallelMonteCarloSearchService<>(workerServices);
+        } else {
+            aiService = buildSearchService();
+            aiService.setVirtualLoss(virtualLoss);
+        }
+        applySearchBudget(aiService);
+        return new MultiThreadedAIPlayer<>(aiService, timePerMoveMs, numThreads, ponder);
+    }
+    
+    private void applySearchBudget(MonteCarloAIService<GM> aiService) {
+        if ((playoutBudget != SearchBudget.UNLIMITED) || (searchNodeBudget != SearchBudget.UNLIMITED)) {
+            aiService.setSearchBudget(new SearchBudget(playoutBudget, searchNodeBudget));
+        }
+    }
+    
+    private MonteCarloAIService<GM> buildSearchService() {
+        MonteCarloAIService<GM> aiService = createSearchService();
+        if (transpositionTableMemory > 0) {
+            aiService.setTranspositionTableMemory(transpositionTableMemory);
+        }
+        if (nodeBudget > 0) {
+            aiService.setNodeBudget(nodeBudget);
+        }
+        if (lazyExpansion) {
+            aiService.setLazyExpansion(true);
+            aiService.setProgressiveWidening(wideningCoefficient, wideningExponent);
+        }
+        if (symmetryHashing) {
+            aiService.setSymmetryHashing(true);
+        }
+        if (smartTimeManagement) {
+            aiService.setSmartTimeManagement(true);
+        }
+        return aiService;
+    }
+    
+    private MonteCarloAIService<GM> createSearchService() {
         PlayoutPolicy policy = new RandomMovePlayoutPolicy();
-        AIService<GM> aiService = null;
         if (withHeuristics) {
             NodeResultsFactory<AMAFHeuristicNodeResults> nodeResultsFactory = new AMAFHeuristicNodeResultsFactory();
             if (withAMAF) {
                 AMAFNodeResultsService<AMAFHeuristicNodeResults> nodeResultsService 
                         = new AMAFNodeResultsService<>(nodeResultsFactory);
-                aiService = new AMAFMonteCarloSearchService<>(nodeResultsService, policy, initialGameState);
-            } else {
-                DefaultNodeResultsService<AMAFHeuristicNodeResults> nodeResultsService 
-                        = new DefaultNodeResultsService<>(nodeResultsFactory);
-                aiService = new MonteCarloSearchService<>(nodeResultsService, policy, initialGameState);
+                AMAFMonteCarloSearchService<GM,AMAFHeuristicNodeResults> aiService 
+                        = new AMAFMonteCarloSearchService<>(nodeResultsService, policy, initialGameState);
+                aiService.setPathAMAF(pathAMAF);
+                aiService.setEdgeAMAF(edgeAMAF);
+                return aiService;
             }
+            DefaultNodeResultsService<AMAFHeuristicNodeResults> nodeResultsService 
+                    = new DefaultNodeResultsService<>(nodeResultsFactory);
+            return new MonteCarloSearchService<>(nodeResultsService, policy, initialGameState);
         } else if (withAMAF) {
             NodeResultsFactory<DefaultAMAFNodeResults> nodeResultsFactory = new DefaultAMAFNodeResultsFactory();
             AMAFNodeResultsService<DefaultAMAFNodeResults> nodeResultsService
                     = new AMAFNodeResultsService<>(nodeResultsFactory);
-            aiService = new AMAFMonteCarloSearchService<>(nodeResultsService, policy, initialGameState);
-        } else {
-            NodeResultsFactory<DefaultNodeResults> nodeResultsFactory = new DefaultNodeResultsFactory();
-            NodeResultsService<DefaultNodeResults> nodeResultsService 
-                    = new DefaultNodeResultsService<>(nodeResultsFactory);
-            aiService = new MonteCarloSearchService<>(nodeResultsService, policy, initialGameState);
-        }
-        if (numThreads > 1) {
-            return new MultiThreadedAIPlayer<>(aiService, timePerMoveMs, numThreads);
+            AMAFMonteCarloSearchService<GM,DefaultAMAFNodeResults> aiService 
+                    = new AMAFMonteCarloSearchService<>(nodeResultsService, policy, initialGameState);
+            aiService.setPathAMAF(pathAMAF);
+            aiService.setEdgeAMAF(edgeAMAF);
+            return aiService;
         }
-        return new AIPlayer<>(aiService, timePerMoveMs);
+        NodeResultsFactory<DefaultNodeResults> nodeResultsFactory = new DefaultNodeResultsFactory();
+        NodeResultsService<DefaultNodeResults> nodeResultsService 
+                = new DefaultNodeResultsService<>(nodeResultsFactory);
+        return new MonteCarloSearchService<>(nodeResultsService, policy, initialGameState);
     }
 }
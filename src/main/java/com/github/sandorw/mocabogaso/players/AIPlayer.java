@@ -7,16 +7,23 @@ import com.github.sandorw.mocabogaso.games.GameState;
 
 /**
  * Implementation of Player for AI players. Leverages a AIService for move search and generation.
+ * With pondering, the AIService keeps searching between its turns.
  * 
  * @author sandorw
  */
 public final class AIPlayer<GM extends GameMove> implements Player<GM> {
     private final AIService<GM> aiService;
     private final int allottedTimeMs;
+    private final boolean ponder;
     
     public AIPlayer(AIService<GM> aiService, int allottedTimeMs) {
+        this(aiService, allottedTimeMs, false);
+    }
+    
+    public AIPlayer(AIService<GM> aiService, int allottedTimeMs, boolean ponder) {
         this.aiService = aiService;
         this.allottedTimeMs = allottedTimeMs;
+        this.ponder = ponder;
     }
     
     @Override
@@ -29,8 +36,13 @@ public final class AIPlayer<GM extends GameMove> implements Player<GM> {
     public <GR extends GameResult, GS extends GameState<GM,GR>> 
             void informOfMoveMade(GM move, GS resultingGameState) {
         aiService.applyMove(move, resultingGameState);
+        if (ponder) {
+            aiService.startPondering(resultingGameState);
+        }
     }
 
     @Override
-    public void shutdown() {}
+    public void shutdown() {
+        aiService.stopPondering();
+    }
 }
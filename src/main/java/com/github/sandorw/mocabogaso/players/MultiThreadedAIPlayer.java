@@ -12,7 +12,8 @@ import com.github.sandorw.mocabogaso.games.GameState;
 import com.google.common.collect.Lists;
 
 /**
- * Multithreaded AI Player implementation.
+ * Multithreaded AI Player implementation. With pondering, the AIService keeps searching between
+ * its turns.
  * 
  * @author sandorw
  */
@@ -21,11 +22,17 @@ public class MultiThreadedAIPlayer<GM extends GameMove> implements Player<GM> {
     private final int allottedTimeMs;
     private final int numThreads;
     private final ExecutorService executor;
+    private final boolean ponder;
     
     public MultiThreadedAIPlayer(AIService<GM> aiService, int allottedTimeMs, int numThreads) {
+        this(aiService, allottedTimeMs, numThreads, false);
+    }
+    
+    public MultiThreadedAIPlayer(AIService<GM> aiService, int allottedTimeMs, int numThreads, boolean ponder) {
         this.aiService = aiService;
         this.allottedTimeMs = allottedTimeMs;
         this.numThreads = numThreads;
+        this.ponder = ponder;
         executor = Executors.newFixedThreadPool(numThreads);
     }
     
@@ -53,10 +60,14 @@ public class MultiThreadedAIPlayer<GM extends GameMove> implements Player<GM> {
     public <GR extends GameResult, GS extends GameState<GM,GR>> 
             void informOfMoveMade(GM move, GS resultingGameState) {
         aiService.applyMove(move, resultingGameState);
+        if (ponder) {
+            aiService.startPondering(resultingGameState);
+        }
     }
 
     @Override
     public void shutdown() {
+        aiService.stopPondering();
         executor.shutdownNow();
     }
 }
@@ -0,0 +1,15 @@
+package com.github.sandorw.mocabogaso.players;
+
+/**
+ * Enum representing how a multithreaded AI player splits its search between threads. TREE shares
+ * one search tree between all threads, ROOT gives every thread a private tree and merges the root
+ * statistics when selecting a move, LEAF runs a batch of playouts in parallel from every selected
+ * leaf of a single searching thread.
+ * 
+ * @author sandorw
+ */
+public enum ParallelizationMode {
+    TREE,
+    ROOT,
+    LEAF;
+}
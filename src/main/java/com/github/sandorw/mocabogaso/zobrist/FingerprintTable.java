@@ -0,0 +1,60 @@
+package com.github.sandorw.mocabogaso.zobrist;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed capacity, lock-free open addressing table from Zobrist hashes to a second, independent 
+ * fingerprint of the state they were computed for. Two primitive longs per entry keep it small 
+ * enough to hold tens of millions of states. Zero marks an empty slot, so a zero hash is kept 
+ * separately and fingerprints must not be zero.
+ *
+ * @author sandorw
+ */
+final class FingerprintTable {
+    static final long EMPTY = 0L;
+    
+    private final AtomicLongArray hashes;
+    private final AtomicLongArray fingerprints;
+    private final AtomicLong zeroHashFingerprint;
+    private final int mask;
+    
+    FingerprintTable(int expectedNumEntries) {
+        int capacity = Integer.highestOneBit(Math.min(Math.max(expectedNumEntries, 2), 1 << 28) - 1) << 2;
+        hashes = new AtomicLongArray(capacity);
+        fingerprints = new AtomicLongArray(capacity);
+        zeroHashFingerprint = new AtomicLong(EMPTY);
+        mask = capacity - 1;
+    }
+    
+    int getCapacity() {
+        return hashes.length();
+    }
+    
+    /**
+     * Stores the fingerprint for the hash unless one is already stored. Returns EMPTY if it was
+     * stored, or else the fingerprint already in the table.
+     */
+    long putIfAbsent(long zobristHash, long fingerprint) {
+        if (zobristHash == EMPTY) {
+            return (zeroHashFingerprint.compareAndSet(EMPTY, fingerprint) ? EMPTY : zeroHashFingerprint.get());
+        }
+        int slot = (int)zobristHash & mask;
+        for (int i=0; i <= mask; ++i) {
+            long storedHash = hashes.get(slot);
+            if ((storedHash == EMPTY) && hashes.compareAndSet(slot, EMPTY, zobristHash)) {
+                fingerprints.set(slot, fingerprint);
+                return EMPTY;
+            }
+            if (hashes.get(slot) == zobristHash) {
+                long storedFingerprint;
+                while ((storedFingerprint = fingerprints.get(slot)) == EMPTY) {
+                    Thread.yield();
+                }
+                return storedFingerprint;
+            }
+            slot = (slot + 1) & mask;
+        }
+        throw new IllegalStateException("FingerprintTable is full");
+    }
+}
@@ -1,51 +1,118 @@
 package com.github.sandorw.mocabogaso.zobrist;
 
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameState;
-import com.google.common.collect.Maps;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 
 /**
  * Attempts to check all reachable states within a game to detect Zobrist hash collisions.
  * 
+ * The game tree is explored in parallel on a ForkJoinPool. Rather than keeping every GameState, 
+ * each Zobrist hash seen is stored in a FingerprintTable together with an independent fingerprint
+ * of the state, a 64 bit murmur3 hash of its toString. Reaching a hash again with the same 
+ * fingerprint is a transposition and is not explored again; reaching it with a different 
+ * fingerprint is a collision, which is logged and passed to the collision listener straight away.
+ * States after the end of the game are not reachable and are not explored.
+ * 
  * @author sandorw
  */
 public class HashCollisionChecker {
     private final Logger LOGGER = LoggerFactory.getLogger(HashCollisionChecker.class);
+    private static final int DEFAULT_EXPECTED_NUM_STATES = 1 << 16;
+    private static final HashFunction FINGERPRINT_FUNCTION = Hashing.murmur3_128();
     
-    private final Map<Long,GameState<?,?>> zobristHashMap;
-    private int numCollisions;
+    private final FingerprintTable fingerprintTable;
+    private final Consumer<GameState<?,?>> collisionListener;
+    private final LongAdder numCollisions;
+    private final LongAdder numStates;
     
     public HashCollisionChecker() {
-        zobristHashMap = Maps.newHashMap();
-        numCollisions = 0;
+        this(DEFAULT_EXPECTED_NUM_STATES, gameState -> {});
+    }
+    
+    /**
+     * @param expectedNumStates upper bound on the number of distinct states in the game
+     * @param collisionListener called with each state whose hash collides with an earlier one
+     */
+    public HashCollisionChecker(int expectedNumStates, Consumer<GameState<?,?>> collisionListener) {
+        fingerprintTable = new FingerprintTable(expectedNumStates);
+        this.collisionListener = collisionListener;
+        numCollisions = new LongAdder();
+        numStates = new LongAdder();
     }
     
     public <GM extends GameMove> int detectCollisions(GameState<GM,?> gameState) {
         LOGGER.info("Checking for hash collisions...");
-        exploreChildGameStates(gameState);
-        LOGGER.info("{} hash collisions found.", numCollisions);
-        return numCollisions;
+        long startTime = System.currentTimeMillis();
+        ForkJoinPool.commonPool().invoke(new ExploreTask<>(gameState));
+        long elapsedTimeMs = Math.max(System.currentTimeMillis() - startTime, 1L);
+        LOGGER.info("Checked {} states in {} ms, {} states per second.", numStates.sum(), elapsedTimeMs, 
+                numStates.sum()*1000L/elapsedTimeMs);
+        LOGGER.info("{} hash collisions found.", numCollisions.sum());
+        return numCollisions.intValue();
     }
     
-    private <GM extends GameMove> void exploreChildGameStates(GameState<GM,?> gameState) {
+    public long getNumStatesChecked() {
+        return numStates.sum();
+    }
+    
+    /**
+     * Whether the state has not been explored yet. Reports a collision if its hash was seen for a
+     * different state.
+     */
+    private boolean checkNewState(GameState<?,?> gameState) {
         long zobristHash = gameState.getZobristHash();
-        if (zobristHashMap.containsKey(zobristHash) && !gameState.equals(zobristHashMap.get(zobristHash))) {
-            ++numCollisions;
-            LOGGER.info("Hash collision found between two distinct game states:");
-            LOGGER.info(gameState.toString());
-            LOGGER.info(zobristHashMap.get(zobristHash).toString());
-        } else {
-            zobristHashMap.put(zobristHash, gameState);
+        long fingerprint = getFingerprint(gameState);
+        long storedFingerprint = fingerprintTable.putIfAbsent(zobristHash, fingerprint);
+        if (storedFingerprint == FingerprintTable.EMPTY) {
+            numStates.increment();
+            return true;
         }
-        for (GM move : gameState.getAllValidMoves()) {
-            GameState<GM,?> newGameState = gameState.getCopy();
-            newGameState.applyMove(move);
-            exploreChildGameStates(newGameState);
+        if (storedFingerprint == fingerprint)
+            return false;
+        numCollisions.increment();
+        LOGGER.info("Hash collision found for hash {} with the game state:", zobristHash);
+        LOGGER.info(gameState.toString());
+        collisionListener.accept(gameState);
+        return true;
+    }
+    
+    private static long getFingerprint(GameState<?,?> gameState) {
+        long fingerprint = FINGERPRINT_FUNCTION.hashString(gameState.toString(), StandardCharsets.UTF_8).asLong();
+        return (fingerprint == FingerprintTable.EMPTY ? 1L : fingerprint);
+    }
+    
+    private final class ExploreTask<GM extends GameMove> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient GameState<GM,?> gameState;
+        
+        private ExploreTask(GameState<GM,?> gameState) {
+            this.gameState = gameState;
+        }
+
+        @Override
+        protected void compute() {
+            if (!checkNewState(gameState) || gameState.isGameOver())
+                return;
+            List<ExploreTask<GM>> childTasks = Lists.newArrayList();
+            for (GM move : gameState.getAllValidMoves()) {
+                GameState<GM,?> newGameState = gameState.getCopy();
+                newGameState.applyMove(move);
+                childTasks.add(new ExploreTask<>(newGameState));
+            }
+            invokeAll(childTasks);
         }
     }
     
@@ -48,5 +48,66 @@ public final class MonteCarloSearchServiceTest {
         DefaultGameMove suggestedMove = searchService.selectMove();
         assertEquals(suggestedMove.getLocation(), 1);
     }
+    
+    @Test
+    public void leafParallelAvoidLosingMoveTest() {
+        SimpleTestGameState gameState = new SimpleTestGameState();
+        gameState.applyMove(new DefaultGameMove("Player 1", 3));
+        gameState.applyMove(new DefaultGameMove("Player 2", 3));
+        gameState.applyMove(new DefaultGameMove("Player 1", 2));
+        NodeResultsFactory<DefaultNodeResults> nodeResultsFactory = new DefaultNodeResultsFactory();
+        DefaultNodeResultsService<DefaultNodeResults> nodeResultsService = new DefaultNodeResultsService<>(nodeResultsFactory);
+        PlayoutPolicy policy = new FirstMoveTestPlayoutPolicy();
+        MonteCarloSearchService<DefaultGameMove,DefaultNodeResults> searchService = new MonteCarloSearchService<>(nodeResultsService, policy, gameState);
+        searchService.setLeafParallelism(4);
+        searchService.searchMoves(gameState, 50);
+        DefaultGameMove suggestedMove = searchService.selectMove();
+        assertEquals(suggestedMove.getLocation(), 1);
+        searchService.setLeafParallelism(1);
+    }
+    
+    @Test
+    public void lazyExpansionAvoidLosingMoveTest() {
+        SimpleTestGameState gameState = new SimpleTestGameState();
+        gameState.applyMove(new DefaultGameMove("Player 1", 3));
+        gameState.applyMove(new DefaultGameMove("Player 2", 3));
+        gameState.applyMove(new DefaultGameMove("Player 1", 2));
+        NodeResultsFactory<DefaultNodeResults> nodeResultsFactory = new DefaultNodeResultsFactory();
+        DefaultNodeResultsService<DefaultNodeResults> nodeResultsService = new DefaultNodeResultsService<>(nodeResultsFactory);
+        PlayoutPolicy policy = new FirstMoveTestPlayoutPolicy();
+        MonteCarloSearchService<DefaultGameMove,DefaultNodeResults> searchService = new MonteCarloSearchService<>(nodeResultsService, policy, gameState);
+        searchService.setLazyExpansion(true);
+        searchService.setProgressiveWidening(2.0f, 0.5f);
+        searchService.searchMoves(gameState, 50);
+        DefaultGameMove suggestedMove = searchService.selectMove();
+        assertEquals(suggestedMove.getLocation(), 1);
+    }
+    
+    @Test
+    public void ponderingReusesSubtreeAfterMoveTest() throws InterruptedException {
+        SimpleTestGameState gameState = new SimpleTestGameState();
+        gameState.applyMove(new DefaultGameMove("Player 1", 3));
+        gameState.applyMove(new DefaultGameMove("Player 2", 3));
+        NodeResultsFactory<DefaultNodeResults> nodeResultsFactory = new DefaultNodeResultsFactory();
+        DefaultNodeResultsService<DefaultNodeResults> nodeResultsService = new DefaultNodeResultsService<>(nodeResultsFactory);
+        PlayoutPolicy policy = new FirstMoveTestPlayoutPolicy();
+        MonteCarloSearchService<DefaultGameMove,DefaultNodeResults> searchService = new MonteCarloSearchService<>(nodeResultsService, policy, gameState);
+        searchService.startPondering(gameState);
+        Thread.sleep(50);
+        DefaultGameMove move = new DefaultGameMove("Player 1", 2);
+        gameState.applyMove(move);
+        searchService.applyMove(move, gameState);
+        int numReusedSimulations = 0;
+        for (int numSimulations : searchService.getRootChildSimulations().values()) {
+            numReusedSimulations += numSimulations;
+        }
+        assertTrue(numReusedSimulations > 0);
+        searchService.searchMoves(gameState, 50);
+        int numSimulations = 0;
+        for (int numChildSimulations : searchService.getRootChildSimulations().values()) {
+            numSimulations += numChildSimulations;
+        }
+        assertTrue(numSimulations > numReusedSimulations);
+    }
 
 }
@@ -2,8 +2,13 @@ package com.github.sandorw.mocabogaso.ai.mcts;
 
 import static org.junit.Assert.*;
 
+import java.util.Map;
+import java.util.Set;
+
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
 import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloSearchTree.SearchTreeIterator;
 import com.github.sandorw.mocabogaso.ai.mcts.defaults.DefaultNodeResults;
@@ -11,7 +16,10 @@ import com.github.sandorw.mocabogaso.ai.mcts.defaults.DefaultNodeResultsFactory;
 import com.github.sandorw.mocabogaso.ai.mcts.defaults.DefaultNodeResultsService;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMove;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameResult;
+import com.github.sandorw.mocabogaso.games.mnkgame.MNKGameState;
 import com.github.sandorw.mocabogaso.games.test.SimpleTestGameState;
+import com.github.sandorw.mocabogaso.games.tictactoe.TicTacToeGameState;
+import com.google.common.collect.Sets;
 
 /**
  * Test cases for MonteCarloSearchTree.
@@ -21,6 +29,9 @@ import com.github.sandorw.mocabogaso.games.test.SimpleTestGameState;
 public final class MonteCarloSearchTreeTest {
     SimpleTestGameState gameState;
     MonteCarloSearchTree<DefaultGameMove,DefaultNodeResults> searchTree;
+    
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
 
     @Before
     public void before() {
@@ -38,12 +49,25 @@ public final class MonteCarloSearchTreeTest {
         int moveLocation = iterator.getCurrentChildMove().getLocation();
         iterator = iterator.getCurrentChildIterator();
         DefaultNodeResults nodeResults = iterator.getCurrentNodeResults();
-        DefaultGameResult gameResult = new DefaultGameResult("Player 1", false);
+        DefaultGameResult gameResult = new DefaultGameResult("Player 1", 0, false);
         nodeResults.applyGameResult(gameResult);
         DefaultGameMove mostSimulatedMove = searchTree.getMostSimulatedMove();
         assertEquals(moveLocation, mostSimulatedMove.getLocation());
     }
     
+    @Test
+    public void getRootChildSimulationsTest() {
+        assertTrue(searchTree.getRootChildSimulations().isEmpty());
+        SearchTreeIterator<DefaultGameMove,DefaultNodeResults> iterator = searchTree.iterator();
+        iterator.expandNode(gameState);
+        iterator.advanceChildNode();
+        DefaultGameMove move = iterator.getCurrentChildMove();
+        iterator.getCurrentChildIterator().getCurrentNodeResults().applyGameResult(new DefaultGameResult("Player 1", 0, false));
+        Map<DefaultGameMove,Integer> childSimulations = searchTree.getRootChildSimulations();
+        assertEquals(childSimulations.size(), 3);
+        assertEquals(childSimulations.get(move).intValue(), 1);
+    }
+    
     @Test
     public void advanceToExistingMoveTest() {
         SearchTreeIterator<DefaultGameMove,DefaultNodeResults> iterator = searchTree.iterator();
@@ -136,6 +160,175 @@ public final class MonteCarloSearchTreeTest {
         assertEquals(numParents, 2);
     }
     
+    @Test
+    public void symmetryHashingSharesSymmetricChildrenTest() {
+        NodeResultsFactory<DefaultNodeResults> nodeResultsFactory = new DefaultNodeResultsFactory();
+        DefaultNodeResultsService<DefaultNodeResults> nodeResultsService = new DefaultNodeResultsService<>(nodeResultsFactory);
+        TicTacToeGameState ticTacToeGameState = TicTacToeGameState.of();
+        MonteCarloSearchTree<DefaultGameMove,DefaultNodeResults> symmetricTree 
+                = new MonteCarloSearchTree<>(nodeResultsService, ticTacToeGameState);
+        symmetricTree.setSymmetryHashing(true);
+        SearchTreeIterator<DefaultGameMove,DefaultNodeResults> iterator = symmetricTree.iterator();
+        iterator.expandNode(ticTacToeGameState);
+        Set<DefaultNodeResults> childResults = Sets.newIdentityHashSet();
+        while (iterator.hasNextChild()) {
+            iterator.advanceChildNode();
+            childResults.add(iterator.getCurrentChildIterator().getCurrentNodeResults());
+        }
+        assertEquals(childResults.size(), 3);
+        assertEquals(symmetricTree.getNumNodes(), 4);
+        MNKGameState resultingGameState = (MNKGameState) ticTacToeGameState.getCopy();
+        DefaultGameMove move = new DefaultGameMove("X", 8);
+        resultingGameState.applyMove(move);
+        symmetricTree.advanceTree(move, resultingGameState);
+        assertEquals(symmetricTree.getNumNodes(), 1);
+        symmetricTree.iterator().expandNode(resultingGameState);
+        for (DefaultGameMove childMove : symmetricTree.getRootChildSimulations().keySet()) {
+            assertTrue(resultingGameState.isValidMove(childMove));
+        }
+    }
+    
+    @Test
+    public void virtualLossDivertsConcurrentSelectionTest() {
+        searchTree.setVirtualLoss(1);
+        searchTree.iterator().expandNode(gameState);
+        SearchTreeIterator<DefaultGameMove,DefaultNodeResults> firstIterator = searchTree.iterator();
+        DefaultGameMove firstMove = firstIterator.advanceToNextExplorationNode("Player 1");
+        SearchTreeIterator<DefaultGameMove,DefaultNodeResults> secondIterator = searchTree.iterator();
+        DefaultGameMove secondMove = secondIterator.advanceToNextExplorationNode("Player 1");
+        assertNotEquals(firstMove, secondMove);
+    }
+    
+    @Test
+    public void revertVirtualLossRestoresSelectionTest() {
+        searchTree.setVirtualLoss(1);
+        searchTree.iterator().expandNode(gameState);
+        SearchTreeIterator<DefaultGameMove,DefaultNodeResults> firstIterator = searchTree.iterator();
+        DefaultGameMove firstMove = firstIterator.advanceToNextExplorationNode("Player 1");
+        firstIterator.revertVirtualLoss();
+        SearchTreeIterator<DefaultGameMove,DefaultNodeResults> secondIterator = searchTree.iterator();
+        DefaultGameMove secondMove = secondIterator.advanceToNextExplorationNode("Player 1");
+        assertEquals(firstMove, secondMove);
+    }
+    
+    private SearchTreeIterator<DefaultGameMove,DefaultNodeResults> getChildIterator(
+            SearchTreeIterator<DefaultGameMove,DefaultNodeResults> iterator, int moveLocation) {
+        while (iterator.hasNextChild()) {
+            iterator.advanceChildNode();
+            if (iterator.getCurrentChildMove().getLocation() == moveLocation)
+                return iterator.getCurrentChildIterator();
+        }
+        return null;
+    }
+    
+    private void expandAllRootChildren() {
+        searchTree.setNodeExpandThreshold(0);
+        searchTree.iterator().expandNode(gameState);
+        for (int i=1; i <= 3; ++i) {
+            SimpleTestGameState copy = (SimpleTestGameState) gameState.getCopy();
+            copy.applyMove(new DefaultGameMove("Player 1", i));
+            getChildIterator(searchTree.iterator(), i).expandNode(copy);
+        }
+    }
+    
+    @Test
+    public void advanceTreeDiscardsUnreachableNodesTest() {
+        expandAllRootChildren();
+        assertEquals(searchTree.getNumNodes(), 9);
+        DefaultGameMove move = new DefaultGameMove("Player 1", 1);
+        gameState.applyMove(move);
+        searchTree.advanceTree(move, gameState);
+        assertEquals(searchTree.getNumNodes(), 4);
+        SearchTreeIterator<DefaultGameMove,DefaultNodeResults> iterator = searchTree.iterator();
+        assertTrue(iterator.hasNext());
+        assertFalse(iterator.hasNextParent());
+        SearchTreeIterator<DefaultGameMove,DefaultNodeResults> childIterator = getChildIterator(iterator, 2);
+        assertEquals(childIterator.getCurrentNodeResults().getNumSimulations(), 0);
+        assertFalse(childIterator.hasNext());
+    }
+    
+    @Test
+    public void nodeBudgetPrunesLeastSimulatedLeavesTest() {
+        expandAllRootChildren();
+        SimpleTestGameState copy = (SimpleTestGameState) gameState.getCopy();
+        copy.applyMove(new DefaultGameMove("Player 1", 1));
+        copy.applyMove(new DefaultGameMove("Player 2", 1));
+        getChildIterator(getChildIterator(searchTree.iterator(), 1), 1).expandNode(copy);
+        assertEquals(searchTree.getNumNodes(), 11);
+        DefaultNodeResults nodeResults = getChildIterator(searchTree.iterator(), 2).getCurrentNodeResults();
+        for (int i=0; i < 5; ++i) {
+            nodeResults.applyGameResult(new DefaultGameResult("Player 1", 0, false));
+        }
+        searchTree.setNodeBudget(10);
+        assertEquals(searchTree.getNumNodes(), 7);
+        assertTrue(getChildIterator(searchTree.iterator(), 2).hasNext());
+        assertFalse(getChildIterator(searchTree.iterator(), 1).hasNext());
+        assertFalse(getChildIterator(searchTree.iterator(), 3).hasNext());
+        assertEquals(getChildIterator(searchTree.iterator(), 2).getCurrentNodeResults(), nodeResults);
+    }
+    
+    @Test
+    public void expansionStopsAtNodeBudgetTest() {
+        searchTree.setNodeBudget(5);
+        expandAllRootChildren();
+        assertEquals(searchTree.getNumNodes(), 4);
+        assertTrue(searchTree.iterator().hasNext());
+        assertFalse(getChildIterator(searchTree.iterator(), 1).hasNext());
+        DefaultGameMove move = new DefaultGameMove("Player 1", 1);
+        gameState.applyMove(move);
+        searchTree.advanceTree(move, gameState);
+        assertEquals(searchTree.getNumNodes(), 1);
+        searchTree.iterator().expandNode(gameState);
+        assertEquals(searchTree.getNumNodes(), 4);
+    }
+    
+    @Test
+    public void lazyExpansionCreatesChildOnSelectionTest() {
+        searchTree.setLazyExpansion(true);
+        SearchTreeIterator<DefaultGameMove,DefaultNodeResults> iterator = searchTree.iterator();
+        iterator.expandNode(gameState);
+        assertEquals(searchTree.getNumNodes(), 1);
+        assertTrue(iterator.hasNext());
+        DefaultGameMove move = iterator.advanceToNextExplorationNode(gameState);
+        assertEquals(searchTree.getNumNodes(), 2);
+        assertFalse(iterator.hasNextChild());
+        int numChildNodes = 0;
+        iterator = searchTree.iterator();
+        while (iterator.hasNextChild()) {
+            iterator.advanceChildNode();
+            if (iterator.hasCurrentChildNode()) {
+                ++numChildNodes;
+                assertEquals(iterator.getCurrentChildMove(), move);
+            }
+        }
+        assertEquals(numChildNodes, 1);
+        assertEquals(searchTree.getRootChildSimulations().size(), 3);
+    }
+    
+    @Test
+    public void lazyChildRequiresGameStateTest() {
+        searchTree.setLazyExpansion(true);
+        searchTree.iterator().expandNode(gameState);
+        exception.expect(IllegalStateException.class);
+        searchTree.iterator().advanceToNextExplorationNode("Player 1");
+    }
+    
+    @Test
+    public void progressiveWideningLimitsSelectionTest() {
+        searchTree.setLazyExpansion(true);
+        searchTree.setProgressiveWidening(1.0f, 0.5f);
+        searchTree.iterator().expandNode(gameState);
+        SearchTreeIterator<DefaultGameMove,DefaultNodeResults> iterator = searchTree.iterator();
+        DefaultGameMove firstMove = iterator.advanceToNextExplorationNode(gameState);
+        iterator.getCurrentNodeResults().applyGameResult(new DefaultGameResult("Player 2", 1, false));
+        searchTree.iterator().getCurrentNodeResults().applyGameResult(new DefaultGameResult("Player 2", 1, false));
+        DefaultGameMove secondMove = searchTree.iterator().advanceToNextExplorationNode(gameState);
+        assertEquals(secondMove, firstMove);
+        searchTree.setProgressiveWidening(0.0f, 0.5f);
+        secondMove = searchTree.iterator().advanceToNextExplorationNode(gameState);
+        assertNotEquals(secondMove, firstMove);
+    }
+    
     /**
      * Iterator tests
      */
@@ -0,0 +1,94 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sandorw.mocabogaso.ai.mcts.defaults.DefaultNodeResults;
+import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMove;
+import com.github.sandorw.mocabogaso.games.test.SimpleTestGameState;
+
+/**
+ * Test cases for NodeArena.
+ *
+ * @author sandorw
+ */
+public final class NodeArenaTest {
+    private NodeArena<DefaultGameMove,DefaultNodeResults> nodeArena;
+
+    @Before
+    public void before() {
+        nodeArena = new NodeArena<>();
+    }
+
+    private int addNode() {
+        return nodeArena.addNode(new DefaultNodeResults(new SimpleTestGameState()), 0, 0L);
+    }
+
+    @Test
+    public void growsPastChunkBoundaryTest() {
+        int lastNode = -1;
+        for (int i=0; i < 10000; ++i) {
+            lastNode = addNode();
+        }
+        assertEquals(lastNode, 9999);
+        assertEquals(nodeArena.getNodeCount(), 10000);
+        assertFalse(nodeArena.isExpanded(lastNode));
+        assertEquals(nodeArena.getFirstParentEdge(lastNode), NodeArena.NONE);
+        int firstEdge = nodeArena.allocateEdges(10000);
+        nodeArena.setEdge(firstEdge + 9999, new DefaultGameMove("Player 1", 7), 0, lastNode);
+        assertEquals(nodeArena.getEdgeChild(firstEdge + 9999), lastNode);
+    }
+
+    @Test
+    public void onlyOneExpansionClaimTest() {
+        int node = addNode();
+        assertTrue(nodeArena.tryClaimExpansion(node));
+        assertFalse(nodeArena.tryClaimExpansion(node));
+        assertFalse(nodeArena.isExpanded(node));
+        assertEquals(nodeArena.getChildCount(node), 0);
+        nodeArena.publishChildren(node, nodeArena.allocateEdges(0), 0);
+        assertTrue(nodeArena.isExpanded(node));
+    }
+
+    @Test
+    public void childBlockAndParentListTest() {
+        int firstParent = addNode();
+        int secondParent = addNode();
+        int child = addNode();
+        int firstEdge = nodeArena.allocateEdges(1);
+        nodeArena.setEdge(firstEdge, new DefaultGameMove("Player 1", 1), firstParent, child);
+        nodeArena.addParentEdge(child, firstEdge);
+        nodeArena.publishChildren(firstParent, firstEdge, 1);
+        int secondEdge = nodeArena.allocateEdges(1);
+        nodeArena.setEdge(secondEdge, new DefaultGameMove("Player 1", 2), secondParent, child);
+        nodeArena.addParentEdge(child, secondEdge);
+        nodeArena.publishChildren(secondParent, secondEdge, 1);
+        assertEquals(nodeArena.getEdgeChild(nodeArena.getChildEdge(firstParent, 0)), child);
+        int parentEdge = nodeArena.getFirstParentEdge(child);
+        assertEquals(nodeArena.getEdgeParent(parentEdge), secondParent);
+        parentEdge = nodeArena.getNextParentEdge(parentEdge);
+        assertEquals(nodeArena.getEdgeParent(parentEdge), firstParent);
+        assertEquals(nodeArena.getNextParentEdge(parentEdge), NodeArena.NONE);
+        nodeArena.clearParentEdges(child);
+        assertEquals(nodeArena.getFirstParentEdge(child), NodeArena.NONE);
+    }
+
+    @Test
+    public void edgeAMAFCountsTest() {
+        int parent = addNode();
+        int firstEdge = nodeArena.allocateEdges(2);
+        nodeArena.setEdge(firstEdge, new DefaultGameMove("Player 1", 1), parent, NodeArena.NONE);
+        nodeArena.setEdge(firstEdge + 1, new DefaultGameMove("Player 1", 2), parent, NodeArena.NONE);
+        nodeArena.addEdgeAMAFResult(firstEdge + 1, false, 0);
+        nodeArena.addEdgeAMAFResult(firstEdge + 1, true, -1);
+        long wins = nodeArena.getEdgeAMAFWins(firstEdge + 1);
+        assertEquals(nodeArena.getEdgeAMAFSimulations(firstEdge + 1), 2);
+        assertEquals(PackedResultCounts.getPoints(2, wins, 0), 
+                PackedResultCounts.WIN_POINTS + PackedResultCounts.TIE_POINTS);
+        assertEquals(PackedResultCounts.getPoints(2, wins, 1), PackedResultCounts.TIE_POINTS);
+        assertEquals(nodeArena.getEdgeAMAFSimulations(firstEdge), 0);
+        assertEquals(nodeArena.getEdgeAMAFWins(firstEdge), 0L);
+    }
+}
@@ -132,6 +132,7 @@ public final class NodeResultsTests {
         GameResult mockedGameResult = mock(GameResult.class);
         GameMove mockedGameMove = mock(GameMove.class);
         when(mockedGameResult.getWinningPlayer()).thenReturn("Player 1");
+        when(mockedGameResult.getWinningPlayerIndex()).thenReturn(0);
         when(mockedGameResult.isTie()).thenReturn(false);
         when(mockedHeuristic.evaluateMove(mockedGameMove, mockedGameState)).thenReturn(mockedGameResult);
         when(mockedHeuristic.getWeight()).thenReturn(2);
@@ -161,6 +162,47 @@ public final class NodeResultsTests {
         assertTrue(nodeResults.getValue("Player 1") > 0.0f);
     }
     
+    @SuppressWarnings("unchecked")
+    @Test
+    public void amafHeuristicNR_cachedBatchEvaluationTest() {
+        GameMove winningMove = mock(GameMove.class);
+        GameMove otherMove = mock(GameMove.class);
+        GameResult mockedGameResult = mock(GameResult.class);
+        when(mockedGameResult.getWinningPlayerIndex()).thenReturn(0);
+        int[] numEvaluations = {0};
+        Heuristic<GameMove,GameResult> heuristic = new Heuristic<GameMove,GameResult>() {
+            @Override
+            public int getWeight() {
+                return 2;
+            }
+
+            @Override
+            public <GS extends GameState<GameMove,GameResult>> GameResult evaluateMove(GameMove move, 
+                    GS initialGameState) {
+                ++numEvaluations[0];
+                return (move == winningMove ? mockedGameResult : null);
+            }
+
+            @Override
+            public <GS extends GameState<GameMove,GameResult>> GameMove suggestPlayoutMove(GS gameState) {
+                return null;
+            }
+        };
+        when(mockedGameState.getHeuristics()).thenReturn(ImmutableList.of(heuristic));
+        when(mockedGameState.getAllValidMoves()).thenReturn(ImmutableList.of(winningMove, otherMove));
+        when(mockedGameState.getZobristHash()).thenReturn(42L);
+        AMAFHeuristicNodeResultsFactory nodeResultsFactory = new AMAFHeuristicNodeResultsFactory();
+        float[] priors = nodeResultsFactory.getMovePriors(ImmutableList.of(winningMove, otherMove), mockedGameState);
+        assertEquals(priors[0], 1.0f, 0.001f);
+        assertEquals(priors[1], 0.0f, 0.001f);
+        AMAFHeuristicNodeResults nodeResults = nodeResultsFactory.getNewNodeResults(winningMove, mockedGameState);
+        assertTrue(nodeResults.getValue("Player 1") > nodeResults.getValue("Player 2"));
+        nodeResults = nodeResultsFactory.getNewNodeResults(otherMove, mockedGameState);
+        assertEquals(nodeResults.getValue("Player 1"), 0.0f, 0.001f);
+        assertEquals(nodeResultsFactory.getMovePrior(winningMove, mockedGameState), 1.0f, 0.001f);
+        assertEquals(numEvaluations[0], 2);
+    }
+    
     @Test
     public void amafHeuristicNR_winningSimulationTest() {
         AMAFHeuristicNodeResults nodeResults = new AMAFHeuristicNodeResults(mockedGameState);
@@ -211,6 +253,7 @@ public final class NodeResultsTests {
         GameResult mockedGameResult = mock(GameResult.class);
         when(mockedGameResult.isTie()).thenReturn(false);
         when(mockedGameResult.getWinningPlayer()).thenReturn("Player 1");
+        when(mockedGameResult.getWinningPlayerIndex()).thenReturn(0);
         nodeResults.applyGameResult(mockedGameResult);
         assertEquals(nodeResults.getNumSimulations(), 1);
         assertTrue(nodeResults.getValue("Player 1") > nodeResults.getValue("Player 2"));
@@ -230,6 +273,7 @@ public final class NodeResultsTests {
         GameResult mockedGameResult = mock(GameResult.class);
         when(mockedGameResult.isTie()).thenReturn(false);
         when(mockedGameResult.getWinningPlayer()).thenReturn("Player 1");
+        when(mockedGameResult.getWinningPlayerIndex()).thenReturn(0);
         nodeResults.applyAMAFGameResult(mockedGameResult);
         assertEquals(nodeResults.getNumSimulations(), 0);
         assertTrue(nodeResults.getValue("Player 1") > nodeResults.getValue("Player 2"));
@@ -249,6 +293,7 @@ public final class NodeResultsTests {
         GameResult mockedGameResult = mock(GameResult.class);
         when(mockedGameResult.isTie()).thenReturn(false);
         when(mockedGameResult.getWinningPlayer()).thenReturn("Player 1");
+        when(mockedGameResult.getWinningPlayerIndex()).thenReturn(0);
         nodeResults.applyVirtualGameResult(mockedGameResult, 1);
         assertEquals(nodeResults.getNumSimulations(), 0);
         assertTrue(nodeResults.getValue("Player 1") > nodeResults.getValue("Player 2"));
@@ -0,0 +1,76 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sandorw.mocabogaso.games.defaults.DefaultGameResult;
+import com.google.common.collect.Lists;
+
+/**
+ * Test cases for PackedResultCounts.
+ *
+ * @author sandorw
+ */
+public final class PackedResultCountsTest {
+    private PackedResultCounts resultCounts;
+    
+    @Before
+    public void before() {
+        resultCounts = new PackedResultCounts();
+    }
+    
+    @Test
+    public void exactPointsTest() {
+        resultCounts.addGameResult(new DefaultGameResult("Player 1", 0, false), 1);
+        resultCounts.addGameResult(new DefaultGameResult("Player 2", 1, false), 2);
+        resultCounts.addGameResult(new DefaultGameResult("", -1, true), 3);
+        long wins = resultCounts.getWins();
+        int numSimulations = resultCounts.getNumSimulations();
+        assertEquals(numSimulations, 6);
+        assertEquals(PackedResultCounts.getPoints(numSimulations, wins, 0), 4 + 3);
+        assertEquals(PackedResultCounts.getPoints(numSimulations, wins, 1), 8 + 3);
+    }
+    
+    @Test
+    public void countsPastTwentyOneBitsAreExactTest() {
+        int numWins = (1 << 21) + 5;
+        for (int i=0; i < numWins; ++i) {
+            resultCounts.addResult(false, 0, 1);
+        }
+        resultCounts.addResult(false, 1, 1 << 22);
+        resultCounts.addResult(true, -1, 3);
+        long wins = resultCounts.getWins();
+        int numSimulations = resultCounts.getNumSimulations();
+        assertEquals(numSimulations, numWins + (1 << 22) + 3);
+        assertEquals(PackedResultCounts.getPlayerWins(wins, 0), numWins);
+        assertEquals(PackedResultCounts.getPlayerWins(wins, 1), 1 << 22);
+        assertEquals(PackedResultCounts.getPoints(numSimulations, wins, 0), 4*numWins + 3);
+    }
+    
+    @Test
+    public void concurrentUpdatesAreNotLostTest() throws InterruptedException {
+        List<Thread> threads = Lists.newArrayList();
+        for (int i=0; i < 4; ++i) {
+            int winningPlayerIndex = i % 2;
+            threads.add(new Thread(() -> {
+                for (int j=0; j < 10000; ++j) {
+                    resultCounts.addGameResult(new DefaultGameResult("Player " + (winningPlayerIndex+1), winningPlayerIndex, false), 1);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long wins = resultCounts.getWins();
+        assertEquals(resultCounts.getNumSimulations(), 40000);
+        assertEquals(PackedResultCounts.getPoints(40000, wins, 0), 4*20000);
+        assertEquals(PackedResultCounts.getPoints(40000, wins, 1), 4*20000);
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.github.sandorw.mocabogaso.Game;
+import com.github.sandorw.mocabogaso.ai.mcts.defaults.DefaultNodeResults;
+import com.github.sandorw.mocabogaso.ai.mcts.defaults.DefaultNodeResultsFactory;
+import com.github.sandorw.mocabogaso.ai.mcts.defaults.DefaultNodeResultsService;
+import com.github.sandorw.mocabogaso.ai.mcts.policies.FirstMoveTestPlayoutPolicy;
+import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMove;
+import com.github.sandorw.mocabogaso.games.test.SimpleTestGameState;
+import com.github.sandorw.mocabogaso.players.AIBuilder;
+import com.github.sandorw.mocabogaso.players.ParallelizationMode;
+import com.google.common.collect.Lists;
+
+/**
+ * Test cases for RootParallelMonteCarloSearchService.
+ * 
+ * @author sandorw
+ */
+public final class RootParallelMonteCarloSearchServiceTest {
+    
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+    
+    private List<MonteCarloAIService<DefaultGameMove>> getWorkerServices(SimpleTestGameState gameState, int numWorkers) {
+        List<MonteCarloAIService<DefaultGameMove>> workerServices = Lists.newArrayList();
+        for (int i=0; i < numWorkers; ++i) {
+            NodeResultsFactory<DefaultNodeResults> nodeResultsFactory = new DefaultNodeResultsFactory();
+            DefaultNodeResultsService<DefaultNodeResults> nodeResultsService = new DefaultNodeResultsService<>(nodeResultsFactory);
+            PlayoutPolicy policy = new FirstMoveTestPlayoutPolicy();
+            workerServices.add(new MonteCarloSearchService<>(nodeResultsService, policy, gameState));
+        }
+        return workerServices;
+    }
+    
+    @Test
+    public void noWorkersExceptionTest() {
+        exception.expect(IllegalArgumentException.class);
+        new RootParallelMonteCarloSearchService<DefaultGameMove>(Lists.newArrayList());
+    }
+    
+    @Test
+    public void sharedPlayoutBudgetTest() {
+        SimpleTestGameState gameState = new SimpleTestGameState();
+        List<MonteCarloAIService<DefaultGameMove>> workerServices = getWorkerServices(gameState, 2);
+        RootParallelMonteCarloSearchService<DefaultGameMove> searchService = new RootParallelMonteCarloSearchService<>(workerServices);
+        SearchBudget searchBudget = new SearchBudget(200, SearchBudget.UNLIMITED);
+        searchService.setSearchBudget(searchBudget);
+        searchService.searchMoves(gameState, 10000);
+        searchService.searchMoves(gameState, 10000);
+        assertEquals(searchBudget.getNumPlayouts(), 200L);
+        assertTrue(searchBudget.getNumNodes() > 0L);
+        DefaultGameMove move = searchService.selectMove();
+        gameState.applyMove(move);
+        searchService.applyMove(move, gameState);
+        assertEquals(searchBudget.getNumPlayouts(), 0L);
+    }
+    
+    @Test
+    public void mergedRootSimulationsTest() {
+        SimpleTestGameState gameState = new SimpleTestGameState();
+        List<MonteCarloAIService<DefaultGameMove>> workerServices = getWorkerServices(gameState, 2);
+        RootParallelMonteCarloSearchService<DefaultGameMove> searchService = new RootParallelMonteCarloSearchService<>(workerServices);
+        searchService.searchMoves(gameState, 20);
+        searchService.searchMoves(gameState, 20);
+        Map<DefaultGameMove,Integer> mergedSimulations = searchService.getRootChildSimulations();
+        assertEquals(mergedSimulations.size(), 3);
+        for (Map.Entry<DefaultGameMove,Integer> entry : mergedSimulations.entrySet()) {
+            int workerSimulations = 0;
+            for (MonteCarloAIService<DefaultGameMove> workerService : workerServices) {
+                workerSimulations += workerService.getRootChildSimulations().get(entry.getKey());
+            }
+            assertEquals(entry.getValue().intValue(), workerSimulations);
+        }
+        for (MonteCarloAIService<DefaultGameMove> workerService : workerServices) {
+            assertFalse(workerService.getRootChildSimulations().isEmpty());
+        }
+    }
+    
+    @Test
+    public void avoidLosingMoveTest() {
+        SimpleTestGameState gameState = new SimpleTestGameState();
+        gameState.applyMove(new DefaultGameMove("Player 1", 3));
+        gameState.applyMove(new DefaultGameMove("Player 2", 3));
+        gameState.applyMove(new DefaultGameMove("Player 1", 2));
+        RootParallelMonteCarloSearchService<DefaultGameMove> searchService 
+                = new RootParallelMonteCarloSearchService<>(getWorkerServices(gameState, 2));
+        searchService.searchMoves(gameState, 50);
+        searchService.searchMoves(gameState, 50);
+        DefaultGameMove suggestedMove = searchService.selectMove();
+        assertEquals(suggestedMove.getLocation(), 1);
+    }
+    
+    @Test
+    public void rootParallelGameTest() {
+        SimpleTestGameState gameState = new SimpleTestGameState();
+        Game<DefaultGameMove, SimpleTestGameState> game = new Game<>(gameState);
+        game.addPlayer("Player 1", new AIBuilder<>(gameState)
+                .withTimePerMove(50)
+                .multithreaded(2, ParallelizationMode.ROOT)
+                .build());
+        game.addPlayer("Player 2", new AIBuilder<>(gameState)
+                .withTimePerMove(50)
+                .multithreaded(2, ParallelizationMode.ROOT)
+                .build());
+        game.playGame();
+        assertTrue(game.isGameOver());
+        assertFalse(game.getGameResult().isTie());
+    }
+}
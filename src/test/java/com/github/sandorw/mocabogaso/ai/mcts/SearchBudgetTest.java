@@ -0,0 +1,39 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test cases for SearchBudget.
+ *
+ * @author sandorw
+ */
+public final class SearchBudgetTest {
+
+    @Test
+    public void playoutBudgetReservesExactlyTest() {
+        SearchBudget searchBudget = new SearchBudget(10, SearchBudget.UNLIMITED);
+        for (int i=0; i < 3; ++i) {
+            assertTrue(searchBudget.tryStartSimulation(3));
+        }
+        assertFalse(searchBudget.tryStartSimulation(3));
+        assertTrue(searchBudget.tryStartSimulation(1));
+        assertFalse(searchBudget.tryStartSimulation(1));
+        assertEquals(searchBudget.getNumPlayouts(), 10L);
+    }
+
+    @Test
+    public void nodeBudgetStopsSimulationsTest() {
+        SearchBudget searchBudget = new SearchBudget(SearchBudget.UNLIMITED, 5);
+        assertTrue(searchBudget.tryStartSimulation(1));
+        searchBudget.addNodes(4);
+        assertTrue(searchBudget.tryStartSimulation(1));
+        searchBudget.addNodes(2);
+        assertFalse(searchBudget.tryStartSimulation(1));
+        assertEquals(searchBudget.getNumNodes(), 6L);
+        searchBudget.reset();
+        assertTrue(searchBudget.tryStartSimulation(1));
+        assertEquals(searchBudget.getNumPlayouts(), 1L);
+    }
+}
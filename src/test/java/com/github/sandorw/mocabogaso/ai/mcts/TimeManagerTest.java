@@ -0,0 +1,49 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test cases for TimeManager.
+ *
+ * @author sandorw
+ */
+public final class TimeManagerTest {
+    private long now;
+
+    private TimeManager getTimeManager(boolean smartTimeManagement) {
+        now = 1000L;
+        return new TimeManager(100, smartTimeManagement, 0, () -> now);
+    }
+
+    @Test
+    public void fixedTimeRunsUntilDeadlineTest() {
+        TimeManager timeManager = getTimeManager(false);
+        now = 1099L;
+        assertTrue(timeManager.shouldContinue(null));
+        now = 1100L;
+        assertFalse(timeManager.shouldContinue(null));
+    }
+
+    @Test
+    public void stopsWhenBestMoveIsSettledTest() {
+        TimeManager timeManager = getTimeManager(true);
+        assertTrue(timeManager.shouldContinue(1080L, 800, 400, 300));
+        assertFalse(timeManager.shouldContinue(1080L, 800, 500, 200));
+    }
+
+    @Test
+    public void extendsWhenTopMovesAreCloseTest() {
+        TimeManager timeManager = getTimeManager(true);
+        assertTrue(timeManager.shouldContinue(1120L, 1000, 500, 480));
+        assertFalse(timeManager.shouldContinue(1120L, 1000, 500, 300));
+        assertFalse(timeManager.shouldContinue(1150L, 1000, 500, 480));
+    }
+
+    @Test
+    public void noExtensionWithoutSimulationsTest() {
+        TimeManager timeManager = getTimeManager(true);
+        assertFalse(timeManager.shouldContinue(1100L, 0, 0, 0));
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.sandorw.mocabogaso.ai.mcts;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sandorw.mocabogaso.ai.mcts.defaults.DefaultNodeResults;
+import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMove;
+import com.github.sandorw.mocabogaso.games.defaults.DefaultGameResult;
+import com.github.sandorw.mocabogaso.games.test.SimpleTestGameState;
+import com.google.common.collect.Lists;
+
+/**
+ * Test cases for TranspositionTable.
+ *
+ * @author sandorw
+ */
+public final class TranspositionTableTest {
+    private NodeArena<DefaultGameMove,DefaultNodeResults> nodeArena;
+    private TranspositionTable transpositionTable;
+
+    @Before
+    public void before() {
+        nodeArena = new NodeArena<>();
+        transpositionTable = new TranspositionTable(32, nodeArena);
+    }
+
+    private int addNode(int depth, int numSimulations, long zobristHash) {
+        DefaultNodeResults nodeResults = new DefaultNodeResults(new SimpleTestGameState());
+        for (int i=0; i < numSimulations; ++i) {
+            nodeResults.applyGameResult(new DefaultGameResult("Player 1", 0, false));
+        }
+        return nodeArena.addNode(nodeResults, depth, zobristHash);
+    }
+
+    @Test
+    public void capacityFromMemoryTest() {
+        assertEquals(TranspositionTable.getCapacity(1000), 64);
+        assertEquals(TranspositionTable.getCapacity(0), 4);
+        assertEquals(transpositionTable.getCapacity(), 4);
+    }
+
+    @Test
+    public void getOrInsertReturnsExistingNodeTest() {
+        int node = addNode(1, 0, 12345L);
+        assertEquals(transpositionTable.getOrInsert(12345L, () -> node), node);
+        assertEquals(transpositionTable.getOrInsert(12345L, () -> { throw new AssertionError(); }), node);
+        assertEquals(transpositionTable.get(12345L), node);
+        assertEquals(transpositionTable.get(54321L), NodeArena.NONE);
+    }
+
+    @Test
+    public void replacesLeastVisitedDeepestEntryTest() {
+        int[] nodes = {addNode(1, 5, 0L), addNode(3, 1, 1L), addNode(2, 1, 2L), addNode(1, 7, 3L)};
+        for (int i=0; i < nodes.length; ++i) {
+            int node = nodes[i];
+            transpositionTable.getOrInsert(i, () -> node);
+        }
+        int newNode = addNode(1, 0, 100L);
+        transpositionTable.getOrInsert(100L, () -> newNode);
+        assertEquals(transpositionTable.get(100L), newNode);
+        assertEquals(transpositionTable.get(1L), NodeArena.NONE);
+        assertEquals(transpositionTable.get(0L), nodes[0]);
+        assertEquals(transpositionTable.get(2L), nodes[2]);
+        assertEquals(transpositionTable.get(3L), nodes[3]);
+    }
+
+    @Test
+    public void checkCollisionIsNotAHitTest() {
+        long zobristHash = (5L << 32) | 8L;
+        long collidingHash = zobristHash ^ ((1L << 62) | (1L << 30));
+        int node = addNode(1, 0, zobristHash);
+        int collidingNode = addNode(1, 0, collidingHash);
+        transpositionTable.getOrInsert(zobristHash, () -> node);
+        assertEquals(transpositionTable.get(collidingHash), NodeArena.NONE);
+        assertEquals(transpositionTable.getOrInsert(collidingHash, () -> collidingNode), collidingNode);
+        assertEquals(transpositionTable.get(zobristHash), node);
+    }
+
+    @Test
+    public void concurrentInsertsCreateOneNodeTest() throws InterruptedException {
+        AtomicInteger numCreatedNodes = new AtomicInteger(0);
+        int[] nodes = new int[4];
+        List<Thread> threads = Lists.newArrayList();
+        for (int i=0; i < nodes.length; ++i) {
+            int threadIndex = i;
+            threads.add(new Thread(() -> {
+                nodes[threadIndex] = transpositionTable.getOrInsert(777L, () -> {
+                    numCreatedNodes.incrementAndGet();
+                    return addNode(1, 0, 777L);
+                });
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(numCreatedNodes.get(), 1);
+        for (int node : nodes) {
+            assertEquals(node, nodes[0]);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.Test;
 
 import com.github.sandorw.mocabogaso.Game;
 import com.github.sandorw.mocabogaso.ai.AIService;
+import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloAIService;
 import com.github.sandorw.mocabogaso.ai.mcts.NodeResultsFactory;
 import com.github.sandorw.mocabogaso.ai.mcts.PlayoutPolicy;
 import com.github.sandorw.mocabogaso.ai.mcts.policies.RandomMovePlayoutPolicy;
@@ -36,4 +37,64 @@ public class AMAFMonteCarloSearchServiceTest {
         GameResult gameResult = game.getGameResult();
         assertFalse(gameResult.isTie());
     }
+    
+    @Test
+    public void pathHexAMAFTest() {
+        HexGameState gameState = HexGameState.of(5);
+        Game<DefaultGameMove, HexGameState> game = new Game<>(gameState);
+        NodeResultsFactory<DefaultAMAFNodeResults> nodeResultsFactory = new DefaultAMAFNodeResultsFactory();
+        AMAFNodeResultsService<DefaultAMAFNodeResults> nodeResultsService = new AMAFNodeResultsService<>(nodeResultsFactory);
+        PlayoutPolicy policy = new RandomMovePlayoutPolicy();
+        AMAFMonteCarloSearchService<DefaultGameMove,DefaultAMAFNodeResults> oAIService 
+                = new AMAFMonteCarloSearchService<>(nodeResultsService, policy, gameState);
+        AMAFMonteCarloSearchService<DefaultGameMove,DefaultAMAFNodeResults> xAIService 
+                = new AMAFMonteCarloSearchService<>(nodeResultsService, policy, gameState);
+        oAIService.setPathAMAF(true);
+        xAIService.setPathAMAF(true);
+        xAIService.setEdgeAMAF(true);
+        game.addPlayer("O", new AIPlayer<>(oAIService, 50));
+        game.addPlayer("X", new AIPlayer<>(xAIService, 50));
+        game.playGame();
+        GameResult gameResult = game.getGameResult();
+        assertFalse(gameResult.isTie());
+    }
+    
+    @Test
+    public void leafParallelHexAMAFTest() {
+        HexGameState gameState = HexGameState.of(5);
+        Game<DefaultGameMove, HexGameState> game = new Game<>(gameState);
+        NodeResultsFactory<DefaultAMAFNodeResults> nodeResultsFactory = new DefaultAMAFNodeResultsFactory();
+        AMAFNodeResultsService<DefaultAMAFNodeResults> nodeResultsService = new AMAFNodeResultsService<>(nodeResultsFactory);
+        PlayoutPolicy policy = new RandomMovePlayoutPolicy();
+        MonteCarloAIService<DefaultGameMove> oAIService = new AMAFMonteCarloSearchService<>(nodeResultsService, policy, gameState);
+        MonteCarloAIService<DefaultGameMove> xAIService = new AMAFMonteCarloSearchService<>(nodeResultsService, policy, gameState);
+        oAIService.setLeafParallelism(3);
+        xAIService.setLeafParallelism(3);
+        game.addPlayer("O", new AIPlayer<>(oAIService, 50));
+        game.addPlayer("X", new AIPlayer<>(xAIService, 50));
+        game.playGame();
+        GameResult gameResult = game.getGameResult();
+        assertFalse(gameResult.isTie());
+        oAIService.setLeafParallelism(1);
+        xAIService.setLeafParallelism(1);
+    }
+    
+    @Test
+    public void lazyHeuristicHexAMAFTest() {
+        HexGameState gameState = HexGameState.of(5);
+        Game<DefaultGameMove, HexGameState> game = new Game<>(gameState);
+        NodeResultsFactory<AMAFHeuristicNodeResults> nodeResultsFactory = new AMAFHeuristicNodeResultsFactory();
+        AMAFNodeResultsService<AMAFHeuristicNodeResults> nodeResultsService = new AMAFNodeResultsService<>(nodeResultsFactory);
+        PlayoutPolicy policy = new RandomMovePlayoutPolicy();
+        MonteCarloAIService<DefaultGameMove> oAIService = new AMAFMonteCarloSearchService<>(nodeResultsService, policy, gameState);
+        MonteCarloAIService<DefaultGameMove> xAIService = new AMAFMonteCarloSearchService<>(nodeResultsService, policy, gameState);
+        oAIService.setLazyExpansion(true);
+        oAIService.setProgressiveWidening(2.0f, 0.5f);
+        xAIService.setLazyExpansion(true);
+        game.addPlayer("O", new AIPlayer<>(oAIService, 50));
+        game.addPlayer("X", new AIPlayer<>(xAIService, 50));
+        game.playGame();
+        GameResult gameResult = game.getGameResult();
+        assertFalse(gameResult.isTie());
+    }
 }
@@ -2,6 +2,9 @@ package com.github.sandorw.mocabogaso.ai.mcts.amaf;
 
 import static org.junit.Assert.*;
 
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.Test;
@@ -9,9 +12,15 @@ import org.junit.Test;
 import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloSearchTree;
 import com.github.sandorw.mocabogaso.ai.mcts.MonteCarloSearchTree.SearchTreeIterator;
 import com.github.sandorw.mocabogaso.ai.mcts.NodeResultsFactory;
+import com.github.sandorw.mocabogaso.ai.mcts.PackedResultCounts;
+import com.github.sandorw.mocabogaso.games.GameMove;
+import com.github.sandorw.mocabogaso.games.GameResult;
+import com.github.sandorw.mocabogaso.games.GameState;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMove;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameResult;
+import com.github.sandorw.mocabogaso.games.mnkgame.MNKGameState;
 import com.github.sandorw.mocabogaso.games.test.SimpleTestGameState;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 
 /**
@@ -30,6 +39,224 @@ public class AMAFNodeResultsServiceTest {
         propagateAMAFGameResult(nodeResultsService, gameState, searchTree);
     }
     
+    @Test
+    public void propagateAMAFGameResultOnPathTest() {
+        NodeResultsFactory<DefaultAMAFNodeResults> nodeResultsFactory = new DefaultAMAFNodeResultsFactory();
+        AMAFNodeResultsService<DefaultAMAFNodeResults> nodeResultsService = new AMAFNodeResultsService<>(nodeResultsFactory);
+        SimpleTestGameState gameState = new SimpleTestGameState();
+        MonteCarloSearchTree<DefaultGameMove,DefaultAMAFNodeResults> searchTree = new MonteCarloSearchTree<>(nodeResultsService, gameState);
+        SearchTreeIterator<DefaultGameMove,DefaultAMAFNodeResults> iterator = searchTree.iterator();
+        iterator.expandNode(gameState);
+        DefaultGameMove selectedMove = iterator.advanceToNextExplorationNode(gameState);
+        assertEquals(iterator.getSelectionPathLength(), 1);
+        assertEquals(iterator.getSelectionPathMove(0), selectedMove);
+        DefaultGameMove playedMove = new DefaultGameMove("Player 1", (selectedMove.getLocation() == 3 ? 2 : 3));
+        DefaultGameResult gameResult = new DefaultGameResult("Player 1", 0, false);
+        nodeResultsService.propagateGameResultsOnPathWithAMAF(ImmutableList.of(gameResult), iterator, 
+                ImmutableList.of(getPlayedMoveIds(playedMove)), DefaultGameMove::getLocation, 2, new int[] {0, 1});
+        assertEquals(searchTree.iterator().getCurrentNodeResults().getNumSimulations(), 1);
+        iterator = searchTree.iterator();
+        while (iterator.hasNextChild()) {
+            iterator.advanceChildNode();
+            DefaultAMAFNodeResults nodeResults = iterator.getCurrentChildNodeResults();
+            if (iterator.getCurrentChildMove().equals(selectedMove)) {
+                assertEquals(nodeResults.getNumSimulations(), 1);
+            } else if (iterator.getCurrentChildMove().equals(playedMove)) {
+                assertEquals(nodeResults.getNumSimulations(), 0);
+                assertTrue(nodeResults.getValue("Player 1") > 0.0f);
+            } else {
+                assertEquals(nodeResults.getValue("Player 1"), 0.0f, 0.001f);
+            }
+        }
+    }
+    
+    @Test
+    public void propagateEdgeAMAFGameResultOnPathTest() {
+        NodeResultsFactory<DefaultAMAFNodeResults> nodeResultsFactory = new DefaultAMAFNodeResultsFactory();
+        AMAFNodeResultsService<DefaultAMAFNodeResults> nodeResultsService = new AMAFNodeResultsService<>(nodeResultsFactory);
+        SimpleTestGameState gameState = new SimpleTestGameState();
+        MonteCarloSearchTree<DefaultGameMove,DefaultAMAFNodeResults> searchTree = new MonteCarloSearchTree<>(nodeResultsService, gameState);
+        searchTree.setEdgeAMAF(true);
+        SearchTreeIterator<DefaultGameMove,DefaultAMAFNodeResults> iterator = searchTree.iterator();
+        iterator.expandNode(gameState);
+        DefaultGameMove selectedMove = iterator.advanceToNextExplorationNode(gameState);
+        DefaultGameMove playedMove = new DefaultGameMove("Player 1", (selectedMove.getLocation() == 3 ? 2 : 3));
+        DefaultGameResult gameResult = new DefaultGameResult("Player 1", 0, false);
+        nodeResultsService.propagateGameResultsOnPathWithAMAF(ImmutableList.of(gameResult), iterator, 
+                ImmutableList.of(getPlayedMoveIds(playedMove)), DefaultGameMove::getLocation, 2, new int[] {0, 1});
+        iterator = searchTree.iterator();
+        while (iterator.hasNextChild()) {
+            iterator.advanceChildNode();
+            if (iterator.getCurrentChildMove().equals(playedMove)) {
+                assertEquals(iterator.getCurrentChildNodeResults().getValue("Player 1"), 0.0f, 0.001f);
+            }
+        }
+        assertEquals(searchTree.getMostSimulatedMove(), selectedMove);
+        assertEquals(searchTree.iterator().advanceToNextExplorationNode("Player 1"), playedMove);
+    }
+    
+    @Test
+    public void nodeAndEdgeAMAFApplySameUpdatesTest() {
+        assertNodeAndEdgeAMAFMatchOverGame(false);
+    }
+    
+    @Test
+    public void nodeAndEdgeAMAFApplySameUpdatesOnPathTest() {
+        assertNodeAndEdgeAMAFMatchOverGame(true);
+    }
+    
+    /**
+     * Plays a game of tic-tac-toe, searching every position with a tree in each AMAF mode. The 
+     * node results ignore AMAF in their value, so both trees select the same paths, and the AMAF 
+     * count of every node must equal the sum of the counts on the edges into it.
+     */
+    private void assertNodeAndEdgeAMAFMatchOverGame(boolean pathAMAF) {
+        AMAFNodeResultsService<CountingAMAFNodeResults> nodeResultsService 
+                = new AMAFNodeResultsService<>(new CountingAMAFNodeResultsFactory());
+        MNKGameState gameState = MNKGameState.of(3, 3, 3);
+        int numAMAFSimulations = 0;
+        while (!gameState.isGameOver()) {
+            MonteCarloSearchTree<DefaultGameMove,CountingAMAFNodeResults> nodeTree 
+                    = new MonteCarloSearchTree<>(nodeResultsService, gameState);
+            MonteCarloSearchTree<DefaultGameMove,CountingAMAFNodeResults> edgeTree 
+                    = new MonteCarloSearchTree<>(nodeResultsService, gameState);
+            edgeTree.setEdgeAMAF(true);
+            nodeTree.iterator().expandNode(gameState);
+            edgeTree.iterator().expandNode(gameState);
+            for (int i=0; i < 200; ++i) {
+                simulate(nodeResultsService, nodeTree, gameState, pathAMAF);
+                simulate(nodeResultsService, edgeTree, gameState, pathAMAF);
+            }
+            Map<CountingAMAFNodeResults,CountingAMAFNodeResults> nodeTreeResults = new IdentityHashMap<>();
+            Map<CountingAMAFNodeResults,Integer> edgeAMAFSimulations = new IdentityHashMap<>();
+            collectAMAFCounts(nodeTree.iterator(), edgeTree.iterator(), nodeTreeResults, edgeAMAFSimulations);
+            for (Map.Entry<CountingAMAFNodeResults,CountingAMAFNodeResults> entry : nodeTreeResults.entrySet()) {
+                assertEquals(entry.getValue().getNumSimulations(), entry.getKey().getNumSimulations());
+                assertEquals(entry.getValue().numAMAFSimulations, (int)edgeAMAFSimulations.get(entry.getKey()));
+                assertEquals(entry.getKey().numAMAFSimulations, 0);
+                numAMAFSimulations += entry.getValue().numAMAFSimulations;
+            }
+            gameState.applyMove(nodeTree.getMostSimulatedMove());
+        }
+        assertTrue(numAMAFSimulations > 0);
+    }
+    
+    /**
+     * Selection, a playout that always takes the first valid move, propagation and expansion, as
+     * the AMAFMonteCarloSearchService does them.
+     */
+    private void simulate(AMAFNodeResultsService<CountingAMAFNodeResults> nodeResultsService, 
+            MonteCarloSearchTree<DefaultGameMove,CountingAMAFNodeResults> searchTree, MNKGameState rootGameState, 
+            boolean pathAMAF) {
+        MNKGameState gameState = (MNKGameState) rootGameState.getCopy();
+        SearchTreeIterator<DefaultGameMove,CountingAMAFNodeResults> iterator = searchTree.iterator();
+        int[] pathPlayerIndices = new int[10];
+        int numSelectedMoves = 0;
+        while (iterator.hasNext()) {
+            pathPlayerIndices[numSelectedMoves++] = gameState.getNextPlayerIndex();
+            gameState.applyMove(iterator.advanceToNextExplorationNode(gameState));
+        }
+        pathPlayerIndices[numSelectedMoves] = gameState.getNextPlayerIndex();
+        MNKGameState leafGameState = (MNKGameState) gameState.getCopy();
+        Set<DefaultGameMove> playedMoves = Sets.newHashSet();
+        BitSet playedMoveIds = new BitSet();
+        while (!gameState.isGameOver()) {
+            DefaultGameMove move = gameState.getAllValidMoves().get(0);
+            playedMoves.add(move);
+            playedMoveIds.set(AMAFPathWalker.getMoveId(move.getLocation(), gameState.getNextPlayerIndex(), 2));
+            gameState.applyMove(move);
+        }
+        DefaultGameResult gameResult = gameState.getGameResult();
+        if (pathAMAF) {
+            nodeResultsService.propagateGameResultsOnPathWithAMAF(ImmutableList.of(gameResult), iterator, 
+                    ImmutableList.of(playedMoveIds), DefaultGameMove::getLocation, 2, pathPlayerIndices);
+        } else {
+            nodeResultsService.propagateGameResultsWithAMAF(ImmutableList.of(gameResult), iterator, 
+                    ImmutableList.of(playedMoves));
+        }
+        iterator.expandNode(leafGameState);
+    }
+    
+    /**
+     * Walks both trees in step, pairing the node results of the edge tree with those of the node 
+     * tree and summing the AMAF counts of the edges into each node of the edge tree.
+     */
+    private void collectAMAFCounts(SearchTreeIterator<DefaultGameMove,CountingAMAFNodeResults> nodeIterator, 
+            SearchTreeIterator<DefaultGameMove,CountingAMAFNodeResults> edgeIterator, 
+            Map<CountingAMAFNodeResults,CountingAMAFNodeResults> nodeTreeResults,
+            Map<CountingAMAFNodeResults,Integer> edgeAMAFSimulations) {
+        while (nodeIterator.hasNextChild()) {
+            nodeIterator.advanceChildNode();
+            edgeIterator.advanceChildNode();
+            assertEquals(edgeIterator.getCurrentChildMove(), nodeIterator.getCurrentChildMove());
+            CountingAMAFNodeResults edgeChildResults = edgeIterator.getCurrentChildNodeResults();
+            edgeAMAFSimulations.merge(edgeChildResults, edgeIterator.getCurrentChildAMAFSimulations(), Integer::sum);
+            if (nodeTreeResults.put(edgeChildResults, nodeIterator.getCurrentChildNodeResults()) == null) {
+                collectAMAFCounts(nodeIterator.getCurrentChildIterator(), edgeIterator.getCurrentChildIterator(), 
+                        nodeTreeResults, edgeAMAFSimulations);
+            }
+        }
+        assertFalse(edgeIterator.hasNextChild());
+    }
+    
+    /**
+     * AMAFNodeResults that count AMAF results without letting them affect the value.
+     */
+    private static final class CountingAMAFNodeResults implements AMAFNodeResults {
+        private final PackedResultCounts resultCounts = new PackedResultCounts();
+        private int numAMAFSimulations = 0;
+        
+        @Override
+        public float getValue(String evaluatingPlayerName) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public float getValue(int evaluatingPlayerIndex) {
+            long wins = resultCounts.getWins();
+            int numSimulations = resultCounts.getNumSimulations();
+            if (numSimulations == 0)
+                return 0.0f;
+            return (float)PackedResultCounts.getPoints(numSimulations, wins, evaluatingPlayerIndex)/numSimulations;
+        }
+        
+        @Override
+        public int getNumSimulations() {
+            return resultCounts.getNumSimulations();
+        }
+        
+        @Override
+        public <GR extends GameResult> void applyGameResult(GR gameResult) {
+            resultCounts.addGameResult(gameResult, 1);
+        }
+        
+        @Override
+        public <GM extends GameMove, GR extends GameResult> void applyAMAFGameResult(GR gameResult) {
+            ++numAMAFSimulations;
+        }
+    }
+    
+    private static final class CountingAMAFNodeResultsFactory implements NodeResultsFactory<CountingAMAFNodeResults> {
+        
+        @Override
+        public <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> 
+                CountingAMAFNodeResults getNewNodeResults(GM move, GS initialGameState) {
+            return new CountingAMAFNodeResults();
+        }
+        
+        @Override
+        public <GM extends GameMove, GR extends GameResult, GS extends GameState<GM,GR>> 
+                float getMovePrior(GM move, GS initialGameState) {
+            return 0.0f;
+        }
+    }
+    
+    private static BitSet getPlayedMoveIds(DefaultGameMove playedMove) {
+        BitSet playedMoveIds = new BitSet();
+        playedMoveIds.set(AMAFPathWalker.getMoveId(playedMove.getLocation(), 0, 2));
+        return playedMoveIds;
+    }
+    
     private <NR extends AMAFNodeResults> void propagateAMAFGameResult(AMAFNodeResultsService<NR> nodeResultsService, 
             SimpleTestGameState gameState, MonteCarloSearchTree<DefaultGameMove,NR> searchTree) {
         SearchTreeIterator<DefaultGameMove,NR> iterator = searchTree.iterator();
@@ -44,7 +271,7 @@ public class AMAFNodeResultsServiceTest {
         iterator = iterator.getCurrentChildIterator();
         move = new DefaultGameMove("Player 1", 3);
         Set<DefaultGameMove> playedMoves = Sets.newHashSet(move);
-        DefaultGameResult gameResult = new DefaultGameResult("Player 1", false);
+        DefaultGameResult gameResult = new DefaultGameResult("Player 1", 0, false);
         nodeResultsService.propagateGameResultWithAMAF(gameResult, iterator, playedMoves);
         iterator = searchTree.iterator();
         while (iterator.hasNextChild()) {
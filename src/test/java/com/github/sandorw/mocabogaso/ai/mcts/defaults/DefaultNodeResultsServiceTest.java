@@ -3,6 +3,8 @@ package com.github.sandorw.mocabogaso.ai.mcts.defaults;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -53,9 +55,29 @@ public final class DefaultNodeResultsServiceTest {
             DefaultGameMove move = iterator.advanceToNextExplorationNode(evaluatingPlayerName);
             gameState.applyMove(move);
         }
-        DefaultGameResult gameResult = new DefaultGameResult("Player 1", false);
+        DefaultGameResult gameResult = new DefaultGameResult("Player 1", 0, false);
         nodeResultsService.propagateGameResult(gameResult, iterator);
         assertEquals(searchTree.iterator().getCurrentNodeResults().getNumSimulations(), 1);
     }
+    
+    @Test
+    public void propagateGameResultsTest() {
+        SimpleTestGameState gameState = new SimpleTestGameState();
+        MonteCarloSearchTree<DefaultGameMove,DefaultNodeResults> searchTree = new MonteCarloSearchTree<>(nodeResultsService, gameState);
+        searchTree.setNodeExpandThreshold(0);
+        searchTree.iterator().expandNode(gameState);
+        SearchTreeIterator<DefaultGameMove,DefaultNodeResults> iterator = searchTree.iterator();
+        while (iterator.hasNext()) {
+            String evaluatingPlayerName = gameState.getNextPlayerName();
+            DefaultGameMove move = iterator.advanceToNextExplorationNode(evaluatingPlayerName);
+            gameState.applyMove(move);
+        }
+        List<DefaultGameResult> gameResults = ImmutableList.of(new DefaultGameResult("Player 1", 0, false),
+                new DefaultGameResult("Player 2", 1, false));
+        nodeResultsService.propagateGameResults(gameResults, iterator);
+        DefaultNodeResults rootNodeResults = searchTree.iterator().getCurrentNodeResults();
+        assertEquals(rootNodeResults.getNumSimulations(), 2);
+        assertEquals(rootNodeResults.getValue("Player 1"), 0.5f, 0.001f);
+    }
 
 }
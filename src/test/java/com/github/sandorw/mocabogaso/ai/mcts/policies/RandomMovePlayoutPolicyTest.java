@@ -11,6 +11,7 @@ import com.github.sandorw.mocabogaso.ai.mcts.PlayoutPolicy;
 import com.github.sandorw.mocabogaso.games.GameMove;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.GameState;
+import com.github.sandorw.mocabogaso.games.connectx.ConnectXGameState;
 import com.google.common.collect.Lists;
 
 /**
@@ -36,5 +37,22 @@ public final class RandomMovePlayoutPolicyTest {
         GameMove chosenMove = policy.getPlayoutMove(mockedGameState);
         assertTrue(moveList.contains(chosenMove));
     }
+    
+    @Test
+    public void sampledMoveIsValidTest() {
+        PlayoutPolicy policy = new RandomMovePlayoutPolicy();
+        ConnectXGameState gameState = ConnectXGameState.of(2,3,3);
+        gameState.applyEncodedMove(0);
+        gameState.applyEncodedMove(3);
+        gameState.applyEncodedMove(2);
+        gameState.applyEncodedMove(5);
+        gameState.undoMove();
+        int[] moveBuffer = new int[gameState.getMaxNumMoves()];
+        for (int i=0; i < 20; ++i) {
+            assertTrue(gameState.isValidMove(policy.getPlayoutMove(gameState)));
+            int encodedMove = policy.getEncodedPlayoutMove(gameState, moveBuffer);
+            assertTrue((encodedMove == 1) || (encodedMove == 5));
+        }
+    }
 
 }
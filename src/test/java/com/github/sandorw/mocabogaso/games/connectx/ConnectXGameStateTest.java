@@ -37,6 +37,18 @@ public class ConnectXGameStateTest {
         assertTrue(gameState.equals(copy));
     }
     
+    @Test
+    public void undoMoveRestoresValidMovesTest() {
+        ConnectXGameState gameState = ConnectXGameState.of(3,3,3);
+        ConnectXGameState copy = (ConnectXGameState) gameState.getCopy();
+        gameState.applyMove(new DefaultGameMove("X",0));
+        gameState.applyMove(new DefaultGameMove("O",3));
+        gameState.undoMove();
+        gameState.undoMove();
+        assertTrue(gameState.equals(copy));
+        assertEquals(gameState.getAllValidMoves(), copy.getAllValidMoves());
+    }
+    
     @Test
     public void getAllValidMovesTest() {
         ConnectXGameState gameState = ConnectXGameState.of(3,3,3);
@@ -50,6 +62,47 @@ public class ConnectXGameStateTest {
         assertEquals(locationSum, 6);
     }
     
+    @Test
+    public void fullColumnHasNoValidMoveTest() {
+        ConnectXGameState gameState = ConnectXGameState.of(2,3,3);
+        gameState.applyMove(new DefaultGameMove("X",1));
+        gameState.applyMove(new DefaultGameMove("O",4));
+        ConnectXGameState copy = (ConnectXGameState) gameState.getCopy();
+        List<DefaultGameMove> moves = copy.getAllValidMoves();
+        assertEquals(moves.size(), 2);
+        assertEquals(moves.get(0).getLocation(), 0);
+        assertEquals(moves.get(1).getLocation(), 2);
+        assertFalse(copy.isValidMove(copy.getMoveFromString("1")));
+    }
+    
+    @Test
+    public void encodedMovesMatchValidMovesTest() {
+        ConnectXGameState gameState = ConnectXGameState.of(2,3,2);
+        gameState.applyEncodedMove(1);
+        gameState.applyEncodedMove(4);
+        int[] moveBuffer = new int[gameState.getMaxNumMoves()];
+        assertEquals(gameState.getAllValidMoves(moveBuffer), 2);
+        assertEquals(moveBuffer[0], 0);
+        assertEquals(moveBuffer[1], 2);
+        assertSame(gameState.getMove(moveBuffer[0]), gameState.getAllValidMoves().get(0));
+        gameState.applyEncodedMove(0);
+        assertTrue(gameState.isGameOver());
+        assertEquals(gameState.getGameResult().getWinningPlayer(), "X");
+    }
+    
+    @Test
+    public void verticalWinTest() {
+        ConnectXGameState gameState = ConnectXGameState.of(6,7,4);
+        for (int i=0; i < 3; ++i) {
+            gameState.applyMove(gameState.getMoveFromString("3"));
+            gameState.applyMove(gameState.getMoveFromString("4"));
+        }
+        assertFalse(gameState.isGameOver());
+        gameState.applyMove(gameState.getMoveFromString("3"));
+        assertTrue(gameState.isGameOver());
+        assertEquals(gameState.getGameResult().getWinningPlayer(), "X");
+    }
+    
     @Test
     public void getValidMoveFromString() {
         ConnectXGameState gameState = ConnectXGameState.of(3,3,3);
@@ -0,0 +1,53 @@
+package com.github.sandorw.mocabogaso.games.defaults;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test cases for SparseIntSet
+ * 
+ * @author sandorw
+ */
+public final class SparseIntSetTest {
+
+    @Test
+    public void fullSetContainsEverythingTest() {
+        SparseIntSet set = SparseIntSet.full(5);
+        assertEquals(set.size(), 5);
+        for (int i=0; i < 5; ++i) {
+            assertTrue(set.contains(i));
+            assertEquals(set.get(i), i);
+        }
+    }
+    
+    @Test
+    public void removeMovesLastMemberIntoSlotTest() {
+        SparseIntSet set = SparseIntSet.full(5);
+        set.remove(1);
+        assertEquals(set.size(), 4);
+        assertFalse(set.contains(1));
+        assertEquals(set.get(1), 4);
+        set.remove(1);
+        assertEquals(set.size(), 4);
+        set.add(1);
+        assertEquals(set.size(), 5);
+        assertTrue(set.contains(1));
+        assertEquals(set.get(4), 1);
+    }
+    
+    @Test
+    public void copyToTest() {
+        SparseIntSet set = new SparseIntSet(4);
+        set.add(3);
+        set.add(0);
+        SparseIntSet copy = SparseIntSet.full(4);
+        set.copyTo(copy);
+        assertEquals(copy.size(), 2);
+        assertTrue(copy.contains(0));
+        assertTrue(copy.contains(3));
+        assertFalse(copy.contains(1));
+        copy.remove(3);
+        assertTrue(set.contains(3));
+    }
+}
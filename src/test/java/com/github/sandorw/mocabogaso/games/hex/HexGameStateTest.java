@@ -3,16 +3,20 @@ package com.github.sandorw.mocabogaso.games.hex;
 import static org.junit.Assert.*;
 
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import com.github.sandorw.mocabogaso.Game;
+import com.github.sandorw.mocabogaso.ai.mcts.Heuristic;
 import com.github.sandorw.mocabogaso.games.GameResult;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMove;
 import com.github.sandorw.mocabogaso.games.defaults.DefaultGameResult;
 import com.github.sandorw.mocabogaso.players.PlayerFactory;
+import com.google.common.collect.Sets;
 
 /**
  * Test cases for HexGameState
@@ -30,6 +34,15 @@ public class HexGameStateTest {
         HexGameState.of(1);
     }
     
+    @Test
+    public void boardTablesAreSharedBySizeTest() {
+        HexGameState gameState = HexGameState.of(4);
+        HexGameState otherGameState = HexGameState.of(4);
+        assertSame(gameState.neighborLocations, otherGameState.neighborLocations);
+        assertSame(gameState.getMove(5), otherGameState.getMove(5));
+        assertNotSame(gameState.getMove(5), HexGameState.of(5).getMove(5));
+    }
+    
     @Test
     public void copyStateTest() {
         HexGameState gameState = HexGameState.of(3);
@@ -41,6 +54,74 @@ public class HexGameStateTest {
         assertEquals(gameState.hashCode(), copy.hashCode());
     }
     
+    @Test
+    public void halfTurnSharesCanonicalHashTest() {
+        HexGameState gameState = HexGameState.of(3);
+        gameState.applyMove(new DefaultGameMove("X", 1));
+        gameState.applyMove(new DefaultGameMove("O", 3));
+        HexGameState rotated = HexGameState.of(3);
+        rotated.applyMove(new DefaultGameMove("X", 7));
+        rotated.applyMove(new DefaultGameMove("O", 5));
+        assertEquals(gameState.getCanonicalZobristHash(), rotated.getCanonicalZobristHash());
+        DefaultGameMove move = new DefaultGameMove("X", 2);
+        assertEquals(rotated.fromCanonicalMove(gameState.toCanonicalMove(move)).getLocation(), 6);
+    }
+    
+    @Test
+    public void batchHeuristicEvaluationTest() {
+        HexGameState gameState = HexGameState.of(5);
+        gameState.applyMove(new DefaultGameMove("X", 6));
+        gameState.applyMove(new DefaultGameMove("O", 7));
+        gameState.applyMove(new DefaultGameMove("X", 18));
+        gameState.applyMove(new DefaultGameMove("O", 4));
+        List<DefaultGameMove> moves = gameState.getAllValidMoves();
+        int[] outcomes = new int[moves.size()];
+        for (Heuristic<DefaultGameMove, DefaultGameResult> heuristic : gameState.getHeuristics()) {
+            heuristic.evaluateMoves(moves, gameState, outcomes);
+            for (int i=0; i < moves.size(); ++i) {
+                assertEquals(outcomes[i], Heuristic.getOutcome(heuristic.evaluateMove(moves.get(i), gameState)));
+            }
+        }
+    }
+    
+    @Test
+    public void undoMoveRestoresStateTest() {
+        HexGameState gameState = HexGameState.of(3);
+        HexGameState initialState = (HexGameState) gameState.getCopy();
+        gameState.applyMove(new DefaultGameMove("X", 3));
+        gameState.applyMove(new DefaultGameMove("O", 0));
+        gameState.applyMove(new DefaultGameMove("X", 4));
+        gameState.applyMove(new DefaultGameMove("O", 1));
+        HexGameState copy = (HexGameState) gameState.getCopy();
+        gameState.applyMove(new DefaultGameMove("X", 5));
+        assertTrue(gameState.isGameOver());
+        gameState.undoMove();
+        assertFalse(gameState.isGameOver());
+        assertTrue(gameState.equals(copy));
+        assertEquals(gameState.getZobristHash(), copy.getZobristHash());
+        gameState.applyMove(new DefaultGameMove("X", 8));
+        assertTrue(gameState.isGameOver());
+        assertEquals(gameState.getGameResult().getWinningPlayerIndex(), 0);
+        for (int i=0; i < 5; ++i) {
+            gameState.undoMove();
+        }
+        assertTrue(gameState.equals(initialState));
+        gameState.applyMove(new DefaultGameMove("X", 0));
+        gameState.applyMove(new DefaultGameMove("O", 1));
+        gameState.applyMove(new DefaultGameMove("X", 3));
+        gameState.applyMove(new DefaultGameMove("O", 4));
+        gameState.applyMove(new DefaultGameMove("X", 2));
+        gameState.applyMove(new DefaultGameMove("O", 7));
+        assertTrue(gameState.isGameOver());
+        assertEquals(gameState.getGameResult().getWinningPlayerIndex(), 1);
+    }
+    
+    @Test
+    public void undoWithoutMovesTest() {
+        exception.expect(IllegalStateException.class);
+        HexGameState.of(3).undoMove();
+    }
+    
     @Test
     public void verifyPlayerNamesTest() {
         HexGameState gameState = HexGameState.of(3);
@@ -64,6 +145,59 @@ public class HexGameStateTest {
         assertEquals(locationSum, 32);
     }
     
+    @Test
+    public void encodedMovesMatchValidMovesTest() {
+        HexGameState gameState = HexGameState.of(3);
+        gameState.applyEncodedMove(4);
+        List<DefaultGameMove> validMoves = gameState.getAllValidMoves();
+        int[] moveBuffer = new int[gameState.getMaxNumMoves()];
+        assertEquals(gameState.getAllValidMoves(moveBuffer), validMoves.size());
+        for (int i=0; i < validMoves.size(); ++i) {
+            assertEquals(moveBuffer[i], gameState.getEncodedMove(validMoves.get(i)));
+            assertSame(gameState.getMove(moveBuffer[i]), validMoves.get(i));
+        }
+        assertEquals(gameState.getMove(0).getPlayerName(), "O");
+        assertEquals(gameState, gameStateAfter(new DefaultGameMove("X", 4)));
+    }
+    
+    private static HexGameState gameStateAfter(DefaultGameMove move) {
+        HexGameState gameState = HexGameState.of(3);
+        gameState.applyMove(move);
+        return gameState;
+    }
+    
+    @Test
+    public void randomFillLastLocationTest() {
+        HexGameState gameState = HexGameState.of(2);
+        gameState.applyMove(new DefaultGameMove("X", 0));
+        gameState.applyMove(new DefaultGameMove("O", 1));
+        gameState.applyMove(new DefaultGameMove("X", 2));
+        HexGameState copy = (HexGameState) gameState.getCopy();
+        int[] moveBuffer = new int[gameState.getNumEmptyLocations()];
+        DefaultGameResult gameResult = gameState.getRandomFillResult(new Random(0L), moveBuffer);
+        assertEquals(gameResult.getWinningPlayer(), "O");
+        assertEquals(moveBuffer[0], 3);
+        assertFalse(gameState.isGameOver());
+        assertEquals(gameState, copy);
+    }
+    
+    @Test
+    public void randomFillUsesEveryEmptyLocationTest() {
+        HexGameState gameState = HexGameState.of(5);
+        gameState.applyMove(new DefaultGameMove("X", 12));
+        int[] moveBuffer = new int[gameState.getNumEmptyLocations()];
+        Random random = new Random(0L);
+        for (int i=0; i < 10; ++i) {
+            gameState.getRandomFillResult(random, moveBuffer);
+            Set<Integer> filledLocations = Sets.newHashSet();
+            for (int location : moveBuffer) {
+                filledLocations.add(location);
+            }
+            assertEquals(filledLocations.size(), 24);
+            assertFalse(filledLocations.contains(12));
+        }
+    }
+    
     @Test
     public void duplicateMoveTest() {
         HexGameState gameState = HexGameState.of(3);
@@ -126,6 +260,7 @@ public class HexGameStateTest {
         assertTrue(gameState.isGameOver());
         GameResult gameResult = gameState.getGameResult();
         assertEquals(gameResult.getWinningPlayer(), "O");
+        assertEquals(gameResult.getWinningPlayerIndex(), 1);
     }
     
     @Test
@@ -141,6 +276,26 @@ public class HexGameStateTest {
         assertEquals(gameResult.getWinningPlayer(), "X");
     }
     
+    @Test
+    public void largeBoardSpanningBitboardWordsTest() {
+        HexGameState gameState = HexGameState.of(11);
+        for (int i=0; i < 10; ++i) {
+            gameState.applyMove(new DefaultGameMove("O", i*11 + 7));
+            assertFalse(gameState.isGameOver());
+        }
+        List<DefaultGameMove> validMoves = gameState.getAllValidMoves();
+        assertEquals(validMoves.size(), 111);
+        assertEquals(validMoves.get(validMoves.size()-1).getLocation(), 120);
+        assertFalse(gameState.isValidMove(new DefaultGameMove("X", 95)));
+        HexGameState copy = (HexGameState) gameState.getCopy();
+        gameState.applyMove(new DefaultGameMove("O", 117));
+        assertTrue(gameState.isGameOver());
+        assertEquals(gameState.getGameResult().getWinningPlayerIndex(), 1);
+        assertFalse(copy.isGameOver());
+        copy.applyMove(new DefaultGameMove("O", 118));
+        assertTrue(copy.isGameOver());
+    }
+    
     @Test
     public void unfinishedGameResultExceptionTest() {
         HexGameState gameState = HexGameState.of(3);
@@ -47,6 +47,13 @@ public final class MNKGameStateTest {
         MNKGameState.of(1, 1, 2);
     }
     
+    @Test
+    public void moveTablesAreSharedByShapeTest() {
+        MNKGameState gameState = MNKGameState.of(3, 4, 3);
+        assertSame(gameState.getMove(5), MNKGameState.of(3, 4, 2).getMove(5));
+        assertNotSame(gameState.getMove(5), MNKGameState.of(4, 3, 3).getMove(5));
+    }
+    
     @Test
     public void copyEqualityTest() {
         MNKGameState gameState = MNKGameState.of(3, 4, 3);
@@ -57,6 +64,38 @@ public final class MNKGameStateTest {
         assertTrue(gameState.equals(copy));
     }
     
+    @Test
+    public void hashServiceSharedPerBoardShapeTest() {
+        assertSame(MNKZobristHashService.of(3, 4), MNKZobristHashService.of(3, 4));
+        assertNotSame(MNKZobristHashService.of(3, 4), MNKZobristHashService.of(4, 3));
+    }
+    
+    @Test
+    public void hashIncludesSideToMoveTest() {
+        MNKZobristHashService hashService = MNKZobristHashService.of(3, 4);
+        MNKGameState gameState = MNKGameState.of(3, 4, 3);
+        assertEquals(gameState.getZobristHash(), hashService.getSideToMoveHash(0));
+        gameState.applyMove(new DefaultGameMove("X", 5));
+        assertEquals(gameState.getZobristHash(), hashService.getLocationHash(5, 0) ^ hashService.getSideToMoveHash(1));
+    }
+    
+    @Test
+    public void undoMoveRestoresStateTest() {
+        MNKGameState gameState = MNKGameState.of(3, 3, 3);
+        gameState.applyMove(new DefaultGameMove("X",0));
+        gameState.applyMove(new DefaultGameMove("O",3));
+        gameState.applyMove(new DefaultGameMove("X",1));
+        gameState.applyMove(new DefaultGameMove("O",4));
+        MNKGameState copy = (MNKGameState) gameState.getCopy();
+        gameState.applyMove(new DefaultGameMove("X",2));
+        assertTrue(gameState.isGameOver());
+        gameState.undoMove();
+        assertFalse(gameState.isGameOver());
+        assertTrue(gameState.equals(copy));
+        assertEquals(gameState.getNextPlayerIndex(), 0);
+        assertEquals(gameState.getAllValidMoves().size(), 5);
+    }
+    
     @Test
     public void nextPlayerUpdateTest() {
         MNKGameState gameState = MNKGameState.of(3, 4, 3);
@@ -65,6 +104,15 @@ public final class MNKGameStateTest {
         assertEquals(gameState.getNextPlayerName(), "O");
     }
     
+    @Test
+    public void nextPlayerIndexUpdateTest() {
+        MNKGameState gameState = MNKGameState.of(3, 4, 3);
+        assertEquals(gameState.getNextPlayerIndex(), 0);
+        gameState.applyMove(new DefaultGameMove("X",3));
+        assertEquals(gameState.getNextPlayerIndex(), 1);
+        assertEquals(gameState.getAllPlayerNames().get(gameState.getNextPlayerIndex()), gameState.getNextPlayerName());
+    }
+    
     @Test
     public void getAllPlayerNamesTest() {
         MNKGameState gameState = MNKGameState.of(3, 4, 3);
@@ -149,6 +197,79 @@ public final class MNKGameStateTest {
         assertTrue(gameResult.isTie());
     }
     
+    @Test
+    public void lineDoesNotWrapAcrossRowsTest() {
+        MNKGameState gameState = MNKGameState.of(3, 3, 3);
+        gameState.applyMove(new DefaultGameMove("X", 1));
+        gameState.applyMove(new DefaultGameMove("O", 0));
+        gameState.applyMove(new DefaultGameMove("X", 2));
+        gameState.applyMove(new DefaultGameMove("O", 4));
+        gameState.applyMove(new DefaultGameMove("X", 3));
+        assertFalse(gameState.isGameOver());
+    }
+    
+    @Test
+    public void antiDiagonalWinTest() {
+        MNKGameState gameState = MNKGameState.of(3, 3, 3);
+        gameState.applyMove(new DefaultGameMove("X", 2));
+        gameState.applyMove(new DefaultGameMove("O", 0));
+        gameState.applyMove(new DefaultGameMove("X", 4));
+        gameState.applyMove(new DefaultGameMove("O", 1));
+        assertFalse(gameState.isGameOver());
+        gameState.applyMove(new DefaultGameMove("X", 6));
+        assertTrue(gameState.isGameOver());
+        assertEquals(gameState.getGameResult().getWinningPlayer(), "X");
+    }
+    
+    @Test
+    public void largeBoardWinAcrossBitboardWordsTest() {
+        MNKGameState gameState = MNKGameState.of(10, 10, 5);
+        for (int i=0; i < 4; ++i) {
+            gameState.applyMove(new DefaultGameMove("X", 39 + 10*i));
+            gameState.applyMove(new DefaultGameMove("O", i));
+        }
+        assertFalse(gameState.isGameOver());
+        gameState.applyMove(new DefaultGameMove("X", 79));
+        assertTrue(gameState.isGameOver());
+        assertEquals(gameState.getGameResult().getWinningPlayer(), "X");
+        gameState.undoMove();
+        assertFalse(gameState.isGameOver());
+        assertEquals(gameState.getAllValidMoves().size(), 92);
+    }
+    
+    @Test
+    public void symmetricPositionsShareCanonicalHashTest() {
+        MNKGameState gameState = MNKGameState.of(3, 4, 3);
+        gameState.applyMove(new DefaultGameMove("X", 0));
+        gameState.applyMove(new DefaultGameMove("O", 5));
+        MNKGameState mirrored = MNKGameState.of(3, 4, 3);
+        mirrored.applyMove(new DefaultGameMove("X", 11));
+        mirrored.applyMove(new DefaultGameMove("O", 6));
+        assertNotEquals(gameState.getZobristHash(), mirrored.getZobristHash());
+        assertEquals(gameState.getCanonicalZobristHash(), mirrored.getCanonicalZobristHash());
+        mirrored.undoMove();
+        assertNotEquals(gameState.getCanonicalZobristHash(), mirrored.getCanonicalZobristHash());
+    }
+    
+    @Test
+    public void canonicalMovesMapBetweenSymmetricPositionsTest() {
+        MNKGameState gameState = MNKGameState.of(4, 4, 3);
+        gameState.applyMove(new DefaultGameMove("X", 14));
+        MNKGameState mirrored = MNKGameState.of(4, 4, 3);
+        mirrored.applyMove(new DefaultGameMove("X", 13));
+        for (DefaultGameMove move : gameState.getAllValidMoves()) {
+            DefaultGameMove canonicalMove = gameState.toCanonicalMove(move);
+            assertEquals(gameState.fromCanonicalMove(canonicalMove), move);
+            DefaultGameMove mirroredMove = mirrored.fromCanonicalMove(canonicalMove);
+            assertTrue(mirrored.isValidMove(mirroredMove));
+            MNKGameState copy = (MNKGameState) gameState.getCopy();
+            copy.applyMove(move);
+            MNKGameState mirroredCopy = (MNKGameState) mirrored.getCopy();
+            mirroredCopy.applyMove(mirroredMove);
+            assertEquals(copy.getCanonicalZobristHash(), mirroredCopy.getCanonicalZobristHash());
+        }
+    }
+    
     @Test
     public void playFullGameTest() {
         MNKGameState gameState = MNKGameState.of(2, 2, 2);
@@ -50,4 +50,19 @@ public final class AIPlayerTest {
         move = aiPlayer.chooseNextMove(gameState);
         assertTrue(gameState.isValidMove(move));
     }
+    
+    @Test
+    public void ponderBetweenMovesTest() {
+        NodeResultsFactory<DefaultNodeResults> nodeResultsFactory = new DefaultNodeResultsFactory();
+        DefaultNodeResultsService<DefaultNodeResults> nodeResultsService = new DefaultNodeResultsService<>(nodeResultsFactory);
+        AIService<DefaultGameMove> aiService = new MonteCarloSearchService<DefaultGameMove,DefaultNodeResults>(
+                nodeResultsService, new FirstMoveTestPlayoutPolicy(), gameState);
+        AIPlayer<DefaultGameMove> ponderingPlayer = new AIPlayer<>(aiService, 50, true);
+        DefaultGameMove move = ponderingPlayer.chooseNextMove(gameState);
+        gameState.applyMove(move);
+        ponderingPlayer.informOfMoveMade(move, gameState);
+        move = ponderingPlayer.chooseNextMove(gameState);
+        assertTrue(gameState.isValidMove(move));
+        ponderingPlayer.shutdown();
+    }
 }
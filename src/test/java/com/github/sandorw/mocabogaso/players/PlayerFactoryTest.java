@@ -50,4 +50,9 @@ public final class PlayerFactoryTest {
         assertTrue(game.isGameOver());
         assertFalse(game.getGameResult().isTie());
     }
+    
+    @Test(expected=IllegalStateException.class)
+    public void symmetryHashingWithAMAFIsRejectedTest() {
+        new AIBuilder<>(gameState).withSymmetryHashing().withAMAF().build();
+    }
 }
@@ -0,0 +1,44 @@
+package com.github.sandorw.mocabogaso.zobrist;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test cases for FingerprintTable.
+ *
+ * @author sandorw
+ */
+public final class FingerprintTableTest {
+
+    @Test
+    public void capacityFromExpectedEntriesTest() {
+        assertEquals(new FingerprintTable(1000).getCapacity(), 2048);
+        assertEquals(new FingerprintTable(0).getCapacity(), 4);
+    }
+
+    @Test
+    public void putIfAbsentReturnsStoredFingerprintTest() {
+        FingerprintTable fingerprintTable = new FingerprintTable(4);
+        assertEquals(fingerprintTable.putIfAbsent(5L, 7L), FingerprintTable.EMPTY);
+        assertEquals(fingerprintTable.putIfAbsent(5L, 9L), 7L);
+        assertEquals(fingerprintTable.putIfAbsent(13L, 9L), FingerprintTable.EMPTY);
+        assertEquals(fingerprintTable.putIfAbsent(13L, 7L), 9L);
+        assertEquals(fingerprintTable.putIfAbsent(0L, 3L), FingerprintTable.EMPTY);
+        assertEquals(fingerprintTable.putIfAbsent(0L, 3L), 3L);
+    }
+
+    @Test
+    public void fullTableExceptionTest() {
+        FingerprintTable fingerprintTable = new FingerprintTable(2);
+        for (long hash=1; hash <= fingerprintTable.getCapacity(); ++hash) {
+            fingerprintTable.putIfAbsent(hash, 1L);
+        }
+        try {
+            fingerprintTable.putIfAbsent(100L, 1L);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "FingerprintTable is full");
+        }
+    }
+}
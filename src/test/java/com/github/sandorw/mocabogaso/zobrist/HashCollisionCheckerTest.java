@@ -0,0 +1,49 @@
+package com.github.sandorw.mocabogaso.zobrist;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.sandorw.mocabogaso.games.GameMove;
+import com.github.sandorw.mocabogaso.games.GameResult;
+import com.github.sandorw.mocabogaso.games.GameState;
+import com.github.sandorw.mocabogaso.games.connectx.ConnectXGameState;
+import com.github.sandorw.mocabogaso.games.defaults.DefaultGameMove;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Test cases for HashCollisionChecker.
+ *
+ * @author sandorw
+ */
+public final class HashCollisionCheckerTest {
+
+    @Test
+    public void transpositionsExploredOnceTest() {
+        HashCollisionChecker hashChecker = new HashCollisionChecker();
+        assertEquals(hashChecker.detectCollisions(ConnectXGameState.of(3, 3, 3)), 0);
+        assertTrue(hashChecker.getNumStatesChecked() < 3000);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void collisionReportedToListenerTest() {
+        GameState<GameMove,GameResult> gameState = (GameState<GameMove,GameResult>) mock(GameState.class);
+        GameState<GameMove,GameResult> childGameState = (GameState<GameMove,GameResult>) mock(GameState.class);
+        when(gameState.getZobristHash()).thenReturn(1L);
+        when(gameState.toString()).thenReturn("parent");
+        when(gameState.getAllValidMoves()).thenReturn(ImmutableList.of(new DefaultGameMove("X", 0)));
+        when(gameState.getCopy()).thenReturn(childGameState);
+        when(childGameState.getZobristHash()).thenReturn(1L);
+        when(childGameState.toString()).thenReturn("child");
+        when(childGameState.isGameOver()).thenReturn(true);
+        List<GameState<?,?>> collisions = Lists.newArrayList();
+        HashCollisionChecker hashChecker = new HashCollisionChecker(16, collisions::add);
+        assertEquals(hashChecker.detectCollisions(gameState), 1);
+        assertEquals(collisions, ImmutableList.of(childGameState));
+    }
+}